@@ -0,0 +1,106 @@
+package com.ambiguous.fixpoint.dto;
+
+import com.ambiguous.fixpoint.config.JacksonConfig;
+import com.ambiguous.fixpoint.entity.Notification;
+import com.ambiguous.fixpoint.entity.Report;
+import com.ambiguous.fixpoint.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Jackson serialization of the most frequently returned API payloads,
+ * using the application's configured ObjectMapper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private NotificationResponse notificationResponse;
+
+    @State(Scope.Benchmark)
+    public static class ReportPageState {
+
+        @Param({"10", "50"})
+        public int pageSize;
+
+        Page<ReportSummary> reportPage;
+
+        @Setup
+        public void setup() {
+            reportPage = buildReportPage(pageSize);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        objectMapper = new JacksonConfig().objectMapper();
+
+        Notification notification = new Notification("Progress Update: Pothole on Main Street",
+                "Report progress updated to 40%. Work in progress...",
+                Notification.NotificationType.PROGRESS_UPDATE, null);
+        notification.setId(99L);
+        notification.setCreatedAt(LocalDateTime.now());
+        notification.setProgressPercentage(40);
+        notification.setActionUrl("/reports/42");
+        notificationResponse = new NotificationResponse(notification);
+    }
+
+    @Benchmark
+    public byte[] serializeReportSummaryPage(ReportPageState state) throws Exception {
+        return objectMapper.writeValueAsBytes(state.reportPage);
+    }
+
+    @Benchmark
+    public byte[] serializeNotificationResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(notificationResponse);
+    }
+
+    private static Page<ReportSummary> buildReportPage(int pageSize) {
+        UserSummary reporter = new UserSummary();
+        reporter.setId(1L);
+        reporter.setUsername("reporter");
+        reporter.setEmail("reporter@example.com");
+        reporter.setFullName("Report Author");
+        reporter.setRole(User.Role.CITIZEN);
+        reporter.setIsVolunteer(false);
+
+        List<ReportSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            ReportSummary summary = new ReportSummary();
+            summary.setId((long) i);
+            summary.setTitle("Pothole on Main Street #" + i);
+            summary.setDescription("Large pothole near the bus stop causing traffic problems and damaging vehicles");
+            summary.setCategory(Report.Category.ROADS_INFRASTRUCTURE);
+            summary.setStatus(Report.Status.IN_PROGRESS);
+            summary.setPriority(Report.Priority.HIGH);
+            summary.setLatitude(23.8103 + i * 0.001);
+            summary.setLongitude(90.4125);
+            summary.setLocationAddress("Main Street, Dhaka");
+            summary.setImagePath("uploads/pothole-" + i + ".jpg");
+            summary.setVoteCount(i * 3);
+            summary.setReporter(reporter);
+            summary.setCreatedAt(LocalDateTime.now().minusDays(i));
+            summary.setUpdatedAt(LocalDateTime.now());
+            summary.setCommentCount(i % 7);
+            summary.setHasUserVoted(i % 2 == 0);
+            summary.setProgressPercentage(40);
+            summary.setWorkStage(Report.WorkStage.IN_PROGRESS);
+            summaries.add(summary);
+        }
+        return new PageImpl<>(summaries, PageRequest.of(0, pageSize, Sort.by("createdAt").descending()), 1000);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ambiguous.fixpoint.security;
+
+import com.ambiguous.fixpoint.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks JWT checks performed by JwtAuthenticationFilter on every authenticated request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup
+    public void setup() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret",
+                "benchmark-secret-key-that-is-long-enough-for-hs512-signing-of-jwt-tokens-0123456789");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 86400000L);
+
+        User user = new User("benchmark", "benchmark@example.com", "secret", "Benchmark User");
+        user.setId(42L);
+        UserPrincipal principal = UserPrincipal.create(user);
+        token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Long getUserIdFromJWT() {
+        return tokenProvider.getUserIdFromJWT(token);
+    }
+}
@@ -0,0 +1,41 @@
+package com.ambiguous.fixpoint.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the pure scoring functions used for every candidate pair during duplicate detection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DuplicateDetectionBenchmark {
+
+    private DuplicateDetectionService service;
+
+    private String[] words1;
+    private String[] words2;
+
+    @Setup
+    public void setup() {
+        service = new DuplicateDetectionService();
+        words1 = "Large pothole on Main Street near the central bus stop causing traffic problems"
+                .toLowerCase().split("\\W+");
+        words2 = "Road damage on Main Street, a big pothole next to the bus stop slowing down traffic"
+                .toLowerCase().split("\\W+");
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        return service.calculateDistance(23.8103, 90.4125, 23.8150, 90.4200);
+    }
+
+    @Benchmark
+    public double calculateJaccardSimilarity() {
+        return service.calculateJaccardSimilarity(words1, words2);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ambiguous.fixpoint.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing of AI provider responses in MultiAIService.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultiAIParsingBenchmark {
+
+    private static final String GEMINI_RESPONSE = """
+            {
+              "candidates": [{
+                "content": {
+                  "parts": [{"text": "The image shows a large pothole approximately 60cm wide in the left lane of an asphalt road. The edges are crumbling and water has pooled in the depression, which poses a risk to motorcyclists and may cause tyre damage."}],
+                  "role": "model"
+                },
+                "finishReason": "STOP"
+              }],
+              "usageMetadata": {"promptTokenCount": 812, "candidatesTokenCount": 54, "totalTokenCount": 866}
+            }
+            """;
+
+    private static final String CATEGORIZATION_JSON = """
+            ```json
+            {
+              "category": "infrastructure",
+              "priority": "high",
+              "confidence": 0.87,
+              "tags": ["pothole", "road damage", "traffic"],
+              "reasoning": "Road surface damage on a busy street that affects vehicle safety"
+            }
+            ```""";
+
+    private MultiAIService service;
+    private Map<String, Object> geminiResponse;
+
+    @Setup
+    public void setup() throws Exception {
+        service = new MultiAIService();
+        geminiResponse = new ObjectMapper().readValue(GEMINI_RESPONSE, new TypeReference<Map<String, Object>>() {});
+    }
+
+    @Benchmark
+    public String parseGeminiResponse() {
+        return service.parseGeminiResponse(geminiResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseCategorizationJSON() {
+        return service.parseCategorizationJSON(CATEGORIZATION_JSON);
+    }
+}
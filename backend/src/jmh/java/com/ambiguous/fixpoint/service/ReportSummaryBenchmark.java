@@ -0,0 +1,66 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ReportSummary;
+import com.ambiguous.fixpoint.entity.Report;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.CommentRepository;
+import com.ambiguous.fixpoint.repository.VoteRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the entity-to-DTO mapping in ReportService. The comment and vote repositories are
+ * stubbed, so this measures mapping overhead only, not the per-row queries it issues.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportSummaryBenchmark {
+
+    private ReportService reportService;
+    private Report report;
+    private User currentUser;
+
+    @Setup
+    public void setup() {
+        CommentRepository commentRepository = Mockito.mock(CommentRepository.class);
+        VoteRepository voteRepository = Mockito.mock(VoteRepository.class);
+        Mockito.when(commentRepository.countByReport(Mockito.any())).thenReturn(12L);
+        Mockito.when(voteRepository.existsByUserAndReport(Mockito.any(), Mockito.any())).thenReturn(true);
+
+        reportService = new ReportService();
+        ReflectionTestUtils.setField(reportService, "commentRepository", commentRepository);
+        ReflectionTestUtils.setField(reportService, "voteRepository", voteRepository);
+
+        User reporter = new User("reporter", "reporter@example.com", "secret", "Report Author");
+        reporter.setId(1L);
+        User assignee = new User("staff", "staff@example.com", "secret", "Field Staff");
+        assignee.setId(2L);
+        currentUser = new User("viewer", "viewer@example.com", "secret", "Viewer");
+        currentUser.setId(3L);
+
+        report = new Report("Pothole on Main Street", "Large pothole near the bus stop causing traffic problems",
+                Report.Category.ROADS_INFRASTRUCTURE, 23.8103, 90.4125, reporter);
+        report.setId(42L);
+        report.setAssignedTo(assignee);
+        report.setLocationAddress("Main Street, Dhaka");
+        report.setImagePath("uploads/pothole.jpg");
+        report.setVoteCount(17);
+        report.setCreatedAt(LocalDateTime.now().minusDays(2));
+        report.setUpdatedAt(LocalDateTime.now());
+        report.setProgressPercentage(40);
+        report.setWorkStage(Report.WorkStage.IN_PROGRESS);
+    }
+
+    @Benchmark
+    public ReportSummary convertToReportSummary() {
+        return reportService.convertToReportSummary(report, currentUser);
+    }
+}
@@ -0,0 +1,77 @@
+package com.ambiguous.fixpoint.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * One HTTP client for every call to an AI provider. The JDK client keeps connections alive and
+ * reuses them across requests, and speaks HTTP/2 where the provider offers it, multiplexing
+ * concurrent requests over one connection. Requests to each provider are capped by
+ * {@link AIProviderConcurrencyLimiter}.
+ *
+ * The read timeout bounds the whole exchange, body included, so streamed chatbot answers get
+ * their own RestTemplate with the stream timeout; both share the client and its connections.
+ * Request latency is recorded as http.client.requests through RestTemplateBuilder.
+ */
+@Configuration
+public class AIHttpClientConfig {
+
+    @Value("${app.ai.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.ai.http.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    @Value("${app.chatbot.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${app.ai.http.max-concurrent-per-provider:16}")
+    private int maxConcurrentPerProvider;
+
+    @Value("${app.ai.http.acquire-timeout-ms:10000}")
+    private long acquireTimeoutMs;
+
+    @Bean
+    public HttpClient aiHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public AIProviderConcurrencyLimiter aiProviderConcurrencyLimiter(MeterRegistry meterRegistry) {
+        return new AIProviderConcurrencyLimiter(maxConcurrentPerProvider, acquireTimeoutMs, meterRegistry);
+    }
+
+    @Bean
+    public RestTemplate aiRestTemplate(RestTemplateBuilder builder, HttpClient aiHttpClient,
+                                       AIProviderConcurrencyLimiter aiProviderConcurrencyLimiter) {
+        return build(builder, aiHttpClient, aiProviderConcurrencyLimiter, readTimeoutMs);
+    }
+
+    @Bean
+    public RestTemplate aiStreamingRestTemplate(RestTemplateBuilder builder, HttpClient aiHttpClient,
+                                                AIProviderConcurrencyLimiter aiProviderConcurrencyLimiter) {
+        return build(builder, aiHttpClient, aiProviderConcurrencyLimiter, streamTimeoutMs);
+    }
+
+    private RestTemplate build(RestTemplateBuilder builder, HttpClient client,
+                               AIProviderConcurrencyLimiter limiter, long timeoutMs) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(client);
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutMs));
+        return builder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(limiter)
+                .build();
+    }
+}
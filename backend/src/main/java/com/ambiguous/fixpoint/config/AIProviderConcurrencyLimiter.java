@@ -0,0 +1,158 @@
+package com.ambiguous.fixpoint.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests in flight to each AI provider (one host each) on the shared AI client. A
+ * request holds its slot until its response is closed, so a streamed answer counts for as long
+ * as it is being read. A request that cannot get a slot within the acquire timeout fails with
+ * a {@link SlotUnavailableException} instead of queueing behind a slow provider indefinitely.
+ *
+ * Per provider: gauges fixpoint.ai.http.in-flight and fixpoint.ai.http.waiting, and counter
+ * fixpoint.ai.http.rejected.
+ */
+public class AIProviderConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ProviderSlots> providers = new ConcurrentHashMap<>();
+
+    public AIProviderConcurrencyLimiter(int maxConcurrent, long acquireTimeoutMs, MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String provider = providerOf(request.getURI().getHost());
+        ProviderSlots slots = providers.computeIfAbsent(provider, ProviderSlots::new);
+
+        slots.waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = slots.permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SlotUnavailableException("Interrupted waiting for a " + provider + " connection slot", e);
+        } finally {
+            slots.waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            slots.rejected.increment();
+            throw new SlotUnavailableException("Too many concurrent " + provider + " requests", null);
+        }
+
+        try {
+            return new SlotReleasingResponse(execution.execute(request, body), slots.permits);
+        } catch (IOException | RuntimeException e) {
+            slots.permits.release();
+            throw e;
+        }
+    }
+
+    static String providerOf(String host) {
+        if (host == null) {
+            return "unknown";
+        }
+        if (host.endsWith("googleapis.com")) {
+            return "gemini";
+        }
+        if (host.endsWith("openai.com")) {
+            return "openai";
+        }
+        return host;
+    }
+
+    /**
+     * Refused locally, before anything was sent: says nothing about the provider's health
+     */
+    public static class SlotUnavailableException extends IOException {
+        public SlotUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private class ProviderSlots {
+        private final Semaphore permits = new Semaphore(maxConcurrent);
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter rejected;
+
+        private ProviderSlots(String provider) {
+            Gauge.builder("fixpoint.ai.http.in-flight", permits, p -> maxConcurrent - p.availablePermits())
+                    .description("AI provider requests holding a connection slot")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            Gauge.builder("fixpoint.ai.http.waiting", waiting, AtomicInteger::get)
+                    .description("AI provider requests waiting for a connection slot")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            rejected = Counter.builder("fixpoint.ai.http.rejected")
+                    .description("AI provider requests refused after waiting for a connection slot")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static class SlotReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private SlotReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+            this.delegate = delegate;
+            this.permits = permits;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ambiguous.fixpoint.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    @Value("${app.duplicates.clustering.pool-size:2}")
+    private int clusteringPoolSize;
+
+    @Value("${app.duplicates.clustering.queue-capacity:500}")
+    private int clusteringQueueCapacity;
+
+    /**
+     * Executor for post-create duplicate clustering. Work is dropped (and logged) when the
+     * queue is full so report creation never blocks on it.
+     */
+    @Bean(name = "duplicateClusteringExecutor")
+    public Executor duplicateClusteringExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(clusteringPoolSize);
+        executor.setMaxPoolSize(clusteringPoolSize);
+        executor.setQueueCapacity(clusteringQueueCapacity);
+        executor.setThreadNamePrefix("dup-cluster-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Duplicate clustering queue full, skipping clustering task"));
+        executor.initialize();
+        return executor;
+    }
+}
@@ -2,13 +2,17 @@ package com.ambiguous.fixpoint.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.Statement;
 
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class DatabaseMigrationRunner implements CommandLineRunner {
 
     @Autowired
@@ -33,10 +37,125 @@ public class DatabaseMigrationRunner implements CommandLineRunner {
                 System.out.println("Database migration check completed. Column may already be correct type.");
             }
             
+            // Notifications moved from IDENTITY to a pooled sequence; start the sequence past
+            // rows created under the old identity column so new ids cannot collide
+            try {
+                ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM notifications");
+                long maxId = rs.next() ? rs.getLong(1) : 0;
+                rs.close();
+                if (maxId > 0) {
+                    restartSequence(connection, statement, "notifications_seq", maxId + 51);
+                    System.out.println("Notification id sequence aligned after id " + maxId);
+                }
+            } catch (Exception e) {
+                System.out.println("Notification sequence check skipped: " + e.getMessage());
+            }
+            
+            // Backfill updated_at for notifications created before delta sync existed
+            try {
+                int backfilled = statement.executeUpdate(
+                    "UPDATE notifications SET updated_at = COALESCE(read_at, created_at) WHERE updated_at IS NULL");
+                if (backfilled > 0) {
+                    System.out.println("Backfilled updated_at for " + backfilled + " notifications");
+                }
+            } catch (Exception e) {
+                System.out.println("Notification updated_at backfill skipped: " + e.getMessage());
+            }
+            
+            // Seed the per-comment reaction counters once for reactions made before they existed
+            try {
+                ResultSet rs = statement.executeQuery(
+                    "SELECT (SELECT COUNT(*) FROM comment_reactions), " +
+                    "(SELECT COUNT(*) FROM comments WHERE like_count + love_count + haha_count + wow_count + sad_count + angry_count > 0)");
+                boolean needsBackfill = rs.next() && rs.getLong(1) > 0 && rs.getLong(2) == 0;
+                rs.close();
+                if (needsBackfill) {
+                    StringBuilder sql = new StringBuilder("UPDATE comments SET ");
+                    String[] types = {"LIKE", "LOVE", "HAHA", "WOW", "SAD", "ANGRY"};
+                    for (int i = 0; i < types.length; i++) {
+                        sql.append(i > 0 ? ", " : "")
+                           .append(types[i].toLowerCase()).append("_count = (SELECT COUNT(*) FROM comment_reactions r ")
+                           .append("WHERE r.comment_id = comments.id AND r.type = '").append(types[i]).append("')");
+                    }
+                    int seeded = statement.executeUpdate(sql.toString());
+                    System.out.println("Seeded reaction counters for " + seeded + " comments");
+                }
+            } catch (Exception e) {
+                System.out.println("Reaction counter backfill skipped: " + e.getMessage());
+            }
+
+            // Attach chat messages written before conversations existed and build their summary rows
+            try {
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM chat_messages WHERE conversation_id IS NULL");
+                boolean needsBackfill = rs.next() && rs.getLong(1) > 0;
+                rs.close();
+                if (needsBackfill) {
+                    String low = "LEAST(m.sender_id, m.receiver_id)";
+                    String high = "GREATEST(m.sender_id, m.receiver_id)";
+                    statement.executeUpdate(
+                        "INSERT INTO conversations (user_low_id, user_high_id, unread_low, unread_high, created_at) " +
+                        "SELECT DISTINCT " + low + ", " + high + ", 0, 0, CURRENT_TIMESTAMP FROM chat_messages m " +
+                        "WHERE m.conversation_id IS NULL AND NOT EXISTS (SELECT 1 FROM conversations c " +
+                        "WHERE c.user_low_id = " + low + " AND c.user_high_id = " + high + ")");
+                    int attached = statement.executeUpdate(
+                        "UPDATE chat_messages m SET conversation_id = (SELECT c.id FROM conversations c " +
+                        "WHERE c.user_low_id = " + low + " AND c.user_high_id = " + high + ") " +
+                        "WHERE m.conversation_id IS NULL");
+                    String last = "(SELECT MAX(m.id) FROM chat_messages m WHERE m.conversation_id = conversations.id)";
+                    statement.executeUpdate(
+                        "UPDATE conversations SET last_message_id = " + last + ", " +
+                        "last_message_content = (SELECT m.content FROM chat_messages m WHERE m.id = " + last + "), " +
+                        "last_sender_id = (SELECT m.sender_id FROM chat_messages m WHERE m.id = " + last + "), " +
+                        "last_message_at = (SELECT m.created_at FROM chat_messages m WHERE m.id = " + last + "), " +
+                        "unread_low = (SELECT COUNT(*) FROM chat_messages m WHERE m.conversation_id = conversations.id " +
+                        "AND m.receiver_id = conversations.user_low_id AND m.is_read = FALSE), " +
+                        "unread_high = (SELECT COUNT(*) FROM chat_messages m WHERE m.conversation_id = conversations.id " +
+                        "AND m.receiver_id = conversations.user_high_id AND m.is_read = FALSE) " +
+                        "WHERE last_message_id IS NULL");
+                    System.out.println("Attached " + attached + " chat messages to conversations");
+                }
+            } catch (Exception e) {
+                System.out.println("Conversation backfill skipped: " + e.getMessage());
+            }
+
+            // Chat messages moved to a pooled id sequence, as notifications did, and gained
+            // per-conversation sequence numbers; align both with the rows already stored
+            try {
+                ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM chat_messages");
+                long maxId = rs.next() ? rs.getLong(1) : 0;
+                rs.close();
+                if (maxId > 0) {
+                    restartSequence(connection, statement, "chat_messages_seq", maxId + 51);
+                    System.out.println("Chat message id sequence aligned after id " + maxId);
+                }
+                // The derived table keeps MySQL from rejecting a subquery on the updated table
+                int numbered = statement.executeUpdate(
+                    "UPDATE chat_messages SET seq = (SELECT COUNT(*) FROM (SELECT id, conversation_id FROM chat_messages) x " +
+                    "WHERE x.conversation_id = chat_messages.conversation_id AND x.id <= chat_messages.id) " +
+                    "WHERE seq IS NULL AND conversation_id IS NOT NULL");
+                if (numbered > 0) {
+                    statement.executeUpdate(
+                        "UPDATE conversations SET last_seq = COALESCE((SELECT MAX(m.seq) FROM chat_messages m " +
+                        "WHERE m.conversation_id = conversations.id), 0)");
+                    System.out.println("Numbered " + numbered + " chat messages within their conversations");
+                }
+            } catch (Exception e) {
+                System.out.println("Chat sequence backfill skipped: " + e.getMessage());
+            }
+
             statement.close();
         } catch (Exception e) {
             System.err.println("Database migration failed: " + e.getMessage());
             // Don't throw exception to prevent application startup failure
         }
     }
+
+    // MySQL has no sequences; Hibernate emulates them with a one-row table holding next_val
+    private void restartSequence(Connection connection, Statement statement, String sequence, long next) throws Exception {
+        if ("MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+            statement.executeUpdate("UPDATE " + sequence + " SET next_val = " + next + " WHERE next_val < " + next);
+        } else {
+            statement.executeUpdate("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.ambiguous.fixpoint.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Runs @Scheduled jobs on their own thread pool. Without it they share the STOMP broker's
+ * single-threaded scheduler (the only TaskScheduler bean, so Boot does not create one), and a
+ * retention purge sleeping between chunks would hold up the 250ms read-receipt flush. The pool
+ * is deliberately not a bean: an Executor bean would be picked up for the STOMP channels.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer, DisposableBean {
+
+    @Value("${app.scheduling.pool-size:5}")
+    private int poolSize;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -1,25 +1,139 @@
 package com.ambiguous.fixpoint.config;
 
+import com.ambiguous.fixpoint.security.StompAuthChannelInterceptor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+	@Autowired
+	private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+	@Autowired
+	private WebSocketOutboundInterceptor webSocketOutboundInterceptor;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	// "simple" keeps the in-memory broker (single node); "relay" forwards to an external STOMP broker
+	@Value("${app.websocket.broker.mode:simple}")
+	private String brokerMode;
+
+	@Value("${app.websocket.broker.relay-host:localhost}")
+	private String relayHost;
+
+	@Value("${app.websocket.broker.relay-port:61613}")
+	private int relayPort;
+
+	@Value("${app.websocket.broker.login:guest}")
+	private String relayLogin;
+
+	@Value("${app.websocket.broker.passcode:guest}")
+	private String relayPasscode;
+
+	@Value("${app.websocket.broker.virtual-host:}")
+	private String relayVirtualHost;
+
+	@Value("${app.websocket.outbound.core-pool-size:4}")
+	private int outboundCorePoolSize;
+
+	@Value("${app.websocket.outbound.max-pool-size:16}")
+	private int outboundMaxPoolSize;
+
+	@Value("${app.websocket.outbound.queue-capacity:10000}")
+	private int outboundQueueCapacity;
+
+	@Value("${app.websocket.transport.send-time-limit-ms:10000}")
+	private int sendTimeLimitMs;
+
+	@Value("${app.websocket.transport.send-buffer-size-kb:256}")
+	private int sendBufferSizeKb;
+
+	@Value("${app.websocket.transport.message-size-kb:64}")
+	private int messageSizeKb;
+
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry config) {
-		config.enableSimpleBroker("/topic", "/queue");
+		if ("relay".equalsIgnoreCase(brokerMode)) {
+			var relay = config.enableStompBrokerRelay("/topic", "/queue")
+					.setRelayHost(relayHost)
+					.setRelayPort(relayPort)
+					.setClientLogin(relayLogin)
+					.setClientPasscode(relayPasscode)
+					.setSystemLogin(relayLogin)
+					.setSystemPasscode(relayPasscode)
+					// Share user sessions between nodes so user destinations resolve cluster-wide
+					.setUserDestinationBroadcast("/topic/unresolved-user-destination")
+					.setUserRegistryBroadcast("/topic/simp-user-registry");
+			if (!relayVirtualHost.isEmpty()) {
+				relay.setVirtualHost(relayVirtualHost);
+			}
+		} else {
+			config.enableSimpleBroker("/topic", "/queue");
+		}
 		config.setApplicationDestinationPrefixes("/app");
 		config.setUserDestinationPrefix("/user");
 	}
 
+	@Override
+	public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+		// The user registry broadcast round-trips Spring's own snapshot types, whose serialized
+		// form carries properties the strict application mapper rejects on the way back in
+		MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+		converter.setObjectMapper(objectMapper.copy()
+				.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+		messageConverters.add(0, converter);
+		return true;
+	}
+
+	@Override
+	public void configureClientInboundChannel(ChannelRegistration registration) {
+		registration.interceptors(stompAuthChannelInterceptor);
+	}
+
+	@Override
+	public void configureClientOutboundChannel(ChannelRegistration registration) {
+		// A send to a slow socket is buffered rather than blocking the thread, so a bounded
+		// pool is enough; the interceptor sheds notification frames for sessions that lag
+		registration.taskExecutor()
+				.corePoolSize(outboundCorePoolSize)
+				.maxPoolSize(outboundMaxPoolSize)
+				.queueCapacity(outboundQueueCapacity);
+		registration.interceptors(webSocketOutboundInterceptor);
+	}
+
+	@Override
+	public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+		// A session that cannot drain its buffer within these limits is closed; clients
+		// reconnect and catch up through /api/notifications/changes
+		registration.setSendTimeLimit(sendTimeLimitMs)
+				.setSendBufferSizeLimit(sendBufferSizeKb * 1024)
+				.setMessageSizeLimit(messageSizeKb * 1024)
+				// Counts frames as they leave each session's send buffer, for notification shedding
+				.addDecoratorFactory(webSocketOutboundInterceptor);
+	}
+
 	@Override
 	public void registerStompEndpoints(StompEndpointRegistry registry) {
 		registry.addEndpoint("/ws-chat").setAllowedOriginPatterns("*").withSockJS();
 		registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+		// Handle each session's frames in the order sent, so one sender's chat messages are
+		// sequenced in the order they were typed
+		registry.setPreserveReceiveOrder(true);
 	}
 }
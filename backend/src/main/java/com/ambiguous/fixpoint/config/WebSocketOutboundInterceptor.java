@@ -0,0 +1,333 @@
+package com.ambiguous.fixpoint.config;
+
+import com.ambiguous.fixpoint.dto.UnreadCountMessage;
+import com.ambiguous.fixpoint.service.UnreadNotificationCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the outbound backlog of each WebSocket session and sheds notification load for
+ * sessions that fall behind.
+ *
+ * The backlog is the frames queued for the session on the client outbound channel plus the
+ * frames handed to the session but not yet written to its socket. The latter is where a slow
+ * client's frames pile up: the channel thread hands a frame to the session's send buffer and
+ * moves on. The channel side is counted as a channel interceptor; the socket side by a handler
+ * decorator (registered as a {@link WebSocketHandlerDecoratorFactory}) that wraps each session
+ * and counts the frames actually written.
+ *
+ * A session whose backlog reaches the high-water mark stops receiving notification frames;
+ * they are superseded anyway once the client catches up. When the backlog drains back to the
+ * low-water mark the session gets a single unread-count frame so the client can resync via
+ * /api/notifications/changes. Chat and other frames are never dropped here; a client that
+ * cannot keep up with those hits the transport send-time/buffer limits and is disconnected.
+ *
+ * Aggregate queue depth, latency and drop meters go to Micrometer; per-session figures are
+ * kept in memory only (session ids would explode meter cardinality) and served by
+ * {@link #getSessionSnapshots()}.
+ */
+@Component
+public class WebSocketOutboundInterceptor implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketOutboundInterceptor.class);
+
+    private static final String ENQUEUED_AT_HEADER = "fixpointEnqueuedAt";
+
+    private static final String NOTIFICATIONS_DESTINATION = "/queue/notifications";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Lazy: both beans depend on the broker configuration this interceptor is registered with
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    @Lazy
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Value("${app.websocket.outbound.notification-high-water:32}")
+    private int notificationHighWater;
+
+    @Value("${app.websocket.outbound.notification-low-water:4}")
+    private int notificationLowWater;
+
+    private final Map<String, SessionStats> sessions = new ConcurrentHashMap<>();
+
+    private Timer latencyTimer;
+    private DistributionSummary queueDepth;
+    private Counter droppedNotifications;
+
+    @PostConstruct
+    void registerMeters() {
+        latencyTimer = Timer.builder("fixpoint.websocket.outbound.latency")
+                .description("Time from queueing a frame for a session to handing it to the socket")
+                .register(meterRegistry);
+        queueDepth = DistributionSummary.builder("fixpoint.websocket.outbound.queue.depth")
+                .description("Frames already pending for the session (queued or unsent) when another one is queued")
+                .register(meterRegistry);
+        droppedNotifications = Counter.builder("fixpoint.websocket.outbound.dropped")
+                .description("Notification frames dropped for sessions over the high-water mark")
+                .register(meterRegistry);
+        Gauge.builder("fixpoint.websocket.outbound.queue.depth.max", sessions,
+                        s -> s.values().stream().mapToInt(SessionStats::backlog).max().orElse(0))
+                .description("Largest outbound backlog of any connected session")
+                .register(meterRegistry);
+        Gauge.builder("fixpoint.websocket.outbound.sessions.collapsed", sessions,
+                        s -> s.values().stream().filter(stats -> stats.collapsed.get()).count())
+                .description("Sessions currently receiving no notification frames")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new SessionStats());
+        }
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        Principal user = event.getUser();
+        SessionStats stats = sessionId != null ? sessions.get(sessionId) : null;
+        if (stats != null && user != null) {
+            stats.user = user.getName();
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionStats stats = statsFor(message);
+        if (stats == null) {
+            return message;
+        }
+
+        int pending = stats.backlog();
+        if (isNotificationFrame(message)) {
+            if (pending >= notificationHighWater) {
+                if (stats.collapsed.compareAndSet(false, true)) {
+                    logger.debug("Session {} is {} frames behind, collapsing notifications",
+                            SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), pending);
+                }
+            }
+            if (stats.collapsed.get()) {
+                stats.dropped.incrementAndGet();
+                droppedNotifications.increment();
+                return null;
+            }
+        }
+
+        queueDepth.record(pending);
+        stats.queued.incrementAndGet();
+        stats.maxPending.accumulateAndGet(stats.backlog(), Math::max);
+        return MessageBuilder.fromMessage(message)
+                .setHeader(ENQUEUED_AT_HEADER, System.nanoTime())
+                .build();
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        // Counted as unsent before the handler runs: a fast socket writes the frame inside the handler
+        SessionStats stats = message.getHeaders().containsKey(ENQUEUED_AT_HEADER) ? statsFor(message) : null;
+        if (stats != null) {
+            stats.queued.decrementAndGet();
+            stats.unsent.incrementAndGet();
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Long enqueuedAt = message.getHeaders().get(ENQUEUED_AT_HEADER, Long.class);
+        SessionStats stats = statsFor(message);
+        if (enqueuedAt == null || stats == null) {
+            return;
+        }
+
+        long latencyNanos = System.nanoTime() - enqueuedAt;
+        latencyTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        stats.lastLatencyNanos = latencyNanos;
+        stats.sent.incrementAndGet();
+        if (ex != null) {
+            // Never reached the session, so it will not be written either
+            stats.frameWritten();
+        }
+        resumeIfDrained(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), stats);
+    }
+
+    /**
+     * Wrap each session so frames written to its socket are counted against its backlog
+     */
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(new WriteCountingSession(session));
+            }
+        };
+    }
+
+    private void onFrameWritten(String sessionId) {
+        SessionStats stats = sessions.get(sessionId);
+        if (stats != null) {
+            stats.frameWritten();
+            resumeIfDrained(sessionId, stats);
+        }
+    }
+
+    private void resumeIfDrained(String sessionId, SessionStats stats) {
+        if (stats.backlog() <= notificationLowWater && stats.collapsed.compareAndSet(true, false)) {
+            sendUnreadCount(sessionId, stats.user);
+        }
+    }
+
+    /**
+     * Point-in-time outbound figures for every connected session
+     */
+    public List<Map<String, Object>> getSessionSnapshots() {
+        List<Map<String, Object>> snapshots = new ArrayList<>();
+        sessions.forEach((sessionId, stats) -> {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("sessionId", sessionId);
+            snapshot.put("user", stats.user);
+            snapshot.put("pending", stats.backlog());
+            snapshot.put("queued", stats.queued.get());
+            snapshot.put("unsent", stats.unsent.get());
+            snapshot.put("maxPending", stats.maxPending.get());
+            snapshot.put("lastLatencyMs", TimeUnit.NANOSECONDS.toMillis(stats.lastLatencyNanos));
+            snapshot.put("sent", stats.sent.get());
+            snapshot.put("droppedNotifications", stats.dropped.get());
+            snapshot.put("collapsed", stats.collapsed.get());
+            snapshots.add(snapshot);
+        });
+        return snapshots;
+    }
+
+    private SessionStats statsFor(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    private boolean isNotificationFrame(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return false;
+        }
+        // By now the user destination is resolved to the session's queue
+        // ("/queue/notifications-user<sessionId>"); the destination the client subscribed to
+        // ("/user/queue/notifications") travels in a native header
+        String destination = SimpMessageHeaderAccessor.getFirstNativeHeader(
+                SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, message.getHeaders());
+        if (destination == null) {
+            destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        }
+        return destination != null && destination.endsWith(NOTIFICATIONS_DESTINATION);
+    }
+
+    private void sendUnreadCount(String sessionId, String user) {
+        if (sessionId == null || user == null) {
+            return;
+        }
+        try {
+            long count = unreadNotificationCounter.getUnreadCount(Long.valueOf(user));
+            // Target only the session that fell behind, not every session of the user
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(user, NOTIFICATIONS_DESTINATION,
+                    new UnreadCountMessage(count), headers.getMessageHeaders());
+        } catch (Exception e) {
+            logger.warn("Failed to send unread count to session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Sits under the send buffer Spring puts in front of every session, so it sees a frame only
+     * once the buffer is flushed to the socket
+     */
+    private class WriteCountingSession extends WebSocketSessionDecorator {
+
+        WriteCountingSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            try {
+                super.sendMessage(message);
+            } finally {
+                onFrameWritten(getId());
+            }
+        }
+    }
+
+    private static class SessionStats {
+        private volatile String user;
+        // On the outbound channel, waiting for a thread
+        private final AtomicInteger queued = new AtomicInteger();
+        // Handed to the session, in its send buffer or being written
+        private final AtomicInteger unsent = new AtomicInteger();
+        private final AtomicInteger maxPending = new AtomicInteger();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean collapsed = new AtomicBoolean();
+        private volatile long lastLatencyNanos;
+
+        private int backlog() {
+            return queued.get() + unsent.get();
+        }
+
+        // Frames the session writes on its own (errors, receipts to rejected frames) were never counted
+        private void frameWritten() {
+            unsent.updateAndGet(v -> Math.max(0, v - 1));
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.ambiguous.fixpoint.controller;
 
+import com.ambiguous.fixpoint.config.WebSocketOutboundInterceptor;
 import com.ambiguous.fixpoint.repository.CommentRepository;
+import com.ambiguous.fixpoint.service.ChatbotResponseCache;
+import com.ambiguous.fixpoint.service.NotificationRecipientDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -14,6 +19,15 @@ public class AdminController {
     
     @Autowired
     private CommentRepository commentRepository;
+
+    @Autowired
+    private WebSocketOutboundInterceptor webSocketOutboundInterceptor;
+
+    @Autowired
+    private ChatbotResponseCache chatbotResponseCache;
+
+    @Autowired
+    private NotificationRecipientDirectory notificationRecipientDirectory;
     
     /**
      * Delete all comments from the database
@@ -38,4 +52,50 @@ public class AdminController {
             ));
         }
     }
+
+    /**
+     * Outbound queue depth and send latency for each connected WebSocket session
+     */
+    @GetMapping("/websocket/sessions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getWebSocketSessions() {
+        List<Map<String, Object>> sessions = webSocketOutboundInterceptor.getSessionSnapshots();
+        return ResponseEntity.ok(Map.of(
+            "count", sessions.size(),
+            "sessions", sessions
+        ));
+    }
+
+    /**
+     * Size, bounds and hit rate of the public chatbot's response cache
+     */
+    @GetMapping("/chatbot/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getChatbotCacheStats() {
+        return ResponseEntity.ok(chatbotResponseCache.getStats());
+    }
+
+    /**
+     * Drop every cached chatbot answer, e.g. after the civic information they draw on changed
+     */
+    @DeleteMapping("/chatbot/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> purgeChatbotCache() {
+        int purged = chatbotResponseCache.purge();
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "purged", purged
+        ));
+    }
+
+    /**
+     * Reload notification recipients (organization admins, digest users) on this node, e.g.
+     * after they were changed outside the application
+     */
+    @DeleteMapping("/notifications/recipients/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> purgeNotificationRecipientCache() {
+        notificationRecipientDirectory.invalidateAll();
+        return ResponseEntity.ok(Map.of("success", true));
+    }
 }
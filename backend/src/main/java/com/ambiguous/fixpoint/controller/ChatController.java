@@ -1,51 +1,47 @@
 package com.ambiguous.fixpoint.controller;
 
-import com.ambiguous.fixpoint.entity.ChatMessage;
-import com.ambiguous.fixpoint.entity.User;
-import com.ambiguous.fixpoint.repository.ChatMessageRepository;
-import com.ambiguous.fixpoint.repository.UserRepository;
+import com.ambiguous.fixpoint.dto.ChatReadRequest;
+import com.ambiguous.fixpoint.dto.ChatSendRequest;
+import com.ambiguous.fixpoint.service.ChatPipeline;
+import com.ambiguous.fixpoint.service.ChatReadReceipts;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
-import java.util.Optional;
 
-// @Controller
+@Controller
 public class ChatController {
 
 	@Autowired
-	private SimpMessagingTemplate messagingTemplate;
+	private ChatPipeline chatPipeline;
 
 	@Autowired
-	private ChatMessageRepository chatMessageRepository;
-
-	@Autowired
-	private UserRepository userRepository;
+	private ChatReadReceipts chatReadReceipts;
 
+	/**
+	 * Direct message from the session's user. Delivered to both participants on
+	 * /user/queue/messages right away; the sender learns it was stored from /user/queue/chat-acks.
+	 */
 	@MessageMapping("/chat.send")
-	public void sendMessage(@Payload ChatMessage chatMessage, Principal principal) {
-		// Find sender and receiver
-		Optional<User> senderOpt = userRepository.findByUsername(principal.getName());
-		Optional<User> receiverOpt = userRepository.findById(chatMessage.getReceiver().getId());
-		if (senderOpt.isPresent() && receiverOpt.isPresent()) {
-			chatMessage.setSender(senderOpt.get());
-			chatMessage.setReceiver(receiverOpt.get());
-			chatMessageRepository.save(chatMessage);
-			// Send to receiver
-			messagingTemplate.convertAndSendToUser(
-				receiverOpt.get().getUsername(),
-				"/queue/messages",
-				chatMessage
-			);
-			// Optionally, send to sender for confirmation
-			messagingTemplate.convertAndSendToUser(
-				senderOpt.get().getUsername(),
-				"/queue/messages",
-				chatMessage
-			);
+	public void sendMessage(@Payload ChatSendRequest request, Principal principal) {
+		// STOMP principals are named by user id; anonymous sessions cannot chat
+		if (principal == null) {
+			return;
+		}
+		chatPipeline.send(Long.valueOf(principal.getName()), request);
+	}
+
+	/**
+	 * Everything the session's user received from request.userId is read up to request.seq.
+	 * The other participant is told on /user/queue/chat-receipts.
+	 */
+	@MessageMapping("/chat.read")
+	public void markRead(@Payload ChatReadRequest request, Principal principal) {
+		if (principal == null || request.getUserId() == null || request.getSeq() == null) {
+			return;
 		}
+		chatReadReceipts.markRead(Long.valueOf(principal.getName()), request.getUserId(), request.getSeq());
 	}
 }
@@ -1,46 +1,99 @@
 package com.ambiguous.fixpoint.controller;
 
-import com.ambiguous.fixpoint.entity.ChatMessage;
-import com.ambiguous.fixpoint.entity.User;
-import com.ambiguous.fixpoint.repository.ChatMessageRepository;
-import com.ambiguous.fixpoint.repository.UserRepository;
+import com.ambiguous.fixpoint.dto.ChatReadReceipt;
+import com.ambiguous.fixpoint.security.UserPrincipal;
+import com.ambiguous.fixpoint.service.ChatReadReceipts;
+import com.ambiguous.fixpoint.service.ChatService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.security.Principal;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatHistoryController {
 
 	@Autowired
-	private ChatMessageRepository chatMessageRepository;
+	private ChatService chatService;
 
 	@Autowired
-	private UserRepository userRepository;
+	private ChatReadReceipts chatReadReceipts;
 
+	/**
+	 * Messages exchanged with another user, newest page first (each page oldest message
+	 * first). Omit "before" to open the chat, then pass back nextCursor to load older ones.
+	 */
 	@GetMapping("/history")
-	public List<ChatMessage> getChatHistory(@RequestParam Long userId, Principal principal) {
-		if (principal == null) {
-			System.err.println("[ChatHistoryController] Principal is null. User not authenticated.");
-			throw new RuntimeException("User not authenticated");
+	public ResponseEntity<?> getChatHistory(
+			@RequestParam Long userId,
+			@RequestParam(required = false) String before,
+			@RequestParam(defaultValue = "50") int limit,
+			@AuthenticationPrincipal UserPrincipal currentUser) {
+		if (currentUser == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 		}
-		Optional<User> currentUserOpt = userRepository.findByUsername(principal.getName());
-		Optional<User> otherUserOpt = userRepository.findById(userId);
-		if (currentUserOpt.isEmpty()) {
-			System.err.println("[ChatHistoryController] Current user not found: " + principal.getName());
-			throw new RuntimeException("Current user not found");
+		try {
+			return ResponseEntity.ok(chatService.getHistory(currentUser.getId(), userId, before, limit));
+		} catch (IllegalArgumentException e) {
+			return badCursor(e);
 		}
-		if (otherUserOpt.isEmpty()) {
-			System.err.println("[ChatHistoryController] Other user not found: " + userId);
-			throw new RuntimeException("Other user not found");
+	}
+
+	/**
+	 * The current user's conversations, most recently active first, with the last message
+	 * and the user's unread count for each
+	 */
+	@GetMapping("/conversations")
+	public ResponseEntity<?> getInbox(
+			@RequestParam(required = false) String before,
+			@RequestParam(defaultValue = "30") int limit,
+			@AuthenticationPrincipal UserPrincipal currentUser) {
+		if (currentUser == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		try {
+			return ResponseEntity.ok(chatService.getInbox(currentUser.getId(), before, limit));
+		} catch (IllegalArgumentException e) {
+			return badCursor(e);
+		}
+	}
+
+	/**
+	 * Mark everything received from another user read up to seq; same as /app/chat.read
+	 */
+	@PostMapping("/read")
+	public ResponseEntity<?> markRead(
+			@RequestParam Long userId,
+			@RequestParam long seq,
+			@AuthenticationPrincipal UserPrincipal currentUser) {
+		if (currentUser == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 		}
-		return chatMessageRepository.findConversationBetweenUsers(currentUserOpt.get(), otherUserOpt.get());
+		ChatReadReceipt receipt = chatReadReceipts.markRead(currentUser.getId(), userId, seq);
+		return receipt != null ? ResponseEntity.ok(receipt) : ResponseEntity.noContent().build();
+	}
+
+	/**
+	 * Unread chat messages across all conversations, for the badge
+	 */
+	@GetMapping("/unread/count")
+	public ResponseEntity<Map<String, Long>> getUnreadCount(@AuthenticationPrincipal UserPrincipal currentUser) {
+		Map<String, Long> response = new HashMap<>();
+		response.put("count", currentUser != null ? chatService.getUnreadTotal(currentUser.getId()) : 0L);
+		return ResponseEntity.ok(response);
+	}
+
+	private ResponseEntity<Map<String, String>> badCursor(IllegalArgumentException e) {
+		Map<String, String> errorResponse = new HashMap<>();
+		errorResponse.put("error", e.getMessage());
+		return ResponseEntity.badRequest().body(errorResponse);
 	}
 }
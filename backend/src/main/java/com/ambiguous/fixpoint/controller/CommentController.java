@@ -2,17 +2,17 @@ package com.ambiguous.fixpoint.controller;
 
 import com.ambiguous.fixpoint.dto.CommentRequest;
 import com.ambiguous.fixpoint.dto.CommentResponse;
+import com.ambiguous.fixpoint.dto.CommentSummaryResponse;
 import com.ambiguous.fixpoint.dto.CommentReactionRequest;
 import com.ambiguous.fixpoint.entity.Comment;
-import com.ambiguous.fixpoint.entity.CommentReaction;
 import com.ambiguous.fixpoint.entity.Report;
 import com.ambiguous.fixpoint.entity.User;
 import com.ambiguous.fixpoint.repository.CommentRepository;
-import com.ambiguous.fixpoint.repository.CommentReactionRepository;
 import com.ambiguous.fixpoint.repository.ReportRepository;
 import com.ambiguous.fixpoint.repository.UserRepository;
 import com.ambiguous.fixpoint.security.UserPrincipal;
-import com.ambiguous.fixpoint.dto.UserSummary;
+import com.ambiguous.fixpoint.service.CommentReactionService;
+import com.ambiguous.fixpoint.service.CommentThreadService;
 import com.ambiguous.fixpoint.service.NotificationService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,9 +21,9 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/reports/{reportId}/comments")
@@ -34,7 +34,7 @@ public class CommentController {
     private CommentRepository commentRepository;
 
     @Autowired
-    private CommentReactionRepository reactionRepository;
+    private CommentReactionService reactionService;
 
     @Autowired
     private ReportRepository reportRepository;
@@ -45,22 +45,61 @@ public class CommentController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private CommentThreadService commentThreadService;
+
+    /**
+     * Full comment tree of the report; replies are nested under their parents. Busy threads
+     * are better read through /page and /summary.
+     */
     @GetMapping
-    @Transactional(readOnly = true)
     public ResponseEntity<List<CommentResponse>> listComments(
             @PathVariable Long reportId,
             @AuthenticationPrincipal UserPrincipal currentUser) {
-        Report report = reportRepository.findByIdWithRelations(reportId)
-                .orElseThrow(() -> new RuntimeException("Report not found"));
-        
-        User user = currentUser != null ? 
-                userRepository.findByIdWithOrganization(currentUser.getId()).orElse(null) : null;
+        if (!reportRepository.existsById(reportId)) {
+            throw new RuntimeException("Report not found");
+        }
         
-        List<Comment> comments = commentRepository.findByReportAndParentCommentIsNullOrderByCreatedAtAscWithRelations(report);
-        List<CommentResponse> response = comments.stream()
-                .map(comment -> toResponse(comment, user))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+        Long userId = currentUser != null ? currentUser.getId() : null;
+        return ResponseEntity.ok(commentThreadService.getThread(reportId, userId));
+    }
+
+    /**
+     * Top-level comments one page at a time, oldest first. Omit "after" for the first page,
+     * then pass back nextCursor. Replies are fetched per comment from /{commentId}/replies/page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> listCommentPage(
+            @PathVariable Long reportId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        if (!reportRepository.existsById(reportId)) {
+            throw new RuntimeException("Report not found");
+        }
+
+        Long userId = currentUser != null ? currentUser.getId() : null;
+        try {
+            return ResponseEntity.ok(commentThreadService.getTopLevelPage(reportId, after, limit, userId));
+        } catch (IllegalArgumentException e) {
+            return badCursor(e);
+        }
+    }
+
+    /**
+     * Newest top-level comments plus the report's total comment count, for the report view
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<CommentSummaryResponse> getCommentSummary(
+            @PathVariable Long reportId,
+            @RequestParam(defaultValue = "3") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        if (!reportRepository.existsById(reportId)) {
+            throw new RuntimeException("Report not found");
+        }
+
+        Long userId = currentUser != null ? currentUser.getId() : null;
+        return ResponseEntity.ok(commentThreadService.getSummary(reportId, limit, userId));
     }
 
     @PostMapping
@@ -81,7 +120,7 @@ public class CommentController {
         // Send notification to report owner and organization admins (if not the commenter)
         notificationService.createCommentNotificationForAll(saved);
         
-        return ResponseEntity.ok(toResponse(saved, user));
+        return ResponseEntity.ok(commentThreadService.toResponse(saved, user.getId()));
     }
 
     @PostMapping("/{commentId}/replies")
@@ -107,41 +146,24 @@ public class CommentController {
             notificationService.createCommentReplyNotification(saved, parentComment.getUser());
         }
         
-        return ResponseEntity.ok(toResponse(saved, user));
+        return ResponseEntity.ok(commentThreadService.toResponse(saved, user.getId()));
     }
 
     @PostMapping("/{commentId}/reactions")
-    @Transactional
     public ResponseEntity<CommentResponse> toggleReaction(
             @PathVariable Long reportId,
             @PathVariable Long commentId,
             @Valid @RequestBody CommentReactionRequest request,
             @AuthenticationPrincipal UserPrincipal currentUser
     ) {
-        User user = userRepository.findByIdWithOrganization(currentUser.getId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Comment comment = commentRepository.findByIdWithRelations(commentId)
-                .orElseThrow(() -> new RuntimeException("Comment not found"));
-
-        // Check if user already reacted
-        CommentReaction existingReaction = reactionRepository.findByUserAndComment(user, comment).orElse(null);
-        
-        if (existingReaction != null) {
-            if (existingReaction.getType() == request.getType()) {
-                // Remove reaction if same type
-                reactionRepository.delete(existingReaction);
-            } else {
-                // Update reaction type
-                existingReaction.setType(request.getType());
-                reactionRepository.save(existingReaction);
-            }
-        } else {
-            // Add new reaction
-            CommentReaction reaction = new CommentReaction(request.getType(), user, comment);
-            reactionRepository.save(reaction);
+        if (!commentRepository.existsById(commentId)) {
+            throw new RuntimeException("Comment not found");
         }
 
-        return ResponseEntity.ok(toResponse(comment, user));
+        // Add, switch or remove the user's reaction; counters are updated atomically alongside
+        reactionService.toggleReaction(commentId, currentUser.getId(), request.getType());
+
+        return ResponseEntity.ok(commentThreadService.getComment(commentId, currentUser.getId()));
     }
 
     @GetMapping("/{commentId}/replies")
@@ -153,57 +175,36 @@ public class CommentController {
         Comment parentComment = commentRepository.findByIdWithRelations(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
         
-        User user = currentUser != null ? 
-                userRepository.findByIdWithOrganization(currentUser.getId()).orElse(null) : null;
-        
         List<Comment> replies = commentRepository.findByParentCommentOrderByCreatedAtAscWithRelations(parentComment);
-        List<CommentResponse> response = replies.stream()
-                .map(reply -> toResponse(reply, user))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+        Long userId = currentUser != null ? currentUser.getId() : null;
+        return ResponseEntity.ok(commentThreadService.toResponsesWithReplyCounts(replies, userId));
     }
 
-    private CommentResponse toResponse(Comment comment, User currentUser) {
-        CommentResponse cr = new CommentResponse();
-        cr.setId(comment.getId());
-        cr.setContent(comment.getContent());
-        cr.setCreatedAt(comment.getCreatedAt());
-        
-        User user = comment.getUser();
-        UserSummary us = new UserSummary();
-        us.setId(user.getId());
-        us.setUsername(user.getUsername());
-        us.setEmail(user.getEmail());
-        us.setFullName(user.getFullName());
-        us.setRole(user.getRole());
-        us.setIsVolunteer(user.getIsVolunteer());
-        cr.setUser(us);
-
-        // Set reaction counts
-        Map<CommentReaction.ReactionType, Long> reactionCounts = reactionRepository.findByComment(comment)
-                .stream()
-                .collect(Collectors.groupingBy(
-                        CommentReaction::getType,
-                        Collectors.counting()
-                ));
-        // Ensure reactionCounts is never null
-        if (reactionCounts == null) {
-            reactionCounts = new java.util.HashMap<>();
+    /**
+     * Direct replies to a comment one page at a time, oldest first
+     */
+    @GetMapping("/{commentId}/replies/page")
+    public ResponseEntity<?> getReplyPage(
+            @PathVariable Long reportId,
+            @PathVariable Long commentId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        if (!commentRepository.existsById(commentId)) {
+            throw new RuntimeException("Comment not found");
         }
-        cr.setReactionCounts(reactionCounts);
 
-        // Set user's reaction if logged in
-        if (currentUser != null) {
-            reactionRepository.findByUserAndComment(currentUser, comment)
-                    .ifPresent(reaction -> cr.setUserReaction(reaction.getType()));
+        Long userId = currentUser != null ? currentUser.getId() : null;
+        try {
+            return ResponseEntity.ok(commentThreadService.getReplyPage(reportId, commentId, after, limit, userId));
+        } catch (IllegalArgumentException e) {
+            return badCursor(e);
         }
+    }
 
-        // Set reply count
-        Long replyCount = commentRepository.countByParentComment(comment);
-        cr.setReplyCount(replyCount);
-
-        return cr;
+    private ResponseEntity<Map<String, String>> badCursor(IllegalArgumentException e) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", e.getMessage());
+        return ResponseEntity.badRequest().body(errorResponse);
     }
 }
-
-
@@ -1,19 +1,23 @@
 package com.ambiguous.fixpoint.controller;
 
+import com.ambiguous.fixpoint.dto.NotificationChangesResponse;
 import com.ambiguous.fixpoint.dto.NotificationResponse;
 import com.ambiguous.fixpoint.entity.Notification;
 import com.ambiguous.fixpoint.entity.User;
 import com.ambiguous.fixpoint.repository.UserRepository;
 import com.ambiguous.fixpoint.security.UserPrincipal;
 import com.ambiguous.fixpoint.service.NotificationService;
+import com.ambiguous.fixpoint.service.NotificationStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +32,9 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -89,10 +96,7 @@ public class NotificationController {
             return ResponseEntity.ok(response);
         }
 
-        User user = userRepository.findByIdWithOrganization(currentUser.getId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        long count = notificationService.getUnreadNotificationCount(user);
+        long count = notificationService.getUnreadNotificationCount(currentUser.getId());
         
         Map<String, Long> response = new HashMap<>();
         response.put("count", count);
@@ -108,7 +112,11 @@ public class NotificationController {
             @PathVariable Long id,
             @AuthenticationPrincipal UserPrincipal currentUser) {
 
-        notificationService.markAsRead(id);
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        notificationService.markAsRead(id, currentUser.getId());
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Notification marked as read");
@@ -138,6 +146,56 @@ public class NotificationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Notifications created or changed since a cursor (delta sync for reconnecting clients).
+     * Omit "since" for the first call, then pass back nextCursor.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "100") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            NotificationChangesResponse changes = notificationService.getChangesSince(currentUser.getId(), since, limit);
+            return ResponseEntity.ok(changes);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Server-Sent Events stream of notification changes, for clients that cannot keep a
+     * WebSocket open. Event ids are change-feed cursors; EventSource sends the last one back
+     * in Last-Event-ID on reconnect and the missed changes are replayed.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamNotifications(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            SseEmitter emitter = notificationStreamService.subscribe(currentUser.getId(), lastEventId);
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no")
+                    .body(emitter);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+        }
+    }
+
     /**
      * Get recent notifications (last 7 days)
      */
@@ -156,6 +214,47 @@ public class NotificationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get notification delivery preferences
+     */
+    @GetMapping("/preferences")
+    public ResponseEntity<Map<String, Object>> getPreferences(
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        User user = userRepository.findById(currentUser.getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("digest", Boolean.TRUE.equals(user.getNotificationDigest()));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Update notification delivery preferences ({"digest": true} holds pushes for a periodic digest)
+     */
+    @PutMapping("/preferences")
+    public ResponseEntity<Map<String, Object>> updatePreferences(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestBody Map<String, Object> request) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        boolean digest = Boolean.TRUE.equals(request.get("digest"));
+        notificationService.setDigestMode(currentUser.getId(), digest);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("digest", digest);
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Clear all notifications for the current user (for testing)
      */
@@ -1,5 +1,6 @@
 package com.ambiguous.fixpoint.controller;
 
+import com.ambiguous.fixpoint.dto.ChatbotHistoryEntry;
 import com.ambiguous.fixpoint.dto.ReportSummary;
 import com.ambiguous.fixpoint.dto.LoginRequest;
 import com.ambiguous.fixpoint.dto.JwtAuthenticationResponse;
@@ -9,19 +10,24 @@ import com.ambiguous.fixpoint.repository.UserRepository;
 import com.ambiguous.fixpoint.service.ReportService;
 import com.ambiguous.fixpoint.service.AuthService;
 import com.ambiguous.fixpoint.service.ChatbotService;
+import com.ambiguous.fixpoint.service.ChatbotStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/public")
@@ -43,6 +49,9 @@ public class PublicController {
     @Autowired
     private ChatbotService chatbotService;
 
+    @Autowired
+    private ChatbotStreamService chatbotStreamService;
+
     @GetMapping("/reports")
     public ResponseEntity<Page<ReportSummary>> getPublicReports(
             @RequestParam(defaultValue = "0") int page,
@@ -50,7 +59,8 @@ public class PublicController {
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String category) {
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean collapseDuplicates) {
 
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
@@ -58,11 +68,11 @@ public class PublicController {
 
         Page<ReportSummary> reports;
         if (status != null) {
-            reports = reportService.getReportsByStatus(Report.Status.valueOf(status.toUpperCase()), pageable, null);
+            reports = reportService.getReportsByStatus(Report.Status.valueOf(status.toUpperCase()), pageable, null, collapseDuplicates);
         } else if (category != null) {
-            reports = reportService.getReportsByCategory(Report.Category.valueOf(category.toUpperCase()), pageable, null);
+            reports = reportService.getReportsByCategory(Report.Category.valueOf(category.toUpperCase()), pageable, null, collapseDuplicates);
         } else {
-            reports = reportService.getAllReports(pageable, null);
+            reports = reportService.getAllReports(pageable, null, collapseDuplicates);
         }
 
         return ResponseEntity.ok(reports);
@@ -193,12 +203,13 @@ public class PublicController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            // Generate unique session ID if not provided
-            if (sessionId == null || sessionId.trim().isEmpty()) {
+            // Generate unique session ID if not provided; its turns are kept only once the client sends it back
+            boolean minted = sessionId == null || sessionId.trim().isEmpty();
+            if (minted) {
                 sessionId = "session_" + UUID.randomUUID().toString();
             }
             
-            String response = chatbotService.generateResponse(message, context, sessionId);
+            String response = chatbotService.generateResponse(message, context, sessionId, !minted);
             
             Map<String, Object> result = new HashMap<>();
             result.put("response", response);
@@ -216,16 +227,54 @@ public class PublicController {
         }
     }
 
+    /**
+     * Same request as /chatbot/chat, answered as server-sent events while the AI generates it:
+     * "session", then "token" events carrying text, then "done"
+     */
+    @PostMapping(value = "/chatbot/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamChatWithBot(@RequestBody Map<String, String> request) {
+        String message = request.get("message");
+        String context = request.get("context");
+        String sessionId = request.get("sessionId");
+        
+        if (message == null || message.trim().isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Message cannot be empty");
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+        
+        boolean minted = sessionId == null || sessionId.trim().isEmpty();
+        if (minted) {
+            sessionId = "session_" + UUID.randomUUID().toString();
+        }
+        
+        try {
+            SseEmitter emitter = chatbotStreamService.stream(message, context, sessionId, !minted);
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no")
+                    .body(emitter);
+        } catch (RejectedExecutionException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "The assistant is busy right now. Please try again in a moment.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+    }
+
+    /**
+     * A session's chatbot history, newest first. mode=summary returns previews only; the full
+     * text of an exchange is at /chatbot/history/{sessionId}/{conversationId}.
+     */
     @GetMapping("/chatbot/history/{sessionId}")
-    public ResponseEntity<?> getChatHistory(@PathVariable String sessionId) {
+    public ResponseEntity<?> getChatHistory(@PathVariable String sessionId,
+                                            @RequestParam(required = false) String before,
+                                            @RequestParam(defaultValue = "20") int limit,
+                                            @RequestParam(defaultValue = "full") String mode) {
         try {
-            List<Map<String, Object>> conversations = chatbotService.getConversationHistory(sessionId);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("conversations", conversations);
-            result.put("sessionId", sessionId);
-            
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(chatbotService.getHistoryPage(sessionId, before, limit, "summary".equals(mode)));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             System.err.println("Error fetching chat history: " + e.getMessage());
             
@@ -237,6 +286,15 @@ public class PublicController {
         }
     }
 
+    @GetMapping("/chatbot/history/{sessionId}/{conversationId}")
+    public ResponseEntity<?> getChatHistoryEntry(@PathVariable String sessionId, @PathVariable Long conversationId) {
+        ChatbotHistoryEntry entry = chatbotService.getConversation(sessionId, conversationId);
+        if (entry == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(entry);
+    }
+
     @GetMapping("/chatbot/status")
     public ResponseEntity<?> getChatbotStatus() {
         try {
@@ -71,6 +71,7 @@ public class ReportController {
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean collapseDuplicates,
             @AuthenticationPrincipal UserPrincipal currentUser) {
 
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
@@ -81,11 +82,11 @@ public class ReportController {
 
         Page<ReportSummary> reports;
         if (status != null) {
-            reports = reportService.getReportsByStatus(Report.Status.valueOf(status.toUpperCase()), pageable, user);
+            reports = reportService.getReportsByStatus(Report.Status.valueOf(status.toUpperCase()), pageable, user, collapseDuplicates);
         } else if (category != null) {
-            reports = reportService.getReportsByCategory(Report.Category.valueOf(category.toUpperCase()), pageable, user);
+            reports = reportService.getReportsByCategory(Report.Category.valueOf(category.toUpperCase()), pageable, user, collapseDuplicates);
         } else {
-            reports = reportService.getAllReports(pageable, user);
+            reports = reportService.getAllReports(pageable, user, collapseDuplicates);
         }
 
         return ResponseEntity.ok(reports);
@@ -5,6 +5,7 @@ import com.ambiguous.fixpoint.entity.Organization;
 import com.ambiguous.fixpoint.repository.UserRepository;
 import com.ambiguous.fixpoint.repository.OrganizationRepository;
 import com.ambiguous.fixpoint.security.UserPrincipal;
+import com.ambiguous.fixpoint.service.NotificationRecipientDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -27,6 +28,9 @@ public class StaffController {
     @Autowired
     private OrganizationRepository organizationRepository;
 
+    @Autowired
+    private NotificationRecipientDirectory recipientDirectory;
+
     /**
      * Get all staff members for the current user's organization
      */
@@ -181,6 +185,7 @@ public class StaffController {
             if (isActive != null) {
                 staff.setIsActive(isActive);
                 userRepository.save(staff);
+                recipientDirectory.invalidateOrganization(staff.getOrganization().getId());
             }
 
             return ResponseEntity.ok(Map.of("message", "Staff status updated successfully"));
@@ -0,0 +1,46 @@
+package com.ambiguous.fixpoint.dto;
+
+/**
+ * Outcome of one sent message, pushed to the sender on /queue/chat-acks (in batches).
+ * SAVED carries the stored message id; REJECTED means the message was never delivered;
+ * FAILED means it was delivered but could not be stored and should be sent again.
+ */
+public class ChatAckMessage {
+    public enum Status { SAVED, REJECTED, FAILED }
+
+    private String clientMessageId;
+    private Long conversationId;
+    private Long seq;
+    private Long messageId;
+    private Status status;
+    private String error;
+
+    public ChatAckMessage() {}
+
+    public ChatAckMessage(String clientMessageId, Long conversationId, Long seq, Long messageId, Status status, String error) {
+        this.clientMessageId = clientMessageId;
+        this.conversationId = conversationId;
+        this.seq = seq;
+        this.messageId = messageId;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
+    public Long getMessageId() { return messageId; }
+    public void setMessageId(Long messageId) { this.messageId = messageId; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,30 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.util.List;
+
+/**
+ * One page of a chat, oldest message first. Pages run backwards in time: pass nextCursor as
+ * "before" to get the messages preceding this page; hasMore is false once the start is reached.
+ */
+public class ChatHistoryResponse {
+    private List<ChatMessageResponse> messages;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public ChatHistoryResponse() {}
+
+    public ChatHistoryResponse(List<ChatMessageResponse> messages, String nextCursor, boolean hasMore) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<ChatMessageResponse> getMessages() { return messages; }
+    public void setMessages(List<ChatMessageResponse> messages) { this.messages = messages; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,73 @@
+package com.ambiguous.fixpoint.dto;
+
+import com.ambiguous.fixpoint.entity.ChatMessage;
+import com.ambiguous.fixpoint.entity.User;
+
+import java.time.LocalDateTime;
+
+public class ChatMessageResponse {
+    private Long id;
+    private Long conversationId;
+    private Long seq;
+    private String clientMessageId;
+    private String content;
+    private ChatMessage.MessageType type;
+    private UserSummary sender;
+    private UserSummary receiver;
+    private Long reportId;
+    private Boolean isRead;
+    private LocalDateTime createdAt;
+
+    public ChatMessageResponse() {}
+
+    public ChatMessageResponse(ChatMessage message) {
+        this.id = message.getId();
+        this.conversationId = message.getConversation() != null ? message.getConversation().getId() : null;
+        this.seq = message.getSeq();
+        this.content = message.getContent();
+        this.type = message.getType();
+        this.sender = participant(message.getSender());
+        this.receiver = participant(message.getReceiver());
+        this.reportId = message.getReport() != null ? message.getReport().getId() : null;
+        this.isRead = message.getIsRead();
+        this.createdAt = message.getCreatedAt();
+    }
+
+    // Name only; chat partners do not see each other's email
+    public static UserSummary participant(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), null, user.getFullName(), user.getRole());
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public ChatMessage.MessageType getType() { return type; }
+    public void setType(ChatMessage.MessageType type) { this.type = type; }
+
+    public UserSummary getSender() { return sender; }
+    public void setSender(UserSummary sender) { this.sender = sender; }
+
+    public UserSummary getReceiver() { return receiver; }
+    public void setReceiver(UserSummary receiver) { this.receiver = receiver; }
+
+    public Long getReportId() { return reportId; }
+    public void setReportId(Long reportId) { this.reportId = reportId; }
+
+    public Boolean getIsRead() { return isRead; }
+    public void setIsRead(Boolean isRead) { this.isRead = isRead; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
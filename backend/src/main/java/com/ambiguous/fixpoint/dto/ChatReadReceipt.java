@@ -0,0 +1,35 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The reader has read everything it received in the conversation up to readUpToSeq. Pushed to
+ * the other participant on /queue/chat-receipts, several receipts per frame.
+ */
+public class ChatReadReceipt {
+    private Long conversationId;
+    private Long readerId;
+    private long readUpToSeq;
+    private LocalDateTime readAt;
+
+    public ChatReadReceipt() {}
+
+    public ChatReadReceipt(Long conversationId, Long readerId, long readUpToSeq, LocalDateTime readAt) {
+        this.conversationId = conversationId;
+        this.readerId = readerId;
+        this.readUpToSeq = readUpToSeq;
+        this.readAt = readAt;
+    }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Long getReaderId() { return readerId; }
+    public void setReaderId(Long readerId) { this.readerId = readerId; }
+
+    public long getReadUpToSeq() { return readUpToSeq; }
+    public void setReadUpToSeq(long readUpToSeq) { this.readUpToSeq = readUpToSeq; }
+
+    public LocalDateTime getReadAt() { return readAt; }
+    public void setReadAt(LocalDateTime readAt) { this.readAt = readAt; }
+}
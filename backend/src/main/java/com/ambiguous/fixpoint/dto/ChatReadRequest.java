@@ -0,0 +1,15 @@
+package com.ambiguous.fixpoint.dto;
+
+/**
+ * Payload of /app/chat.read: everything received from userId is read up to seq
+ */
+public class ChatReadRequest {
+    private Long userId;
+    private Long seq;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+}
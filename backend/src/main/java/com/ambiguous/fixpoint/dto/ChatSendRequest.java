@@ -0,0 +1,30 @@
+package com.ambiguous.fixpoint.dto;
+
+import com.ambiguous.fixpoint.entity.ChatMessage;
+
+/**
+ * Payload of /app/chat.send. clientMessageId is echoed back in the delivered message and its
+ * ack so the sender can match both to what it rendered optimistically.
+ */
+public class ChatSendRequest {
+    private Long receiverId;
+    private String content;
+    private ChatMessage.MessageType type = ChatMessage.MessageType.TEXT;
+    private Long reportId;
+    private String clientMessageId;
+
+    public Long getReceiverId() { return receiverId; }
+    public void setReceiverId(Long receiverId) { this.receiverId = receiverId; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public ChatMessage.MessageType getType() { return type; }
+    public void setType(ChatMessage.MessageType type) { this.type = type; }
+
+    public Long getReportId() { return reportId; }
+    public void setReportId(Long reportId) { this.reportId = reportId; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+}
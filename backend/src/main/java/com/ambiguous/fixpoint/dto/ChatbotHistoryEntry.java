@@ -0,0 +1,63 @@
+package com.ambiguous.fixpoint.dto;
+
+import com.ambiguous.fixpoint.entity.ChatbotConversation;
+
+import java.time.LocalDateTime;
+
+/**
+ * One question and answer from the chatbot history. In summary pages both texts are previews
+ * cut to the configured length and truncated says whether either was cut; the full exchange
+ * is one request away at /chatbot/history/{sessionId}/{id}.
+ */
+public class ChatbotHistoryEntry {
+    private Long id;
+    private String userMessage;
+    private String botResponse;
+    private String timestamp;
+    private String sessionId;
+    private boolean truncated;
+
+    public ChatbotHistoryEntry() {}
+
+    public ChatbotHistoryEntry(ChatbotConversation conversation) {
+        this.id = conversation.getId();
+        this.userMessage = conversation.getUserMessage();
+        this.botResponse = conversation.getBotResponse();
+        this.timestamp = conversation.getCreatedAt().toString();
+        this.sessionId = conversation.getUsername(); // Username field holds the session id
+        this.truncated = false;
+    }
+
+    // Summary projection; lengths are those of the stored texts, not of the previews
+    public ChatbotHistoryEntry(Long id, String username, String userMessagePreview, String botResponsePreview,
+                               LocalDateTime createdAt, Integer userMessageLength, Integer botResponseLength) {
+        this.id = id;
+        this.userMessage = userMessagePreview;
+        this.botResponse = botResponsePreview;
+        this.timestamp = createdAt.toString();
+        this.sessionId = username;
+        this.truncated = isLonger(userMessageLength, userMessagePreview) || isLonger(botResponseLength, botResponsePreview);
+    }
+
+    private static boolean isLonger(Integer length, String preview) {
+        return length != null && preview != null && length > preview.length();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserMessage() { return userMessage; }
+    public void setUserMessage(String userMessage) { this.userMessage = userMessage; }
+
+    public String getBotResponse() { return botResponse; }
+    public void setBotResponse(String botResponse) { this.botResponse = botResponse; }
+
+    public String getTimestamp() { return timestamp; }
+    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+}
@@ -0,0 +1,36 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.util.List;
+
+/**
+ * One page of a session's chatbot history, newest exchange first. Pass nextCursor as "before"
+ * for older ones; hasMore is false once the first exchange is reached.
+ */
+public class ChatbotHistoryResponse {
+    private List<ChatbotHistoryEntry> conversations;
+    private String sessionId;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public ChatbotHistoryResponse() {}
+
+    public ChatbotHistoryResponse(List<ChatbotHistoryEntry> conversations, String sessionId,
+                                  String nextCursor, boolean hasMore) {
+        this.conversations = conversations;
+        this.sessionId = sessionId;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<ChatbotHistoryEntry> getConversations() { return conversations; }
+    public void setConversations(List<ChatbotHistoryEntry> conversations) { this.conversations = conversations; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,30 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.util.List;
+
+/**
+ * One page of comments or replies, oldest first. Pass nextCursor as "after" to get the next
+ * page; hasMore is false on the last one. Each comment carries its replyCount but no replies.
+ */
+public class CommentPageResponse {
+    private List<CommentResponse> comments;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public CommentPageResponse() {}
+
+    public CommentPageResponse(List<CommentResponse> comments, String nextCursor, boolean hasMore) {
+        this.comments = comments;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<CommentResponse> getComments() { return comments; }
+    public void setComments(List<CommentResponse> comments) { this.comments = comments; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,25 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.util.List;
+
+/**
+ * Preview of a report's discussion: the newest top-level comments (oldest of them first) and
+ * the number of comments on the report, replies included.
+ */
+public class CommentSummaryResponse {
+    private List<CommentResponse> comments;
+    private long totalCount;
+
+    public CommentSummaryResponse() {}
+
+    public CommentSummaryResponse(List<CommentResponse> comments, long totalCount) {
+        this.comments = comments;
+        this.totalCount = totalCount;
+    }
+
+    public List<CommentResponse> getComments() { return comments; }
+    public void setComments(List<CommentResponse> comments) { this.comments = comments; }
+
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+}
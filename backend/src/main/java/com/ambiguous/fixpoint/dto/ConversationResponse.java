@@ -0,0 +1,51 @@
+package com.ambiguous.fixpoint.dto;
+
+import com.ambiguous.fixpoint.entity.Conversation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Inbox entry as seen by one participant
+ */
+public class ConversationResponse {
+    private Long id;
+    private UserSummary otherUser;
+    private String lastMessageContent;
+    private Long lastSenderId;
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+    private long otherReadSeq;
+
+    public ConversationResponse() {}
+
+    public ConversationResponse(Conversation conversation, Long viewerId) {
+        this.id = conversation.getId();
+        this.otherUser = ChatMessageResponse.participant(conversation.getOtherUser(viewerId));
+        this.lastMessageContent = conversation.getLastMessageContent();
+        this.lastSenderId = conversation.getLastSenderId();
+        this.lastMessageAt = conversation.getLastMessageAt();
+        this.unreadCount = conversation.getUnreadCount(viewerId);
+        this.otherReadSeq = conversation.getReadSeq(this.otherUser.getId());
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public UserSummary getOtherUser() { return otherUser; }
+    public void setOtherUser(UserSummary otherUser) { this.otherUser = otherUser; }
+
+    public String getLastMessageContent() { return lastMessageContent; }
+    public void setLastMessageContent(String lastMessageContent) { this.lastMessageContent = lastMessageContent; }
+
+    public Long getLastSenderId() { return lastSenderId; }
+    public void setLastSenderId(Long lastSenderId) { this.lastSenderId = lastSenderId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+
+    public long getOtherReadSeq() { return otherReadSeq; }
+    public void setOtherReadSeq(long otherReadSeq) { this.otherReadSeq = otherReadSeq; }
+}
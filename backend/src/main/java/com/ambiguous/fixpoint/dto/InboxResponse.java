@@ -0,0 +1,30 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.util.List;
+
+/**
+ * One page of a user's conversations, most recently active first. Pass nextCursor as "before"
+ * for the next page.
+ */
+public class InboxResponse {
+    private List<ConversationResponse> conversations;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public InboxResponse() {}
+
+    public InboxResponse(List<ConversationResponse> conversations, String nextCursor, boolean hasMore) {
+        this.conversations = conversations;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<ConversationResponse> getConversations() { return conversations; }
+    public void setConversations(List<ConversationResponse> conversations) { this.conversations = conversations; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
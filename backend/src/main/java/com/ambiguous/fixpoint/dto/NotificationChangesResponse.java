@@ -0,0 +1,30 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.util.List;
+
+/**
+ * One batch of /api/notifications/changes. Pass nextCursor as "since" on the next call;
+ * hasMore means another batch is already waiting.
+ */
+public class NotificationChangesResponse {
+    private List<NotificationResponse> changes;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public NotificationChangesResponse() {}
+
+    public NotificationChangesResponse(List<NotificationResponse> changes, String nextCursor, boolean hasMore) {
+        this.changes = changes;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<NotificationResponse> getChanges() { return changes; }
+    public void setChanges(List<NotificationResponse> changes) { this.changes = changes; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,36 @@
+package com.ambiguous.fixpoint.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Periodic summary pushed on /queue/notifications to users in digest mode
+ */
+public class NotificationDigestMessage {
+    public static final String TYPE = "DIGEST";
+
+    private String type = TYPE;
+    private long count;
+    private LocalDateTime since;
+    private List<String> titles;
+
+    public NotificationDigestMessage() {}
+
+    public NotificationDigestMessage(long count, LocalDateTime since, List<String> titles) {
+        this.count = count;
+        this.since = since;
+        this.titles = titles;
+    }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public LocalDateTime getSince() { return since; }
+    public void setSince(LocalDateTime since) { this.since = since; }
+
+    public List<String> getTitles() { return titles; }
+    public void setTitles(List<String> titles) { this.titles = titles; }
+}
@@ -11,6 +11,7 @@ public class NotificationResponse {
     private Boolean isRead;
     private LocalDateTime createdAt;
     private LocalDateTime readAt;
+    private LocalDateTime updatedAt;
     private Integer progressPercentage;
     private String actionUrl;
     
@@ -31,6 +32,7 @@ public class NotificationResponse {
         this.isRead = notification.getIsRead();
         this.createdAt = notification.getCreatedAt();
         this.readAt = notification.getReadAt();
+        this.updatedAt = notification.getUpdatedAt();
         this.progressPercentage = notification.getProgressPercentage();
         this.actionUrl = notification.getActionUrl();
         
@@ -66,6 +68,9 @@ public class NotificationResponse {
     public LocalDateTime getReadAt() { return readAt; }
     public void setReadAt(LocalDateTime readAt) { this.readAt = readAt; }
 
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
     public Integer getProgressPercentage() { return progressPercentage; }
     public void setProgressPercentage(Integer progressPercentage) { this.progressPercentage = progressPercentage; }
 
@@ -25,6 +25,8 @@ public class ReportSummary {
     private LocalDateTime updatedAt;
     private Integer commentCount;
     private Boolean hasUserVoted;
+    private Long duplicateClusterId;
+    private Integer duplicateClusterSize;
     
     // Progress tracking fields
     private Integer progressPercentage;
@@ -96,6 +98,12 @@ public class ReportSummary {
     public Boolean getHasUserVoted() { return hasUserVoted; }
     public void setHasUserVoted(Boolean hasUserVoted) { this.hasUserVoted = hasUserVoted; }
 
+    public Long getDuplicateClusterId() { return duplicateClusterId; }
+    public void setDuplicateClusterId(Long duplicateClusterId) { this.duplicateClusterId = duplicateClusterId; }
+
+    public Integer getDuplicateClusterSize() { return duplicateClusterSize; }
+    public void setDuplicateClusterSize(Integer duplicateClusterSize) { this.duplicateClusterSize = duplicateClusterSize; }
+
     // Progress tracking getters and setters
     public Integer getProgressPercentage() { return progressPercentage; }
     public void setProgressPercentage(Integer progressPercentage) { this.progressPercentage = progressPercentage; }
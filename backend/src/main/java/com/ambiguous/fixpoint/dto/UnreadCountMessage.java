@@ -0,0 +1,24 @@
+package com.ambiguous.fixpoint.dto;
+
+/**
+ * Pushed on /queue/notifications whenever a user's unread count changes.
+ * The type field lets clients tell it apart from NotificationResponse messages.
+ */
+public class UnreadCountMessage {
+    public static final String TYPE = "UNREAD_COUNT";
+
+    private String type = TYPE;
+    private long count;
+
+    public UnreadCountMessage() {}
+
+    public UnreadCountMessage(long count) {
+        this.count = count;
+    }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
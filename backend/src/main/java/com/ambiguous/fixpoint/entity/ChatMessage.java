@@ -1,5 +1,6 @@
 package com.ambiguous.fixpoint.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -9,10 +10,16 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"conversation_id", "seq"}),
+       indexes = {
+           @Index(name = "idx_chat_messages_conversation_created", columnList = "conversation_id, created_at")
+       })
 public class ChatMessage {
+    // Pooled sequence rather than IDENTITY so the write-behind batches become JDBC batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -35,6 +42,15 @@ public class ChatMessage {
     @JoinColumn(name = "report_id")
     private Report report;
 
+    // Null only for messages written before conversations existed, until startup backfills them
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "conversation_id")
+    @JsonIgnore
+    private Conversation conversation;
+
+    // Position within the conversation, assigned when the message is accepted
+    private Long seq;
+
     private Boolean isRead = false;
 
     @CreationTimestamp
@@ -72,6 +88,12 @@ public class ChatMessage {
     public Report getReport() { return report; }
     public void setReport(Report report) { this.report = report; }
 
+    public Conversation getConversation() { return conversation; }
+    public void setConversation(Conversation conversation) { this.conversation = conversation; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
     public Boolean getIsRead() { return isRead; }
     public void setIsRead(Boolean isRead) { this.isRead = isRead; }
 
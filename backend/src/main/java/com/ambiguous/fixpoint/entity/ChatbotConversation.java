@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chatbot_conversations")
+@Table(name = "chatbot_conversations", indexes = {
+    @Index(name = "idx_chatbot_conversations_created_at", columnList = "created_at"),
+    @Index(name = "idx_chatbot_conversations_username_created", columnList = "username, created_at")
+})
 public class ChatbotConversation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -12,7 +13,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_report_parent_created", columnList = "report_id, parent_comment_id, created_at")
+})
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -47,6 +50,31 @@ public class Comment {
     @JsonIgnore
     private Comment parentComment;
 
+    // Per-type reaction counters, kept in step with comment_reactions by CommentReactionService
+    @Column(name = "like_count", nullable = false)
+    @ColumnDefault("0")
+    private int likeCount = 0;
+
+    @Column(name = "love_count", nullable = false)
+    @ColumnDefault("0")
+    private int loveCount = 0;
+
+    @Column(name = "haha_count", nullable = false)
+    @ColumnDefault("0")
+    private int hahaCount = 0;
+
+    @Column(name = "wow_count", nullable = false)
+    @ColumnDefault("0")
+    private int wowCount = 0;
+
+    @Column(name = "sad_count", nullable = false)
+    @ColumnDefault("0")
+    private int sadCount = 0;
+
+    @Column(name = "angry_count", nullable = false)
+    @ColumnDefault("0")
+    private int angryCount = 0;
+
     // Constructors
     public Comment() {}
 
@@ -87,4 +115,34 @@ public class Comment {
 
     public Comment getParentComment() { return parentComment; }
     public void setParentComment(Comment parentComment) { this.parentComment = parentComment; }
+
+    public int getLikeCount() { return likeCount; }
+    public void setLikeCount(int likeCount) { this.likeCount = likeCount; }
+
+    public int getLoveCount() { return loveCount; }
+    public void setLoveCount(int loveCount) { this.loveCount = loveCount; }
+
+    public int getHahaCount() { return hahaCount; }
+    public void setHahaCount(int hahaCount) { this.hahaCount = hahaCount; }
+
+    public int getWowCount() { return wowCount; }
+    public void setWowCount(int wowCount) { this.wowCount = wowCount; }
+
+    public int getSadCount() { return sadCount; }
+    public void setSadCount(int sadCount) { this.sadCount = sadCount; }
+
+    public int getAngryCount() { return angryCount; }
+    public void setAngryCount(int angryCount) { this.angryCount = angryCount; }
+
+    public int getReactionCount(CommentReaction.ReactionType type) {
+        switch (type) {
+            case LIKE: return likeCount;
+            case LOVE: return loveCount;
+            case HAHA: return hahaCount;
+            case WOW: return wowCount;
+            case SAD: return sadCount;
+            case ANGRY: return angryCount;
+            default: return 0;
+        }
+    }
 }
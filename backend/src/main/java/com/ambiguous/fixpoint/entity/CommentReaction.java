@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "comment_reactions", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "comment_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "comment_id"}),
+       indexes = @Index(name = "idx_comment_reactions_comment_type", columnList = "comment_id, type"))
 public class CommentReaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,133 @@
+package com.ambiguous.fixpoint.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Summary row of the direct chat between two users, kept up to date on every message write so
+ * an inbox never has to read chat_messages. The pair is stored ordered by user id (low, high)
+ * so each pair has exactly one row.
+ */
+@Entity
+@Table(name = "conversations",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_low_id", "user_high_id"}),
+       indexes = {
+           @Index(name = "idx_conversations_low_last", columnList = "user_low_id, last_message_at"),
+           @Index(name = "idx_conversations_high_last", columnList = "user_high_id, last_message_at")
+       })
+public class Conversation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_low_id", nullable = false)
+    private User userLow;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_high_id", nullable = false)
+    private User userHigh;
+
+    private Long lastMessageId;
+
+    @Size(max = 1000)
+    private String lastMessageContent;
+
+    private Long lastSenderId;
+
+    private LocalDateTime lastMessageAt;
+
+    // Highest message sequence number stored for this conversation
+    @Column(name = "last_seq", nullable = false)
+    @ColumnDefault("0")
+    private long lastSeq = 0;
+
+    // Messages each participant has not read yet
+    @Column(name = "unread_low", nullable = false)
+    @ColumnDefault("0")
+    private int unreadLow = 0;
+
+    @Column(name = "unread_high", nullable = false)
+    @ColumnDefault("0")
+    private int unreadHigh = 0;
+
+    // Highest sequence number each participant has read up to
+    @Column(name = "read_seq_low", nullable = false)
+    @ColumnDefault("0")
+    private long readSeqLow = 0;
+
+    @Column(name = "read_seq_high", nullable = false)
+    @ColumnDefault("0")
+    private long readSeqHigh = 0;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public Conversation() {}
+
+    public Conversation(User userLow, User userHigh) {
+        this.userLow = userLow;
+        this.userHigh = userHigh;
+    }
+
+    public boolean isLow(Long userId) {
+        return userLow.getId().equals(userId);
+    }
+
+    public User getOtherUser(Long userId) {
+        return isLow(userId) ? userHigh : userLow;
+    }
+
+    public int getUnreadCount(Long userId) {
+        return isLow(userId) ? unreadLow : unreadHigh;
+    }
+
+    public long getReadSeq(Long userId) {
+        return isLow(userId) ? readSeqLow : readSeqHigh;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUserLow() { return userLow; }
+    public void setUserLow(User userLow) { this.userLow = userLow; }
+
+    public User getUserHigh() { return userHigh; }
+    public void setUserHigh(User userHigh) { this.userHigh = userHigh; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public String getLastMessageContent() { return lastMessageContent; }
+    public void setLastMessageContent(String lastMessageContent) { this.lastMessageContent = lastMessageContent; }
+
+    public Long getLastSenderId() { return lastSenderId; }
+    public void setLastSenderId(Long lastSenderId) { this.lastSenderId = lastSenderId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public long getLastSeq() { return lastSeq; }
+    public void setLastSeq(long lastSeq) { this.lastSeq = lastSeq; }
+
+    public int getUnreadLow() { return unreadLow; }
+    public void setUnreadLow(int unreadLow) { this.unreadLow = unreadLow; }
+
+    public int getUnreadHigh() { return unreadHigh; }
+    public void setUnreadHigh(int unreadHigh) { this.unreadHigh = unreadHigh; }
+
+    public long getReadSeqLow() { return readSeqLow; }
+    public void setReadSeqLow(long readSeqLow) { this.readSeqLow = readSeqLow; }
+
+    public long getReadSeqHigh() { return readSeqHigh; }
+    public void setReadSeqHigh(long readSeqHigh) { this.readSeqHigh = readSeqHigh; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -76,6 +76,13 @@ public class Report {
 
     private Boolean notifyVolunteers = false;
 
+    // Duplicate clustering - the cluster is identified by its oldest report's id
+    @Column(name = "duplicate_cluster_id")
+    private Long duplicateClusterId;
+
+    @Column(name = "duplicate_cluster_size")
+    private Integer duplicateClusterSize;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reporter_id", nullable = false)
     private User reporter;
@@ -165,6 +172,12 @@ public class Report {
     public Boolean getNotifyVolunteers() { return notifyVolunteers; }
     public void setNotifyVolunteers(Boolean notifyVolunteers) { this.notifyVolunteers = notifyVolunteers; }
 
+    public Long getDuplicateClusterId() { return duplicateClusterId; }
+    public void setDuplicateClusterId(Long duplicateClusterId) { this.duplicateClusterId = duplicateClusterId; }
+
+    public Integer getDuplicateClusterSize() { return duplicateClusterSize; }
+    public void setDuplicateClusterSize(Integer duplicateClusterSize) { this.duplicateClusterSize = duplicateClusterSize; }
+
     public User getReporter() { return reporter; }
     public void setReporter(User reporter) { this.reporter = reporter; }
 
@@ -77,6 +77,10 @@ public class User {
     private Boolean emailVerified = false;
     private Boolean isActive = true;
 
+    // Hold real-time notification pushes and deliver them as a periodic digest instead
+    @Column(name = "notification_digest")
+    private Boolean notificationDigest = false;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -163,6 +167,9 @@ public class User {
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
+    public Boolean getNotificationDigest() { return notificationDigest; }
+    public void setNotificationDigest(Boolean notificationDigest) { this.notificationDigest = notificationDigest; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -2,32 +2,41 @@ package com.ambiguous.fixpoint.repository;
 
 import com.ambiguous.fixpoint.entity.ChatMessage;
 import com.ambiguous.fixpoint.entity.Report;
-import com.ambiguous.fixpoint.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     
-    @Query("SELECT m FROM ChatMessage m WHERE (m.sender = :user1 AND m.receiver = :user2) " +
-           "OR (m.sender = :user2 AND m.receiver = :user1) ORDER BY m.createdAt ASC")
-    List<ChatMessage> findConversationBetweenUsers(@Param("user1") User user1, 
-                                                   @Param("user2") User user2);
+    // Newest-first keyset page of a conversation; served by idx_chat_messages_conversation_created
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.sender JOIN FETCH m.receiver " +
+           "WHERE m.conversation.id = :conversationId " +
+           "AND (m.createdAt < :beforeTime OR (m.createdAt = :beforeTime AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findConversationPageBefore(@Param("conversationId") Long conversationId,
+                                                 @Param("beforeTime") LocalDateTime beforeTime,
+                                                 @Param("beforeId") Long beforeId,
+                                                 Pageable pageable);
+    
+    @Query("SELECT COUNT(m) > 0 FROM ChatMessage m WHERE m.conversation.id = :conversationId AND m.seq = :seq")
+    boolean existsBySeq(@Param("conversationId") Long conversationId, @Param("seq") long seq);
     
     @Query("SELECT m FROM ChatMessage m WHERE m.report = :report ORDER BY m.createdAt ASC")
     List<ChatMessage> findByReportOrderByCreatedAtAsc(@Param("report") Report report);
     
-    @Query("SELECT m FROM ChatMessage m WHERE m.receiver = :user AND m.isRead = false")
-    List<ChatMessage> findUnreadMessagesByReceiver(@Param("user") User user);
-    
-    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.receiver = :user AND m.isRead = false")
-    Long countUnreadMessagesByReceiver(@Param("user") User user);
-    
-    @Query("SELECT DISTINCT m.sender FROM ChatMessage m WHERE m.receiver = :user " +
-           "UNION SELECT DISTINCT m.receiver FROM ChatMessage m WHERE m.sender = :user")
-    List<User> findConversationParticipants(@Param("user") User user);
+    // One statement for a whole read receipt; the range is served by the (conversation_id, seq) key
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.isRead = true, m.updatedAt = :readAt WHERE m.conversation.id = :conversationId " +
+           "AND m.receiver.id = :readerId AND m.seq <= :seq AND m.isRead = false")
+    int markReadUpTo(@Param("conversationId") Long conversationId,
+                     @Param("readerId") Long readerId,
+                     @Param("seq") long seq,
+                     @Param("readAt") LocalDateTime readAt);
 }
@@ -1,15 +1,19 @@
 package com.ambiguous.fixpoint.repository;
 
+import com.ambiguous.fixpoint.dto.ChatbotHistoryEntry;
 import com.ambiguous.fixpoint.entity.ChatbotConversation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatbotConversationRepository extends JpaRepository<ChatbotConversation, Long> {
@@ -37,6 +41,30 @@ public interface ChatbotConversationRepository extends JpaRepository<ChatbotConv
     @Query("SELECT c FROM ChatbotConversation c WHERE c.username = :username ORDER BY c.createdAt DESC")
     List<ChatbotConversation> findRecentConversationsByUsername(@Param("username") String username, Pageable pageable);
     
+    // Newest-first keyset page of a user's history; served by idx_chatbot_conversations_username_created
+    @Query("SELECT c FROM ChatbotConversation c WHERE c.username = :username " +
+           "AND (c.createdAt < :beforeTime OR (c.createdAt = :beforeTime AND c.id < :beforeId)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ChatbotConversation> findHistoryPage(@Param("username") String username,
+                                              @Param("beforeTime") LocalDateTime beforeTime,
+                                              @Param("beforeId") Long beforeId,
+                                              Pageable pageable);
+    
+    // Same page with both texts cut to previewLength by the database, so long answers never leave it
+    @Query("SELECT new com.ambiguous.fixpoint.dto.ChatbotHistoryEntry(c.id, c.username, " +
+           "SUBSTRING(c.userMessage, 1, :previewLength), SUBSTRING(c.botResponse, 1, :previewLength), " +
+           "c.createdAt, LENGTH(c.userMessage), LENGTH(c.botResponse)) " +
+           "FROM ChatbotConversation c WHERE c.username = :username " +
+           "AND (c.createdAt < :beforeTime OR (c.createdAt = :beforeTime AND c.id < :beforeId)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ChatbotHistoryEntry> findHistorySummaryPage(@Param("username") String username,
+                                                     @Param("beforeTime") LocalDateTime beforeTime,
+                                                     @Param("beforeId") Long beforeId,
+                                                     @Param("previewLength") int previewLength,
+                                                     Pageable pageable);
+    
+    Optional<ChatbotConversation> findByIdAndUsername(Long id, String username);
+    
     // Find conversations within a date range
     List<ChatbotConversation> findByUserIdAndCreatedAtBetweenOrderByCreatedAtDesc(
             Long userId, LocalDateTime startDate, LocalDateTime endDate);
@@ -49,4 +77,12 @@ public interface ChatbotConversationRepository extends JpaRepository<ChatbotConv
     
     // Delete old conversations (for cleanup)
     void deleteByCreatedAtBefore(LocalDateTime cutoffDate);
+    
+    // Retention: ids of conversations older than the cutoff, one chunk at a time
+    @Query("SELECT c.id FROM ChatbotConversation c WHERE c.createdAt < :cutoff ORDER BY c.id")
+    List<Long> findIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM ChatbotConversation c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
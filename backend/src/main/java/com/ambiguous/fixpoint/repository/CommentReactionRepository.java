@@ -3,11 +3,15 @@ package com.ambiguous.fixpoint.repository;
 import com.ambiguous.fixpoint.entity.CommentReaction;
 import com.ambiguous.fixpoint.entity.Comment;
 import com.ambiguous.fixpoint.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,4 +34,21 @@ public interface CommentReactionRepository extends JpaRepository<CommentReaction
     Long countByUser(@Param("user") User user);
     
     Boolean existsByUserAndComment(User user, Comment comment);
+    
+    // Locks the user's reaction row so concurrent toggles by the same user serialize
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT cr FROM CommentReaction cr WHERE cr.user.id = :userId AND cr.comment.id = :commentId")
+    Optional<CommentReaction> findByUserIdAndCommentIdForUpdate(@Param("userId") Long userId, @Param("commentId") Long commentId);
+    
+    @Modifying
+    @Query("DELETE FROM CommentReaction cr WHERE cr.id = :id")
+    int deleteByIdDirect(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE CommentReaction cr SET cr.type = :type WHERE cr.id = :id")
+    int updateType(@Param("id") Long id, @Param("type") CommentReaction.ReactionType type);
+    
+    // Rows of [commentId, type] for the user's reactions among the given comments
+    @Query("SELECT cr.comment.id, cr.type FROM CommentReaction cr WHERE cr.user.id = :userId AND cr.comment.id IN :commentIds")
+    List<Object[]> findTypesByUserIdAndCommentIds(@Param("userId") Long userId, @Param("commentIds") Collection<Long> commentIds);
 }
@@ -3,11 +3,15 @@ package com.ambiguous.fixpoint.repository;
 import com.ambiguous.fixpoint.entity.Comment;
 import com.ambiguous.fixpoint.entity.Report;
 import com.ambiguous.fixpoint.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +41,49 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     @Query("SELECT c FROM Comment c LEFT JOIN FETCH c.user LEFT JOIN FETCH c.report LEFT JOIN FETCH c.parentComment WHERE c.id = :id")
     Optional<Comment> findByIdWithRelations(@Param("id") Long id);
     
+    // Whole comment tree of a report in one query; parents are linked up in memory
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.report.id = :reportId ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findThreadByReportId(@Param("reportId") Long reportId);
+    
+    // Keyset page of top-level comments after (afterTime, afterId); served by idx_comments_report_parent_created
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.report.id = :reportId AND c.parentComment IS NULL " +
+           "AND (c.createdAt > :afterTime OR (c.createdAt = :afterTime AND c.id > :afterId)) " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findTopLevelPage(@Param("reportId") Long reportId,
+                                   @Param("afterTime") LocalDateTime afterTime,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+    
+    // Keyset page of direct replies; the report id lets it use the same index
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.report.id = :reportId AND c.parentComment.id = :parentId " +
+           "AND (c.createdAt > :afterTime OR (c.createdAt = :afterTime AND c.id > :afterId)) " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findReplyPage(@Param("reportId") Long reportId,
+                                @Param("parentId") Long parentId,
+                                @Param("afterTime") LocalDateTime afterTime,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+    
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.report.id = :reportId AND c.parentComment IS NULL " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findNewestTopLevel(@Param("reportId") Long reportId, Pageable pageable);
+    
+    @Query("SELECT COUNT(c) FROM Comment c WHERE c.report.id = :reportId")
+    long countByReportId(@Param("reportId") Long reportId);
+    
+    // Rows of [parentCommentId, replyCount]
+    @Query("SELECT c.parentComment.id, COUNT(c) FROM Comment c WHERE c.parentComment.id IN :parentIds GROUP BY c.parentComment.id")
+    List<Object[]> countRepliesByParentIds(@Param("parentIds") Collection<Long> parentIds);
+    
+    // Atomic in-place adjustment of the per-type reaction counters
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Comment c SET c.likeCount = c.likeCount + :like, c.loveCount = c.loveCount + :love, " +
+           "c.hahaCount = c.hahaCount + :haha, c.wowCount = c.wowCount + :wow, " +
+           "c.sadCount = c.sadCount + :sad, c.angryCount = c.angryCount + :angry WHERE c.id = :id")
+    int adjustReactionCounts(@Param("id") Long id, @Param("like") int like, @Param("love") int love,
+                             @Param("haha") int haha, @Param("wow") int wow,
+                             @Param("sad") int sad, @Param("angry") int angry);
+    
     @Query("SELECT COUNT(c) FROM Comment c WHERE c.parentComment = :parentComment")
     Long countByParentComment(@Param("parentComment") Comment parentComment);
     
@@ -0,0 +1,88 @@
+package com.ambiguous.fixpoint.repository;
+
+import com.ambiguous.fixpoint.entity.Conversation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+    
+    @Query("SELECT c FROM Conversation c WHERE c.userLow.id = :lowId AND c.userHigh.id = :highId")
+    Optional<Conversation> findByPair(@Param("lowId") Long lowId, @Param("highId") Long highId);
+    
+    // Inbox pages are read from each side of the pair separately so both can use their own
+    // (user, last_message_at) index, then merged; an OR across the two columns could use neither
+    @Query("SELECT c FROM Conversation c JOIN FETCH c.userHigh WHERE c.userLow.id = :userId " +
+           "AND (c.lastMessageAt < :beforeTime OR (c.lastMessageAt = :beforeTime AND c.id < :beforeId)) " +
+           "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findInboxPageAsLow(@Param("userId") Long userId,
+                                          @Param("beforeTime") LocalDateTime beforeTime,
+                                          @Param("beforeId") Long beforeId,
+                                          Pageable pageable);
+    
+    // Excludes a chat with oneself, which the low-side query already returned
+    @Query("SELECT c FROM Conversation c JOIN FETCH c.userLow WHERE c.userHigh.id = :userId AND c.userLow.id <> :userId " +
+           "AND (c.lastMessageAt < :beforeTime OR (c.lastMessageAt = :beforeTime AND c.id < :beforeId)) " +
+           "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findInboxPageAsHigh(@Param("userId") Long userId,
+                                           @Param("beforeTime") LocalDateTime beforeTime,
+                                           @Param("beforeId") Long beforeId,
+                                           Pageable pageable);
+    
+    // Taken in id order by each write-behind batch before it stores messages, so a batch and a
+    // mark-read on the same conversation serialize and late messages see the read watermark
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Conversation c WHERE c.id IN :ids ORDER BY c.id")
+    List<Conversation> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    // Highest seq stored by any node; read when this node's numbering has fallen behind
+    @Query("SELECT c.lastSeq FROM Conversation c WHERE c.id = :id")
+    long findLastSeq(@Param("id") Long id);
+    
+    // Watermarks only move forward; 0 rows means there was nothing new to read
+    @Modifying
+    @Query("UPDATE Conversation c SET c.readSeqLow = :seq WHERE c.id = :id AND c.readSeqLow < :seq")
+    int advanceReadSeqLow(@Param("id") Long id, @Param("seq") long seq);
+    
+    @Modifying
+    @Query("UPDATE Conversation c SET c.readSeqHigh = :seq WHERE c.id = :id AND c.readSeqHigh < :seq")
+    int advanceReadSeqHigh(@Param("id") Long id, @Param("seq") long seq);
+    
+    // Badge total: the sum of the user's per-conversation counters, one indexed side at a time
+    @Query("SELECT COALESCE(SUM(c.unreadLow), 0) FROM Conversation c WHERE c.userLow.id = :userId")
+    long sumUnreadAsLow(@Param("userId") Long userId);
+    
+    @Query("SELECT COALESCE(SUM(c.unreadHigh), 0) FROM Conversation c WHERE c.userHigh.id = :userId AND c.userLow.id <> :userId")
+    long sumUnreadAsHigh(@Param("userId") Long userId);
+    
+    // In-place so concurrent messages never lose an increment; reads pass negative amounts.
+    // Clears the persistence context so the following per-conversation updates do not
+    // re-check a just-flushed batch of messages
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Conversation c SET c.unreadLow = c.unreadLow + :unreadLow, " +
+           "c.unreadHigh = c.unreadHigh + :unreadHigh WHERE c.id = :id")
+    int incrementUnread(@Param("id") Long id, @Param("unreadLow") int unreadLow, @Param("unreadHigh") int unreadHigh);
+    
+    // Only moves forward, so a batch committing late cannot replace a newer message
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageId = :messageId, c.lastMessageContent = :content, " +
+           "c.lastSenderId = :senderId, c.lastMessageAt = :sentAt, c.lastSeq = :seq " +
+           "WHERE c.id = :id AND c.lastSeq < :seq")
+    int updateLastMessage(@Param("id") Long id,
+                          @Param("messageId") Long messageId,
+                          @Param("content") String content,
+                          @Param("senderId") Long senderId,
+                          @Param("sentAt") LocalDateTime sentAt,
+                          @Param("seq") long seq);
+}
@@ -1,6 +1,7 @@
 package com.ambiguous.fixpoint.repository;
 
 import com.ambiguous.fixpoint.entity.EmailVerificationOtp;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +10,8 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -59,4 +62,14 @@ public interface EmailVerificationOtpRepository extends JpaRepository<EmailVerif
     @Modifying
     @Transactional
     void deleteByExpiresAtBefore(LocalDateTime currentTime);
+    
+    /**
+     * Retention: ids of OTPs that expired before the cutoff, one chunk at a time
+     */
+    @Query("SELECT o.id FROM EmailVerificationOtp o WHERE o.expiresAt < :cutoff ORDER BY o.id")
+    List<Long> findIdsExpiredBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM EmailVerificationOtp o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
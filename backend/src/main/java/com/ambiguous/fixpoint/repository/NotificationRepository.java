@@ -1,6 +1,7 @@
 package com.ambiguous.fixpoint.repository;
 
 import com.ambiguous.fixpoint.entity.Notification;
+import com.ambiguous.fixpoint.entity.Report;
 import com.ambiguous.fixpoint.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -36,6 +38,15 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     // Count unread notifications for a user
     long countByUserAndIsReadFalse(User user);
     
+    long countByUserIdAndIsReadFalse(Long userId);
+
+    // Unread counter seed: older rows are counted, recent ones listed so their commit callbacks can be recognized
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false AND n.createdAt < :since")
+    long countUnreadCreatedBefore(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    @Query("SELECT n.id FROM Notification n WHERE n.user.id = :userId AND n.isRead = false AND n.createdAt >= :since")
+    List<Long> findUnreadIdsCreatedSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+    
     // Find notifications by type for a user
     @Query("SELECT DISTINCT n FROM Notification n " +
            "LEFT JOIN FETCH n.user " +
@@ -55,15 +66,21 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     // Mark all notifications as read for a user
     @Modifying
     @Transactional
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.user = :user AND n.isRead = false")
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt, n.updatedAt = :readAt WHERE n.user = :user AND n.isRead = false")
     void markAllAsReadForUser(@Param("user") User user, @Param("readAt") LocalDateTime readAt);
     
     // Mark notification as read
     @Modifying
     @Transactional
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.id = :id")
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt, n.updatedAt = :readAt WHERE n.id = :id")
     void markAsRead(@Param("id") Long id, @Param("readAt") LocalDateTime readAt);
     
+    // Mark one of the user's notifications as read; returns 0 if it was already read or not theirs
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt, n.updatedAt = :readAt WHERE n.id = :id AND n.user.id = :userId AND n.isRead = false")
+    int markAsReadForUser(@Param("id") Long id, @Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
+    
     // Delete old notifications (cleanup)
     @Modifying
     @Transactional
@@ -76,6 +93,54 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Query("DELETE FROM Notification n WHERE n.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
     
+    // Unread notifications of one type for a report, raised recently, that a new one can be merged into
+    @Query("SELECT n FROM Notification n WHERE n.report = :report AND n.type = :type AND n.isRead = false " +
+           "AND n.createdAt >= :since AND n.user.id IN :userIds ORDER BY n.createdAt DESC")
+    List<Notification> findCoalescingCandidates(@Param("report") Report report,
+                                                @Param("type") Notification.NotificationType type,
+                                                @Param("userIds") Collection<Long> userIds,
+                                                @Param("since") LocalDateTime since);
+    
+    // Unread notifications created in a window for users who receive digests
+    @Query("SELECT n FROM Notification n JOIN FETCH n.user u " +
+           "WHERE u.notificationDigest = true AND n.isRead = false AND n.createdAt > :since AND n.createdAt <= :until " +
+           "ORDER BY u.id, n.createdAt DESC")
+    List<Notification> findDigestCandidates(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until);
+    
+    // Retention: ids of notifications older than the cutoff, oldest first, one chunk at a time
+    @Query("SELECT n.id FROM Notification n WHERE n.createdAt < :cutoff ORDER BY n.id")
+    List<Long> findIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Delta sync: the user's notifications changed after the (updatedAt, id) cursor, oldest change first
+    @Query("SELECT n FROM Notification n " +
+           "LEFT JOIN FETCH n.report " +
+           "LEFT JOIN FETCH n.comment " +
+           "WHERE n.user.id = :userId AND n.updatedAt <= :until " +
+           "AND (n.updatedAt > :afterTime OR (n.updatedAt = :afterTime AND n.id > :afterId)) " +
+           "ORDER BY n.updatedAt ASC, n.id ASC")
+    List<Notification> findChangesAfter(@Param("userId") Long userId,
+                                        @Param("afterTime") LocalDateTime afterTime,
+                                        @Param("afterId") Long afterId,
+                                        @Param("until") LocalDateTime until,
+                                        Pageable pageable);
+
+    // Change feed for several users at once, ordered by the same (updatedAt, id) key
+    @Query("SELECT n FROM Notification n " +
+           "LEFT JOIN FETCH n.report " +
+           "LEFT JOIN FETCH n.comment " +
+           "WHERE n.user.id IN :userIds AND n.updatedAt <= :until " +
+           "AND (n.updatedAt > :afterTime OR (n.updatedAt = :afterTime AND n.id > :afterId)) " +
+           "ORDER BY n.updatedAt ASC, n.id ASC")
+    List<Notification> findChangesForUsersAfter(@Param("userIds") Collection<Long> userIds,
+                                                @Param("afterTime") LocalDateTime afterTime,
+                                                @Param("afterId") Long afterId,
+                                                @Param("until") LocalDateTime until,
+                                                Pageable pageable);
+    
     // Find recent notifications for a user (last 7 days)
     @Query("SELECT n FROM Notification n WHERE n.user = :user AND n.createdAt >= :since ORDER BY n.createdAt DESC")
     List<Notification> findRecentNotifications(@Param("user") User user, @Param("since") LocalDateTime since);
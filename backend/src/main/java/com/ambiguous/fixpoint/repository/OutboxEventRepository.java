@@ -0,0 +1,57 @@
+package com.ambiguous.fixpoint.repository;
+
+import com.ambiguous.fixpoint.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Ids of the oldest undelivered events that have not exhausted their retries and nobody holds a claim on
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.deliveredAt IS NULL AND e.attempts < :maxAttempts " +
+           "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.id ASC")
+    List<Long> findClaimableIds(@Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Conditional per row, so of several nodes racing for the same ids each row goes to exactly one
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = :token, e.claimedUntil = :until WHERE e.id IN :ids " +
+           "AND e.deliveredAt IS NULL AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("token") String token,
+              @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Query("SELECT e FROM OutboxEvent e WHERE e.claimedBy = :token AND e.deliveredAt IS NULL ORDER BY e.id ASC")
+    List<OutboxEvent> findClaimed(@Param("token") String token);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.deliveredAt = :deliveredAt WHERE e.id IN :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    // Failed pushes give their claim back so the next drain, on any node, retries them
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.claimedBy = NULL, e.claimedUntil = NULL WHERE e.id IN :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids);
+
+    // Delivered events are kept for a short while for diagnostics, then purged
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.deliveredAt IS NOT NULL AND e.deliveredAt < :cutoff")
+    int deleteDeliveredBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // Events that used up their retries are never delivered, so they go by age instead
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.deliveredAt IS NULL AND e.attempts >= :maxAttempts AND e.createdAt < :cutoff")
+    int deleteExhaustedBefore(@Param("maxAttempts") int maxAttempts, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -5,11 +5,16 @@ import com.ambiguous.fixpoint.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -141,4 +146,45 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     // Find reports with images by category, ordered by latest first
     @Query("SELECT r FROM Report r WHERE r.imagePath IS NOT NULL AND r.imagePath != '' AND r.category = :category ORDER BY r.createdAt DESC")
     Page<Report> findReportsWithImagesByCategoryOrderByCreatedAtDesc(@Param("category") Report.Category category, Pageable pageable);
+    
+    // Duplicate clustering: row locks on the reports a union touches, taken in id order so
+    // concurrent unions on any node queue up instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Report r WHERE r.id IN :ids ORDER BY r.id")
+    List<Report> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    // Duplicate clustering: current cluster roots of the given reports, read past the persistence context
+    @Query("SELECT DISTINCT r.duplicateClusterId FROM Report r WHERE r.id IN :ids AND r.duplicateClusterId IS NOT NULL")
+    List<Long> findDuplicateClusterIdsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Duplicate clustering: all report IDs currently belonging to the given clusters
+    @Query("SELECT r.id FROM Report r WHERE r.duplicateClusterId IN :clusterIds")
+    List<Long> findIdsByDuplicateClusterIdIn(@Param("clusterIds") Collection<Long> clusterIds);
+    
+    // Duplicate clustering: point every member directly at the cluster root
+    @Modifying
+    @Query("UPDATE Report r SET r.duplicateClusterId = :clusterId, r.duplicateClusterSize = :clusterSize WHERE r.id IN :ids")
+    int assignDuplicateCluster(@Param("clusterId") Long clusterId,
+                               @Param("clusterSize") Integer clusterSize,
+                               @Param("ids") Collection<Long> ids);
+    
+    // Collapsed feeds: unclustered reports plus one representative (the cluster root) per duplicate cluster
+    @Query("SELECT r FROM Report r WHERE (r.duplicateClusterId IS NULL OR r.duplicateClusterId = r.id) ORDER BY " +
+           "CASE WHEN r.imagePath IS NOT NULL AND r.imagePath != '' THEN 0 ELSE 1 END, " +
+           "r.createdAt DESC")
+    Page<Report> findClusterRepresentativesWithImagesPrioritizedOrderByCreatedAtDesc(Pageable pageable);
+    
+    // Filtered feeds pick the oldest member that matches the filter, so a cluster whose root no
+    // longer matches (e.g. resolved while its duplicates are open) is still represented
+    @Query("SELECT r FROM Report r WHERE r.status = :status AND r.id IN (SELECT MIN(m.id) FROM Report m " +
+           "WHERE m.status = :status GROUP BY COALESCE(m.duplicateClusterId, m.id)) ORDER BY " +
+           "CASE WHEN r.imagePath IS NOT NULL AND r.imagePath != '' THEN 0 ELSE 1 END, " +
+           "r.createdAt DESC")
+    Page<Report> findClusterRepresentativesByStatusWithImagesPrioritizedOrderByCreatedAtDesc(@Param("status") Report.Status status, Pageable pageable);
+    
+    @Query("SELECT r FROM Report r WHERE r.category = :category AND r.id IN (SELECT MIN(m.id) FROM Report m " +
+           "WHERE m.category = :category GROUP BY COALESCE(m.duplicateClusterId, m.id)) ORDER BY " +
+           "CASE WHEN r.imagePath IS NOT NULL AND r.imagePath != '' THEN 0 ELSE 1 END, " +
+           "r.createdAt DESC")
+    Page<Report> findClusterRepresentativesByCategoryWithImagesPrioritizedOrderByCreatedAtDesc(@Param("category") Report.Category category, Pageable pageable);
 }
@@ -0,0 +1,33 @@
+package com.ambiguous.fixpoint.repository;
+
+import com.ambiguous.fixpoint.entity.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    // Take the lease if it has expired; returns 1 when this caller now holds it
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.lockedUntil = :until, l.lockedBy = :owner WHERE l.name = :name AND l.lockedUntil <= :now")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.lockedUntil = :now WHERE l.name = :name AND l.lockedBy = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    // Only the lease holder may move the watermark; joins the caller's transaction if there is one
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.watermark = :watermark WHERE l.name = :name AND l.lockedBy = :owner")
+    int updateWatermark(@Param("name") String name, @Param("owner") String owner, @Param("watermark") LocalDateTime watermark);
+}
@@ -39,6 +39,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.organization WHERE u.organization = :organization AND u.userType = :userType")
     List<User> findByOrganizationAndUserType(@Param("organization") com.ambiguous.fixpoint.entity.Organization organization, @Param("userType") User.UserType userType);
     
+    // (organization id, user id) pairs of active users of a type, for the notification recipient directory
+    @Query("SELECT u.organization.id, u.id FROM User u WHERE u.organization.id IN :organizationIds AND u.userType = :userType " +
+           "AND (u.isActive IS NULL OR u.isActive = true)")
+    List<Object[]> findActiveUserIdsByOrganizationIdsAndUserType(@Param("organizationIds") java.util.Collection<Long> organizationIds, @Param("userType") User.UserType userType);
+    
+    @Query("SELECT u.id FROM User u WHERE u.notificationDigest = true")
+    List<Long> findIdsWithNotificationDigest();
+    
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.organization WHERE u.id = :id")
     Optional<User> findByIdWithOrganization(@Param("id") Long id);
     
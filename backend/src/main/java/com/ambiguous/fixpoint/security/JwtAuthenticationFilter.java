@@ -26,6 +26,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    private static final String NOTIFICATION_STREAM_PATH = "/api/notifications/stream";
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
@@ -52,6 +54,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
             return bearerToken.substring(7);
         }
+        // Browser EventSource cannot set headers, so the notification stream also takes the token as a parameter
+        if (isNotificationStream(request)) {
+            return request.getParameter("access_token");
+        }
         return null;
     }
+
+    // Servlet path (not the raw URI) so ";" path parameters or a context path cannot stretch the match to other routes
+    private boolean isNotificationStream(HttpServletRequest request) {
+        return "GET".equals(request.getMethod())
+                && NOTIFICATION_STREAM_PATH.equals(request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : ""));
+    }
 }
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.List;
 
@@ -25,6 +26,12 @@ public class AIImageAnalysisService {
     @Value("${ai.demo.mode:true}") // Default to demo mode for testing
     private boolean demoMode;
 
+    @Value("${app.ai.http.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    // Built once: the model owns an HTTP client whose connections are reused across calls
+    private OpenAiChatModel openAiModel;
+
     private static final String CIVIC_ISSUE_PROMPT = """
         Based on the image description provided, analyze and provide a detailed description of the civic issue shown. 
         Focus on:
@@ -74,21 +81,27 @@ public class AIImageAnalysisService {
             throw new RuntimeException("OpenAI API key not configured");
         }
 
-        OpenAiChatModel model = OpenAiChatModel.builder()
-                .apiKey(openaiApiKey)
-                .modelName("gpt-4o")
-                .maxTokens(500)
-                .temperature(0.3)
-                .build();
-
         // Create user message with image info
         String prompt = String.format(CIVIC_ISSUE_PROMPT, imageInfo);
         UserMessage userMessage = UserMessage.from(prompt);
         
-        Response<AiMessage> response = model.generate(List.of(userMessage));
+        Response<AiMessage> response = openAiModel().generate(List.of(userMessage));
         return response.content().text();
     }
 
+    private synchronized OpenAiChatModel openAiModel() {
+        if (openAiModel == null) {
+            openAiModel = OpenAiChatModel.builder()
+                    .apiKey(openaiApiKey)
+                    .modelName("gpt-4o")
+                    .maxTokens(500)
+                    .temperature(0.3)
+                    .timeout(Duration.ofMillis(readTimeoutMs))
+                    .build();
+        }
+        return openAiModel;
+    }
+
     private String generateWithVertexAI(String imageInfo) {
         // For now, fallback to OpenAI if Vertex AI is not properly configured
         // In a production environment, you would implement proper Vertex AI integration
@@ -0,0 +1,303 @@
+package com.ambiguous.fixpoint.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shrinks uploaded photos to what vision models actually look at before they are base64-encoded
+ * into a provider request. The image is decoded at a reduced resolution where the format allows
+ * it (an integer subsampling factor that keeps the long edge at or above max-edge), turned
+ * upright per its EXIF orientation, scaled so its long edge is at most max-edge pixels, and
+ * re-encoded as a JPEG at the configured quality without any metadata (so camera and GPS tags
+ * never leave the server). Formats ImageIO cannot decode are passed through as-is.
+ * Streams are cached in memory, never in ImageIO's temporary files.
+ */
+@Service
+public class AIImagePreprocessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIImagePreprocessor.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ai.image.max-edge:1024}")
+    private int maxEdge;
+
+    @Value("${app.ai.image.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    private DistributionSummary originalBytes;
+    private DistributionSummary preparedBytes;
+    private Timer prepareTime;
+
+    @PostConstruct
+    void registerMeters() {
+        originalBytes = DistributionSummary.builder("fixpoint.ai.image.bytes")
+                .description("Size of images sent for AI analysis, as uploaded and as sent")
+                .baseUnit("bytes")
+                .tag("stage", "original")
+                .register(meterRegistry);
+        preparedBytes = DistributionSummary.builder("fixpoint.ai.image.bytes")
+                .description("Size of images sent for AI analysis, as uploaded and as sent")
+                .baseUnit("bytes")
+                .tag("stage", "prepared")
+                .register(meterRegistry);
+        prepareTime = Timer.builder("fixpoint.ai.image.prepare")
+                .description("Time to decode, scale and re-encode an image for AI analysis")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The upload as a downscaled JPEG, or unchanged if it cannot be decoded
+     */
+    public PreparedImage prepare(MultipartFile image) throws IOException {
+        byte[] original = image.getBytes();
+        originalBytes.record(original.length);
+        long started = System.nanoTime();
+
+        PreparedImage prepared;
+        try {
+            BufferedImage decoded = decode(original);
+            if (decoded == null) {
+                logger.debug("Cannot decode {} ({}), sending it unchanged", image.getOriginalFilename(), image.getContentType());
+                prepared = new PreparedImage(original,
+                        image.getContentType() != null ? image.getContentType() : "image/jpeg");
+            } else {
+                BufferedImage upright = orient(decoded, exifOrientation(original));
+                prepared = new PreparedImage(encodeJpeg(scale(upright)), "image/jpeg");
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not downscale {}: {}", image.getOriginalFilename(), e.getMessage());
+            prepared = new PreparedImage(original, image.getContentType() != null ? image.getContentType() : "image/jpeg");
+        }
+
+        prepareTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        preparedBytes.record(prepared.data.length);
+        return prepared;
+    }
+
+    // Decodes with source subsampling, so a 4032x3024 photo is read as 1344x1008 for a 1024 max edge
+    private BufferedImage decode(byte[] data) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Largest factor that still leaves at least maxEdge pixels for the smooth downscale below
+                int subsampling = Math.max(1, longEdge / maxEdge);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves repeatedly, then one final bilinear step, onto an opaque RGB canvas
+    private BufferedImage scale(BufferedImage source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double factor = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight
+                || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha: transparent areas become white rather than black
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            // No metadata passed, so nothing from the upload is carried over
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Rotations only; the mirrored orientations (2, 4, 5, 7) are rare enough to send as decoded
+    private BufferedImage orient(BufferedImage image, int orientation) {
+        int quarterTurns = switch (orientation) {
+            case 6 -> 1;
+            case 3 -> 2;
+            case 8 -> 3;
+            default -> 0;
+        };
+        if (quarterTurns == 0) {
+            return image;
+        }
+        boolean swap = quarterTurns % 2 == 1;
+        int width = swap ? image.getHeight() : image.getWidth();
+        int height = swap ? image.getWidth() : image.getHeight();
+        BufferedImage rotated = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            AffineTransform transform = new AffineTransform();
+            transform.translate(width / 2.0, height / 2.0);
+            transform.quadrantRotate(quarterTurns);
+            transform.translate(-image.getWidth() / 2.0, -image.getHeight() / 2.0);
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    /**
+     * EXIF orientation tag (1-8) of a JPEG, or 1 when there is none or it cannot be read. Walks
+     * the marker segments up to the image data looking for the APP1 "Exif" block and reads tag
+     * 0x0112 from IFD0. Malformed EXIF must not stop the upload from being re-encoded, since the
+     * fallback would send the original with its metadata.
+     */
+    static int exifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) {
+                break;
+            }
+            int segment = offset + 4;
+            if (marker == 0xE1 && segment + 14 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i'
+                    && jpeg[segment + 3] == 'f') {
+                try {
+                    return readOrientation(jpeg, segment + 6, Math.min(jpeg.length, offset + 2 + length));
+                } catch (RuntimeException e) {
+                    return 1;
+                }
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int readOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end || data[tiff] != data[tiff + 1] || (data[tiff] != 'I' && data[tiff] != 'M')) {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I';
+        // Unsigned offset from the TIFF header; anything outside the segment is corrupt
+        long ifdOffset = readInt(data, tiff + 4, littleEndian) & 0xFFFFFFFFL;
+        if (ifdOffset < 8 || tiff + ifdOffset + 2 > end) {
+            return 1;
+        }
+        int ifd = tiff + (int) ifdOffset;
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                int orientation = readShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int at, boolean littleEndian) {
+        int a = data[at] & 0xFF;
+        int b = data[at + 1] & 0xFF;
+        return littleEndian ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int at, boolean littleEndian) {
+        int high = readShort(data, littleEndian ? at + 2 : at, littleEndian);
+        int low = readShort(data, littleEndian ? at : at + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    /**
+     * Image bytes ready for a provider request, with the MIME type to declare for them
+     */
+    public static class PreparedImage {
+        private final byte[] data;
+        private final String mimeType;
+
+        PreparedImage(byte[] data, String mimeType) {
+            this.data = data;
+            this.mimeType = mimeType;
+        }
+
+        public String getBase64() {
+            return Base64.getEncoder().encodeToString(data);
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public int getSize() {
+            return data.length;
+        }
+    }
+}
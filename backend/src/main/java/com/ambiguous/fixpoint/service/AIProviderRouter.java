@@ -0,0 +1,441 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.config.AIProviderConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Chooses which AI provider serves a call and moves on to the next when it fails.
+ *
+ * Each provider has a circuit breaker: after a run of consecutive failures it is skipped for a
+ * while, then given the next call as a trial (hedged like any other) that closes it again on
+ * success. Only failures that say something about the provider count: transport errors, 5xx,
+ * 429 and 401/403. Other 4xx and local connection-slot refusals still fail over, but leave the
+ * breaker alone. Otherwise the provider with the lowest rolling p95 for the operation goes first;
+ * providers without enough samples yet keep the configured order behind those with a known p95.
+ *
+ * With hedging on (it is off by default, as a hedged call can pay for two provider requests),
+ * a call still unanswered after the first provider's p90 for the operation is also sent to the
+ * next provider, and whichever answers first wins; the other is cancelled and the time it had
+ * run goes into its latency window as a lower bound, so a provider that keeps losing hedges does
+ * not look faster than it is. A failed attempt fails over to the next provider straight away.
+ * When every provider has failed or is open, the last error is thrown and the caller falls back
+ * to its built-in answer.
+ */
+@Service
+public class AIProviderRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIProviderRouter.class);
+
+    private static final int LATENCY_WINDOW = 100;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ai.router.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.ai.router.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    // Samples an operation needs on a provider before its percentiles are trusted
+    @Value("${app.ai.router.min-samples:5}")
+    private int minSamples;
+
+    @Value("${app.ai.router.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    // Hedge delay when the first provider has no p90 yet, and the bounds applied to a known p90
+    @Value("${app.ai.router.hedging.default-delay-ms:3000}")
+    private long defaultHedgeDelayMs;
+
+    @Value("${app.ai.router.hedging.min-delay-ms:250}")
+    private long minHedgeDelayMs;
+
+    @Value("${app.ai.router.hedging.max-delay-ms:15000}")
+    private long maxHedgeDelayMs;
+
+    @Value("${app.ai.router.threads:32}")
+    private int threads;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    // Keyed "provider:operation"
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private ExecutorService attempts;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        attempts = new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "ai-router-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        attempts.shutdownNow();
+    }
+
+    /**
+     * Answer from the first provider to succeed, trying them in the order described above and
+     * hedging slow calls. providers maps provider name to its call, in configured preference.
+     */
+    public <T> T call(String operation, Map<String, Callable<T>> providers) throws Exception {
+        List<String> order = order(operation, providers.keySet());
+        if (order.isEmpty()) {
+            throw new IllegalStateException("No AI provider available for " + operation);
+        }
+
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(attempts);
+        Map<Future<T>, Attempt> running = new HashMap<>();
+        int next = 0;
+        Exception lastFailure = null;
+        long hedgeAt = Long.MAX_VALUE;
+
+        try {
+            while (true) {
+                if (running.isEmpty()) {
+                    if (next >= order.size()) {
+                        throw lastFailure;
+                    }
+                    String provider = order.get(next++);
+                    Attempt attempt = new Attempt(provider, operation);
+                    try {
+                        running.put(completion.submit(() -> attempt.run(providers.get(provider))), attempt);
+                    } catch (RejectedExecutionException e) {
+                        // Router saturated: answer on the caller's thread, without hedging
+                        try {
+                            return attempt.run(providers.get(provider));
+                        } catch (Exception failure) {
+                            lastFailure = failure;
+                            continue;
+                        }
+                    }
+                    if (hedgingEnabled && next < order.size()) {
+                        hedgeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs(provider, operation));
+                    }
+                }
+
+                Future<T> done;
+                if (hedgeAt == Long.MAX_VALUE) {
+                    done = completion.take();
+                } else {
+                    done = completion.poll(Math.max(0, hedgeAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        hedgeAt = Long.MAX_VALUE;
+                        String provider = order.get(next++);
+                        Attempt hedge = new Attempt(provider, operation);
+                        try {
+                            running.put(completion.submit(() -> hedge.run(providers.get(provider))), hedge);
+                            meterRegistry.counter("fixpoint.ai.hedges", "operation", operation).increment();
+                        } catch (RejectedExecutionException e) {
+                            next--;
+                        }
+                        continue;
+                    }
+                }
+
+                Attempt attempt = running.remove(done);
+                try {
+                    T result = done.get();
+                    if (!running.isEmpty()) {
+                        meterRegistry.counter("fixpoint.ai.hedges.won", "operation", operation,
+                                "provider", attempt.provider).increment();
+                    }
+                    running.forEach((future, loser) -> loser.cancel(future));
+                    return result;
+                } catch (ExecutionException e) {
+                    lastFailure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    logger.debug("AI provider {} failed {}: {}", attempt.provider, operation, lastFailure.getMessage());
+                    hedgeAt = Long.MAX_VALUE;
+                }
+            }
+        } catch (InterruptedException e) {
+            running.forEach((future, loser) -> loser.cancel(future));
+            throw e;
+        }
+    }
+
+    /**
+     * Like call, without hedging and on the caller's thread, for calls whose side effects rule
+     * out a second attempt running alongside (streamed answers). A failure moves on to the next
+     * provider only while canFailOver still says so.
+     */
+    public <T> T callInOrder(String operation, Map<String, Callable<T>> providers,
+                             BooleanSupplier canFailOver) throws Exception {
+        List<String> order = order(operation, providers.keySet());
+        if (order.isEmpty()) {
+            throw new IllegalStateException("No AI provider available for " + operation);
+        }
+        Exception lastFailure = null;
+        for (String provider : order) {
+            if (lastFailure != null && !canFailOver.getAsBoolean()) {
+                break;
+            }
+            try {
+                return new Attempt(provider, operation).run(providers.get(provider));
+            } catch (Exception e) {
+                lastFailure = e;
+                logger.debug("AI provider {} failed {}: {}", provider, operation, e.getMessage());
+            }
+        }
+        throw lastFailure;
+    }
+
+    // Providers whose breaker lets a call through: a half-open provider's trial first, then fastest known p95
+    List<String> order(String operation, Iterable<String> providers) {
+        List<String> trials = new ArrayList<>();
+        List<String> allowed = new ArrayList<>();
+        for (String provider : providers) {
+            Breaker breaker = breaker(provider);
+            if (breaker.isClosed()) {
+                allowed.add(provider);
+            } else if (breaker.allowTrial()) {
+                trials.add(provider);
+            }
+        }
+        allowed.sort(Comparator.comparingLong(provider -> {
+            long p95 = window(provider, operation).percentile(0.95, minSamples);
+            return p95 < 0 ? Long.MAX_VALUE : p95;
+        }));
+        trials.addAll(allowed);
+        return trials;
+    }
+
+    private long hedgeDelayMs(String provider, String operation) {
+        long p90 = window(provider, operation).percentile(0.90, minSamples);
+        if (p90 < 0) {
+            return defaultHedgeDelayMs;
+        }
+        return Math.max(minHedgeDelayMs, Math.min(maxHedgeDelayMs, TimeUnit.NANOSECONDS.toMillis(p90)));
+    }
+
+    /**
+     * Breaker state and latency percentiles per provider, for the AI status endpoint
+     */
+    public Map<String, Object> getSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        breakers.forEach((provider, breaker) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("circuit", breaker.state());
+            entry.put("consecutiveFailures", breaker.consecutiveFailures());
+            Map<String, Object> operations = new LinkedHashMap<>();
+            latencies.forEach((key, window) -> {
+                if (key.startsWith(provider + ":")) {
+                    Map<String, Object> latency = new LinkedHashMap<>();
+                    latency.put("p90Ms", TimeUnit.NANOSECONDS.toMillis(Math.max(0, window.percentile(0.90, 1))));
+                    latency.put("p95Ms", TimeUnit.NANOSECONDS.toMillis(Math.max(0, window.percentile(0.95, 1))));
+                    latency.put("samples", window.size());
+                    operations.put(key.substring(provider.length() + 1), latency);
+                }
+            });
+            entry.put("operations", operations);
+            snapshot.put(provider, entry);
+        });
+        return snapshot;
+    }
+
+    // Whether a failed call says the provider is down, overloaded or refusing our credentials
+    static boolean isProviderFailure(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AIProviderConcurrencyLimiter.SlotUnavailableException) {
+                return false;
+            }
+        }
+        if (e instanceof RestClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 500 || status == 429 || status == 401 || status == 403;
+        }
+        return e instanceof ResourceAccessException || e instanceof IOException;
+    }
+
+    private Breaker breaker(String provider) {
+        return breakers.computeIfAbsent(provider, Breaker::new);
+    }
+
+    private LatencyWindow window(String provider, String operation) {
+        return latencies.computeIfAbsent(provider + ":" + operation, key -> new LatencyWindow());
+    }
+
+    /**
+     * One call to one provider; its outcome feeds the provider's breaker and latency window.
+     * One cancelled because another provider answered first only leaves a latency lower bound.
+     */
+    private class Attempt {
+        private final String provider;
+        private final String operation;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile long startedNanos;
+
+        private Attempt(String provider, String operation) {
+            this.provider = provider;
+            this.operation = operation;
+        }
+
+        private <T> T run(Callable<T> call) throws Exception {
+            long started = System.nanoTime();
+            startedNanos = started;
+            try {
+                T result = call.call();
+                long elapsed = System.nanoTime() - started;
+                breaker(provider).onSuccess();
+                if (!cancelled.get()) {
+                    window(provider, operation).add(elapsed);
+                }
+                record("success", elapsed);
+                return result;
+            } catch (Exception e) {
+                long elapsed = System.nanoTime() - started;
+                if (cancelled.get()) {
+                    record("cancelled", elapsed);
+                } else if (isProviderFailure(e)) {
+                    breaker(provider).onFailure();
+                    record("failure", elapsed);
+                } else {
+                    record("error", elapsed);
+                }
+                throw e;
+            }
+        }
+
+        // The call may not notice the interrupt for a while; its lower bound is known now
+        private void cancel(Future<?> future) {
+            if (cancelled.compareAndSet(false, true)) {
+                long started = startedNanos;
+                if (started != 0) {
+                    window(provider, operation).add(System.nanoTime() - started);
+                }
+            }
+            future.cancel(true);
+        }
+
+        private void record(String outcome, long elapsedNanos) {
+            Timer.builder("fixpoint.ai.provider.calls")
+                    .description("AI provider calls by provider, operation and outcome")
+                    .tag("provider", provider)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Closed until failureThreshold consecutive failures, then open for openDurationMs, then
+     * half-open: one trial call per openDurationMs until a success closes it again
+     */
+    private class Breaker {
+        private int consecutiveFailures;
+        private boolean open;
+        private long openedAt;
+        private long trialStartedAt;
+
+        private Breaker(String provider) {
+            Gauge.builder("fixpoint.ai.circuit.open", this, breaker -> "closed".equals(breaker.state()) ? 0 : 1)
+                    .description("1 while the provider's circuit breaker is open or half-open")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+        }
+
+        private synchronized boolean isClosed() {
+            return !open;
+        }
+
+        // Claims the trial call when the breaker is half-open and no trial ran this period
+        private synchronized boolean allowTrial() {
+            long now = System.currentTimeMillis();
+            if (open && now - openedAt >= openDurationMs && now - trialStartedAt >= openDurationMs) {
+                trialStartedAt = now;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            open = false;
+        }
+
+        private synchronized void onFailure() {
+            consecutiveFailures++;
+            if (open || consecutiveFailures >= failureThreshold) {
+                open = true;
+                openedAt = System.currentTimeMillis();
+            }
+        }
+
+        private synchronized String state() {
+            if (!open) {
+                return "closed";
+            }
+            return System.currentTimeMillis() - openedAt >= openDurationMs ? "half-open" : "open";
+        }
+
+        private synchronized int consecutiveFailures() {
+            return consecutiveFailures;
+        }
+    }
+
+    // Latencies of the last LATENCY_WINDOW successful or cancelled calls, in nanoseconds
+    private static class LatencyWindow {
+        private final long[] samples = new long[LATENCY_WINDOW];
+        private int count;
+        private int nextIndex;
+
+        private synchronized void add(long nanos) {
+            samples[nextIndex] = nanos;
+            nextIndex = (nextIndex + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        private synchronized int size() {
+            return count;
+        }
+
+        // -1 until there are at least minSamples
+        private synchronized long percentile(double quantile, int minSamples) {
+            if (count == 0 || count < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+        }
+    }
+}
@@ -39,6 +39,9 @@ public class AuthService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private NotificationRecipientDirectory recipientDirectory;
+
     public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest) {
         System.out.println("DEBUG: Attempting authentication for: " + loginRequest.getUsernameOrEmail());
         
@@ -133,6 +136,10 @@ public class AuthService {
         user.setEmailVerified(false);
 
         User savedUser = userRepository.save(user);
+        if (savedUser.getOrganization() != null) {
+            // New organization members change who receives organization-wide notifications
+            recipientDirectory.invalidateOrganization(savedUser.getOrganization().getId());
+        }
         
         // Generate and send OTP for email verification
         try {
@@ -140,6 +147,9 @@ public class AuthService {
         } catch (Exception e) {
             // If OTP sending fails, delete the user and throw exception
             userRepository.delete(savedUser);
+            if (savedUser.getOrganization() != null) {
+                recipientDirectory.invalidateOrganization(savedUser.getOrganization().getId());
+            }
             throw new RuntimeException("Failed to send verification email. Please try again.");
         }
         
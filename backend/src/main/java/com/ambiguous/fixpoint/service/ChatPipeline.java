@@ -0,0 +1,224 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatAckMessage;
+import com.ambiguous.fixpoint.dto.ChatMessageResponse;
+import com.ambiguous.fixpoint.dto.ChatSendRequest;
+import com.ambiguous.fixpoint.dto.UserSummary;
+import com.ambiguous.fixpoint.entity.ChatMessage;
+import com.ambiguous.fixpoint.entity.Conversation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts chat messages and delivers them before they are stored.
+ *
+ * Each conversation has an in-memory state holding its last sequence number. A send takes the
+ * conversation's lock, assigns the next number, queues the message on
+ * {@link ChatWriteBehindQueue} and pushes it to both participants, so sequence order, storage
+ * order and the order frames enter the broker all agree however many senders race. Clients
+ * order a conversation by seq. Sender and receiver come from {@link ChatUserCache}; after the
+ * first message of a conversation on this node, a send does no database work at all.
+ *
+ * Sequence numbers are allocated by the node that accepts the message. With the broker relay
+ * and two nodes serving the same conversation, numbers can collide. The (conversation, seq)
+ * unique constraint rejects the later message, and {@link ChatWriteBehindQueue} then renumbers it
+ * past the conversation's stored last_seq, delivers it again under the new number and stores
+ * it. Clients replace a message they already hold by its clientMessageId.
+ */
+@Service
+public class ChatPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatPipeline.class);
+
+    static final String MESSAGES_DESTINATION = "/queue/messages";
+
+    private static final int MAX_CONTENT_LENGTH = 1000;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatUserCache userCache;
+
+    @Autowired
+    private ChatWriteBehindQueue writeBehind;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.chat.conversation-idle-minutes:30}")
+    private long conversationIdleMinutes;
+
+    // Keyed "lowUserId:highUserId"
+    private final Map<String, ConversationState> conversations = new ConcurrentHashMap<>();
+
+    private Counter accepted;
+    private Counter rejected;
+
+    @PostConstruct
+    void registerMeters() {
+        accepted = Counter.builder("fixpoint.chat.accepted")
+                .description("Chat messages sequenced and delivered")
+                .register(meterRegistry);
+        rejected = Counter.builder("fixpoint.chat.rejected")
+                .description("Chat messages refused before delivery")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sequence, queue for storage and deliver one message. A refused message is acked
+     * REJECTED to the sender; returns whether it was accepted.
+     */
+    public boolean send(Long senderId, ChatSendRequest request) {
+        String content = request.getContent();
+        if (content == null || content.isBlank() || content.length() > MAX_CONTENT_LENGTH) {
+            return reject(senderId, request, "Message must be 1 to " + MAX_CONTENT_LENGTH + " characters");
+        }
+        UserSummary sender = userCache.get(senderId);
+        UserSummary receiver = userCache.get(request.getReceiverId());
+        if (sender == null || receiver == null) {
+            return reject(senderId, request, "Unknown recipient");
+        }
+
+        while (true) {
+            ConversationState state = stateFor(senderId, receiver.getId());
+            synchronized (state) {
+                if (state.evicted) {
+                    // Dropped by evictIdle() between lookup and lock; load it again
+                    continue;
+                }
+                long seq = state.lastSeq + 1;
+                ChatMessage.MessageType type = request.getType() != null ? request.getType() : ChatMessage.MessageType.TEXT;
+
+                ChatMessageResponse payload = new ChatMessageResponse();
+                payload.setConversationId(state.conversationId);
+                payload.setSeq(seq);
+                payload.setClientMessageId(request.getClientMessageId());
+                payload.setContent(content);
+                payload.setType(type);
+                payload.setSender(sender);
+                payload.setReceiver(receiver);
+                payload.setReportId(request.getReportId());
+                payload.setIsRead(false);
+                payload.setCreatedAt(LocalDateTime.now());
+
+                if (!writeBehind.offer(new ChatWriteBehindQueue.PendingChatMessage(state, seq, senderId, receiver.getId(),
+                        request.getReportId(), content, type, request.getClientMessageId(), payload))) {
+                    return reject(senderId, request, "Chat is busy, please retry");
+                }
+                state.lastSeq = seq;
+                state.pending++;
+                state.lastUsedMillis = System.currentTimeMillis();
+
+                // Still under the lock, so frames of one conversation reach the broker in seq order
+                deliver(messagingTemplate, payload);
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Push a message frame to the receiver and, unless they are the same user, the sender.
+     * Callers hold the conversation's lock.
+     */
+    static void deliver(SimpMessagingTemplate messagingTemplate, ChatMessageResponse payload) {
+        Long receiverId = payload.getReceiver().getId();
+        Long senderId = payload.getSender().getId();
+        messagingTemplate.convertAndSendToUser(receiverId.toString(), MESSAGES_DESTINATION, payload);
+        if (!receiverId.equals(senderId)) {
+            messagingTemplate.convertAndSendToUser(senderId.toString(), MESSAGES_DESTINATION, payload);
+        }
+    }
+
+    /**
+     * Forget conversations that have been idle for a while and have nothing left to store;
+     * they are reloaded from their conversation row on the next message
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - conversationIdleMinutes * 60_000;
+        conversations.forEach((key, state) -> conversations.computeIfPresent(key, (k, current) -> {
+            synchronized (current) {
+                if (current.pending == 0 && current.lastUsedMillis < cutoff) {
+                    current.evicted = true;
+                    return null;
+                }
+                return current;
+            }
+        }));
+    }
+
+    /**
+     * Highest seq this node has handed out in the conversation, or 0 when it holds no state for it
+     */
+    long deliveredSeq(Long userId, Long otherUserId) {
+        ConversationState state = conversations.get(keyOf(userId, otherUserId));
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.lastSeq;
+        }
+    }
+
+    private static String keyOf(Long userId, Long otherUserId) {
+        return Math.min(userId, otherUserId) + ":" + Math.max(userId, otherUserId);
+    }
+
+    private ConversationState stateFor(Long userId, Long otherUserId) {
+        String key = keyOf(userId, otherUserId);
+        ConversationState state = conversations.get(key);
+        if (state != null) {
+            return state;
+        }
+        // Loaded outside computeIfAbsent so the database call does not block other keys
+        Conversation conversation = chatService.getOrCreateConversation(userId, otherUserId);
+        return conversations.computeIfAbsent(key, k -> new ConversationState(conversation.getId(), conversation.getLastSeq()));
+    }
+
+    private boolean reject(Long senderId, ChatSendRequest request, String reason) {
+        rejected.increment();
+        logger.debug("Rejected chat message from user {}: {}", senderId, reason);
+        messagingTemplate.convertAndSendToUser(senderId.toString(), ChatWriteBehindQueue.ACKS_DESTINATION,
+                List.of(new ChatAckMessage(request.getClientMessageId(), null, null, null,
+                        ChatAckMessage.Status.REJECTED, reason)));
+        return false;
+    }
+
+    /**
+     * Sequencing state of one conversation on this node; guarded by its own monitor
+     */
+    static class ConversationState {
+        final Long conversationId;
+        long lastSeq;
+        int pending;
+        long lastUsedMillis = System.currentTimeMillis();
+        boolean evicted;
+
+        ConversationState(Long conversationId, long lastSeq) {
+            this.conversationId = conversationId;
+            this.lastSeq = lastSeq;
+        }
+
+        synchronized void completed() {
+            pending--;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatReadReceipt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read receipts for chat. Marking read is one watermark update in {@link ChatService}; the
+ * resulting receipts are held briefly and pushed to the other participants together, one
+ * frame per recipient per flush. A reader that marks read after every incoming message
+ * therefore costs its partner one frame per interval, carrying only the latest watermark.
+ */
+@Service
+public class ChatReadReceipts {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatReadReceipts.class);
+
+    static final String RECEIPTS_DESTINATION = "/queue/chat-receipts";
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatPipeline chatPipeline;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Latest receipt per "conversationId:readerId" not yet pushed
+    private final Map<String, PendingReceipt> pending = new ConcurrentHashMap<>();
+
+    private Counter frames;
+
+    @PostConstruct
+    void registerMeters() {
+        frames = Counter.builder("fixpoint.chat.receipt.frames")
+                .description("Read receipt frames pushed to message senders")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Mark what the reader received from otherUserId read up to seq and schedule the receipt.
+     * Returns the receipt, or null when nothing new was read.
+     */
+    public ChatReadReceipt markRead(Long readerId, Long otherUserId, long seq) {
+        ChatReadReceipt receipt = chatService.markRead(readerId, otherUserId, seq,
+                chatPipeline.deliveredSeq(readerId, otherUserId));
+        if (receipt != null) {
+            pending.merge(receipt.getConversationId() + ":" + readerId, new PendingReceipt(otherUserId, receipt),
+                    (queued, latest) -> latest.receipt.getReadUpToSeq() > queued.receipt.getReadUpToSeq() ? latest : queued);
+        }
+        return receipt;
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.receipts.flush-interval-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, List<ChatReadReceipt>> byRecipient = new LinkedHashMap<>();
+        for (String key : pending.keySet()) {
+            PendingReceipt receipt = pending.remove(key);
+            if (receipt != null) {
+                byRecipient.computeIfAbsent(receipt.recipientId, id -> new ArrayList<>()).add(receipt.receipt);
+            }
+        }
+        byRecipient.forEach((recipientId, receipts) -> {
+            try {
+                messagingTemplate.convertAndSendToUser(recipientId.toString(), RECEIPTS_DESTINATION, receipts);
+                frames.increment();
+            } catch (Exception e) {
+                logger.debug("Could not push read receipts to user {}: {}", recipientId, e.getMessage());
+            }
+        });
+    }
+
+    private static class PendingReceipt {
+        final Long recipientId;
+        final ChatReadReceipt receipt;
+
+        PendingReceipt(Long recipientId, ChatReadReceipt receipt) {
+            this.recipientId = recipientId;
+            this.receipt = receipt;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatHistoryResponse;
+import com.ambiguous.fixpoint.dto.ChatMessageResponse;
+import com.ambiguous.fixpoint.dto.ChatReadReceipt;
+import com.ambiguous.fixpoint.dto.ConversationResponse;
+import com.ambiguous.fixpoint.dto.InboxResponse;
+import com.ambiguous.fixpoint.entity.ChatMessage;
+import com.ambiguous.fixpoint.entity.Conversation;
+import com.ambiguous.fixpoint.repository.ChatMessageRepository;
+import com.ambiguous.fixpoint.repository.ConversationRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Direct chat storage. Every message write also updates its conversation row (last message,
+ * last sequence number, per-participant unread counter), so the inbox reads only the
+ * conversations table and a chat opens on a single keyset page of its messages, whatever the
+ * length of the history. Messages arrive here in batches from {@link ChatWriteBehindQueue};
+ * reads arrive as "read up to seq" watermarks, each a single ranged update.
+ */
+@Service
+public class ChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Inbox order: most recent activity first, id as tie-breaker
+    private static final Comparator<Conversation> NEWEST_FIRST = Comparator
+            .comparing(Conversation::getLastMessageAt)
+            .thenComparing(Conversation::getId)
+            .reversed();
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Store accepted messages, conversation and seq already assigned, and fold them into their
+     * conversations: one batched insert, then two in-place updates per conversation touched.
+     */
+    @Transactional
+    public List<ChatMessage> saveBatch(List<ChatMessage> messages) {
+        // Lock the conversations first: a receiver may already have read past a message that is
+        // only being stored now, and such messages must not count as unread
+        Map<Long, Conversation> conversations = conversationRepository.findAllByIdForUpdate(messages.stream()
+                .map(message -> message.getConversation().getId())
+                .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Conversation::getId, conversation -> conversation));
+        for (ChatMessage message : messages) {
+            Conversation conversation = conversations.get(message.getConversation().getId());
+            if (message.getSeq() <= conversation.getReadSeq(message.getReceiver().getId())) {
+                message.setIsRead(true);
+            }
+        }
+
+        List<ChatMessage> saved = chatMessageRepository.saveAll(messages);
+        chatMessageRepository.flush();
+
+        Map<Long, List<ChatMessage>> byConversation = saved.stream().collect(
+                Collectors.groupingBy(message -> message.getConversation().getId(), LinkedHashMap::new, Collectors.toList()));
+        byConversation.forEach((conversationId, batch) -> {
+            int unreadLow = 0;
+            int unreadHigh = 0;
+            ChatMessage last = batch.get(0);
+            for (ChatMessage message : batch) {
+                // The pair is stored (low id, high id), so the receiver is "low" when its id is smaller
+                if (!Boolean.TRUE.equals(message.getIsRead())) {
+                    if (message.getReceiver().getId() <= message.getSender().getId()) {
+                        unreadLow++;
+                    } else {
+                        unreadHigh++;
+                    }
+                }
+                if (message.getSeq() > last.getSeq()) {
+                    last = message;
+                }
+            }
+            conversationRepository.incrementUnread(conversationId, unreadLow, unreadHigh);
+            conversationRepository.updateLastMessage(conversationId, last.getId(), last.getContent(),
+                    last.getSender().getId(), last.getCreatedAt(), last.getSeq());
+        });
+        return saved;
+    }
+
+    /**
+     * Mark everything the reader has received in the conversation read up to seq, capped at
+     * the highest seq delivered so far (deliveredSeq, or the stored last seq if higher). Three
+     * single-row or single-range statements however many messages it covers. Returns the
+     * receipt, or null when nothing new was read.
+     */
+    @Transactional
+    public ChatReadReceipt markRead(Long readerId, Long otherUserId, long seq, long deliveredSeq) {
+        Conversation conversation = conversationRepository
+                .findByPair(Math.min(readerId, otherUserId), Math.max(readerId, otherUserId))
+                .orElse(null);
+        if (conversation == null) {
+            return null;
+        }
+        long upTo = Math.min(seq, Math.max(conversation.getLastSeq(), deliveredSeq));
+        boolean low = conversation.isLow(readerId);
+        int advanced = low
+                ? conversationRepository.advanceReadSeqLow(conversation.getId(), upTo)
+                : conversationRepository.advanceReadSeqHigh(conversation.getId(), upTo);
+        if (advanced == 0) {
+            return null;
+        }
+
+        LocalDateTime readAt = LocalDateTime.now();
+        int read = chatMessageRepository.markReadUpTo(conversation.getId(), readerId, upTo, readAt);
+        if (read > 0) {
+            conversationRepository.incrementUnread(conversation.getId(), low ? -read : 0, low ? 0 : -read);
+        }
+        return new ChatReadReceipt(conversation.getId(), readerId, upTo, readAt);
+    }
+
+    /**
+     * Unread messages across all of the user's conversations, summed from their counters
+     */
+    @Transactional(readOnly = true)
+    public long getUnreadTotal(Long userId) {
+        return conversationRepository.sumUnreadAsLow(userId) + conversationRepository.sumUnreadAsHigh(userId);
+    }
+
+    /**
+     * Conversation row for the pair, created on first contact. Creation runs in its own
+     * transaction: when two first messages race, the loser hits the unique constraint there
+     * without spoiling the caller's transaction, and reads the winner's row instead.
+     */
+    public Conversation getOrCreateConversation(Long userId, Long otherUserId) {
+        Long lowId = Math.min(userId, otherUserId);
+        Long highId = Math.max(userId, otherUserId);
+        return conversationRepository.findByPair(lowId, highId).orElseGet(() -> {
+            try {
+                newTransaction.executeWithoutResult(status -> conversationRepository.save(
+                        new Conversation(userRepository.getReferenceById(lowId), userRepository.getReferenceById(highId))));
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Conversation {}-{} created concurrently", lowId, highId);
+            }
+            return conversationRepository.findByPair(lowId, highId)
+                    .orElseThrow(() -> new RuntimeException("Conversation could not be created"));
+        });
+    }
+
+    /**
+     * Messages between the two users, newest page first. Omit "before" to open the chat, then
+     * pass back nextCursor to scroll further into the past.
+     */
+    @Transactional(readOnly = true)
+    public ChatHistoryResponse getHistory(Long userId, Long otherUserId, String before, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime beforeTime = before == null || before.isBlank() ? KeysetCursor.END_TIME : KeysetCursor.time(before);
+        long beforeId = before == null || before.isBlank() ? Long.MAX_VALUE : KeysetCursor.id(before);
+
+        Conversation conversation = conversationRepository
+                .findByPair(Math.min(userId, otherUserId), Math.max(userId, otherUserId))
+                .orElse(null);
+        if (conversation == null) {
+            return new ChatHistoryResponse(new ArrayList<>(), before, false);
+        }
+
+        List<ChatMessage> rows = chatMessageRepository.findConversationPageBefore(conversation.getId(),
+                beforeTime, beforeId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessage> page = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+
+        String nextCursor = before;
+        if (!page.isEmpty()) {
+            ChatMessage oldest = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.of(oldest.getCreatedAt(), oldest.getId());
+        }
+        Collections.reverse(page);
+        List<ChatMessageResponse> messages = page.stream()
+                .map(ChatMessageResponse::new)
+                .collect(Collectors.toList());
+        return new ChatHistoryResponse(messages, nextCursor, hasMore);
+    }
+
+    /**
+     * The user's conversations, most recently active first, read from the conversations table
+     * only: one keyset query for each side of the pair, merged here.
+     */
+    @Transactional(readOnly = true)
+    public InboxResponse getInbox(Long userId, String before, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime beforeTime = before == null || before.isBlank() ? KeysetCursor.END_TIME : KeysetCursor.time(before);
+        long beforeId = before == null || before.isBlank() ? Long.MAX_VALUE : KeysetCursor.id(before);
+
+        PageRequest fetch = PageRequest.of(0, pageSize + 1);
+        List<Conversation> rows = new ArrayList<>(
+                conversationRepository.findInboxPageAsLow(userId, beforeTime, beforeId, fetch));
+        rows.addAll(conversationRepository.findInboxPageAsHigh(userId, beforeTime, beforeId, fetch));
+        rows.sort(NEWEST_FIRST);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Conversation> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = before;
+        if (!page.isEmpty()) {
+            Conversation last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.of(last.getLastMessageAt(), last.getId());
+        }
+        List<ConversationResponse> conversations = page.stream()
+                .map(conversation -> new ConversationResponse(conversation, userId))
+                .collect(Collectors.toList());
+        return new InboxResponse(conversations, nextCursor, hasMore);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatMessageResponse;
+import com.ambiguous.fixpoint.dto.UserSummary;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chat participants (id, name, role) cached in memory so sending a message needs no user
+ * lookup. Entries expire after a short TTL, which bounds how long a rename or deactivation
+ * takes to show in chat.
+ */
+@Service
+public class ChatUserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.chat.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.chat.user-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The user as shown in chat, or null if there is no such active user
+     */
+    public UserSummary get(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry == null || now - entry.loadedAt > ttlSeconds * 1000) {
+            if (entries.size() >= maxEntries) {
+                // Crude bound, as for the unread counters: start over rather than track recency
+                entries.clear();
+            }
+            User user = userRepository.findById(userId).orElse(null);
+            boolean active = user != null && !Boolean.FALSE.equals(user.getIsActive());
+            entry = new Entry(active ? ChatMessageResponse.participant(user) : null, now);
+            entries.put(userId, entry);
+        }
+        return entry.summary;
+    }
+
+    public void invalidate(Long userId) {
+        entries.remove(userId);
+    }
+
+    private static class Entry {
+        private final UserSummary summary;
+        private final long loadedAt;
+
+        private Entry(UserSummary summary, long loadedAt) {
+            this.summary = summary;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
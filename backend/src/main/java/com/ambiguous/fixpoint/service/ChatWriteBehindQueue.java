@@ -0,0 +1,322 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatAckMessage;
+import com.ambiguous.fixpoint.dto.ChatMessageResponse;
+import com.ambiguous.fixpoint.entity.ChatMessage;
+import com.ambiguous.fixpoint.repository.ChatMessageRepository;
+import com.ambiguous.fixpoint.repository.ConversationRepository;
+import com.ambiguous.fixpoint.repository.ReportRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages that {@link ChatPipeline} has already delivered.
+ *
+ * A single writer thread takes whatever has queued up (up to the batch size) and stores it in
+ * one transaction, so under load batches grow by themselves and the database sees a few large
+ * commits instead of one per message. After the commit each sender gets one ack frame for all
+ * of its messages in the batch. If a batch fails it is retried message by message. A message
+ * whose seq another node already stored is renumbered past the conversation's last_seq and
+ * delivered again before it is stored; the messages that still fail are acked FAILED so their
+ * senders can send them again.
+ *
+ * Messages accepted but not yet written are lost if the process dies; senders can tell which
+ * ones by the missing SAVED ack.
+ */
+@Service
+public class ChatWriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatWriteBehindQueue.class);
+
+    static final String ACKS_DESTINATION = "/queue/chat-acks";
+
+    // Renumbering races the other node only while both keep sending; a few tries settle it
+    private static final int MAX_RESEQUENCE_ATTEMPTS = 3;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.chat.write-behind.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${app.chat.write-behind.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${app.chat.write-behind.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private BlockingQueue<PendingChatMessage> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Counter persisted;
+    private Counter failed;
+    private Counter resequenced;
+    private DistributionSummary batchSizes;
+    private Timer persistLag;
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        persisted = Counter.builder("fixpoint.chat.persisted")
+                .description("Chat messages stored by the write-behind writer")
+                .register(meterRegistry);
+        failed = Counter.builder("fixpoint.chat.failed")
+                .description("Chat messages delivered but not stored")
+                .register(meterRegistry);
+        resequenced = Counter.builder("fixpoint.chat.resequenced")
+                .description("Chat messages renumbered after another node stored the same seq")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("fixpoint.chat.write-behind.batch.size")
+                .description("Messages stored per write-behind transaction")
+                .register(meterRegistry);
+        persistLag = Timer.builder("fixpoint.chat.write-behind.lag")
+                .description("Time from accepting a chat message to committing it")
+                .register(meterRegistry);
+        Gauge.builder("fixpoint.chat.write-behind.depth", this, ChatWriteBehindQueue::getDepth)
+                .description("Accepted chat messages waiting to be stored")
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::run, "chat-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Stop taking work, write out what is queued, then let the thread end
+        running = false;
+        writer.interrupt();
+        writer.join(shutdownTimeoutMs);
+        if (!queue.isEmpty()) {
+            logger.warn("{} chat messages were not stored before shutdown", queue.size());
+        }
+    }
+
+    /**
+     * Queue an accepted message for storage; false when the queue is full
+     */
+    boolean offer(PendingChatMessage message) {
+        return running && queue.offer(message);
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<PendingChatMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingChatMessage first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                // stop() wakes the thread; the loop condition decides whether work remains
+            } catch (Exception e) {
+                logger.error("Chat write-behind failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<PendingChatMessage> batch) {
+        List<ChatAckMessage> acks = new ArrayList<>(batch.size());
+        try {
+            List<ChatMessage> saved = store(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                acks.add(saved(batch.get(i), saved.get(i)));
+            }
+        } catch (Exception e) {
+            logger.warn("Storing a batch of {} chat messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (PendingChatMessage message : batch) {
+                try {
+                    acks.add(storeAlone(message));
+                } catch (Exception single) {
+                    logger.warn("Chat message {} in conversation {} could not be stored: {}",
+                            message.seq, message.conversationId, single.getMessage());
+                    failed.increment();
+                    acks.add(new ChatAckMessage(message.clientMessageId, message.conversationId, message.seq,
+                            null, ChatAckMessage.Status.FAILED, "Message could not be stored"));
+                }
+            }
+        }
+
+        batchSizes.record(batch.size());
+        long now = System.nanoTime();
+        for (PendingChatMessage message : batch) {
+            persistLag.record(now - message.acceptedAtNanos, TimeUnit.NANOSECONDS);
+            message.state.completed();
+        }
+        sendAcks(batch, acks);
+    }
+
+    // One message in its own transaction, renumbered if its seq turns out to be taken
+    private ChatAckMessage storeAlone(PendingChatMessage message) {
+        PendingChatMessage current = message;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return saved(current, store(List.of(current)).get(0));
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_RESEQUENCE_ATTEMPTS
+                        || !chatMessageRepository.existsBySeq(current.conversationId, current.seq)) {
+                    throw e;
+                }
+                current = resequence(current);
+            }
+        }
+    }
+
+    /**
+     * Give a message whose seq another node already stored the next number past both this
+     * node's numbering and the conversation's stored last_seq, and deliver it again under that
+     * number. Done under the conversation's lock so frames still reach the broker in seq order.
+     */
+    private PendingChatMessage resequence(PendingChatMessage message) {
+        ChatPipeline.ConversationState state = message.state;
+        synchronized (state) {
+            long seq = Math.max(state.lastSeq, conversationRepository.findLastSeq(message.conversationId)) + 1;
+            state.lastSeq = seq;
+            logger.debug("Chat message {} in conversation {} renumbered to {}", message.seq, message.conversationId, seq);
+            resequenced.increment();
+            PendingChatMessage renumbered = message.withSeq(seq);
+            ChatPipeline.deliver(messagingTemplate, renumbered.payload);
+            return renumbered;
+        }
+    }
+
+    private List<ChatMessage> store(List<PendingChatMessage> batch) {
+        return transactionTemplate.execute(status -> {
+            List<ChatMessage> messages = new ArrayList<>(batch.size());
+            for (PendingChatMessage pending : batch) {
+                ChatMessage message = new ChatMessage(pending.content,
+                        userRepository.getReferenceById(pending.senderId),
+                        userRepository.getReferenceById(pending.receiverId),
+                        pending.reportId != null ? reportRepository.getReferenceById(pending.reportId) : null);
+                message.setType(pending.type);
+                message.setConversation(conversationRepository.getReferenceById(pending.conversationId));
+                message.setSeq(pending.seq);
+                messages.add(message);
+            }
+            return chatService.saveBatch(messages);
+        });
+    }
+
+    private ChatAckMessage saved(PendingChatMessage message, ChatMessage stored) {
+        persisted.increment();
+        return new ChatAckMessage(message.clientMessageId, message.conversationId, message.seq,
+                stored.getId(), ChatAckMessage.Status.SAVED, null);
+    }
+
+    // One frame per sender per batch, however many of its messages the batch held
+    private void sendAcks(List<PendingChatMessage> batch, List<ChatAckMessage> acks) {
+        Map<Long, List<ChatAckMessage>> bySender = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            bySender.computeIfAbsent(batch.get(i).senderId, id -> new ArrayList<>()).add(acks.get(i));
+        }
+        bySender.forEach((senderId, senderAcks) -> {
+            try {
+                messagingTemplate.convertAndSendToUser(senderId.toString(), ACKS_DESTINATION, senderAcks);
+            } catch (Exception e) {
+                logger.debug("Could not ack chat messages to user {}: {}", senderId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * A message accepted by the pipeline, with its sequence number already assigned
+     */
+    static class PendingChatMessage {
+        final ChatPipeline.ConversationState state;
+        final Long conversationId;
+        final long seq;
+        final Long senderId;
+        final Long receiverId;
+        final Long reportId;
+        final String content;
+        final ChatMessage.MessageType type;
+        final String clientMessageId;
+        // The frame delivered for this message; re-sent if the message is renumbered
+        final ChatMessageResponse payload;
+        final long acceptedAtNanos = System.nanoTime();
+
+        PendingChatMessage(ChatPipeline.ConversationState state, long seq, Long senderId, Long receiverId,
+                           Long reportId, String content, ChatMessage.MessageType type, String clientMessageId,
+                           ChatMessageResponse payload) {
+            this.state = state;
+            this.conversationId = state.conversationId;
+            this.seq = seq;
+            this.senderId = senderId;
+            this.receiverId = receiverId;
+            this.reportId = reportId;
+            this.content = content;
+            this.type = type;
+            this.clientMessageId = clientMessageId;
+            this.payload = payload;
+        }
+
+        PendingChatMessage withSeq(long seq) {
+            ChatMessageResponse renumbered = new ChatMessageResponse();
+            renumbered.setConversationId(payload.getConversationId());
+            renumbered.setSeq(seq);
+            renumbered.setClientMessageId(payload.getClientMessageId());
+            renumbered.setContent(payload.getContent());
+            renumbered.setType(payload.getType());
+            renumbered.setSender(payload.getSender());
+            renumbered.setReceiver(payload.getReceiver());
+            renumbered.setReportId(payload.getReportId());
+            renumbered.setIsRead(payload.getIsRead());
+            renumbered.setCreatedAt(payload.getCreatedAt());
+            return new PendingChatMessage(state, seq, senderId, receiverId, reportId, content, type,
+                    clientMessageId, renumbered);
+        }
+    }
+}
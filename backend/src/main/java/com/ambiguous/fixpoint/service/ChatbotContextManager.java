@@ -0,0 +1,379 @@
+package com.ambiguous.fixpoint.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds chatbot prompts with memory of the session's earlier turns at a bounded size.
+ *
+ * The last few turns go into the prompt verbatim. Turns older than that are folded, a batch at a
+ * time and off the request path, into a short running summary written by the AI (or, if that
+ * fails, a list of the questions asked). Every prompt starts with the same fixed instructions so
+ * providers that cache repeated prompt prefixes can reuse them, and is cut to a token budget:
+ * the question and instructions always fit, then the summary, then as many recent turns as room
+ * allows, newest first. Tokens are estimated at four characters each.
+ *
+ * Sessions live in memory, at most max-sessions of them with the least recently used dropped
+ * first, and are also dropped after they have been idle a while. A session is only kept once a
+ * turn is recorded for it; a session this node does not know yet is seeded from the
+ * previousMessages the web app sends as context.
+ */
+@Service
+public class ChatbotContextManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatbotContextManager.class);
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    // Identical on every call and always first, so it is the prefix providers can cache
+    static final String SYSTEM_PROMPT = """
+            You are FixPoint AI, a helpful assistant for civic engagement in Bangladesh.
+
+            You help users with:
+            • Civic issues and reporting problems to authorities
+            • Government services and procedures in Bangladesh
+            • Educational questions and career guidance
+            • Technology support and troubleshooting
+            • General life advice and information
+
+            CRITICAL INSTRUCTIONS:
+            • Be helpful, direct, and informative
+            • Use UPPERCASE for emphasis instead of HTML tags
+            • Use emojis to make responses engaging and friendly 🤖
+            • Use bullet points (•) and numbered lists for organization
+            • Provide specific, actionable advice
+            • When relevant, mention FixPoint's reporting features
+            • For Bangladesh-specific questions, provide local context
+            • NEVER TRUNCATE - Always complete your full response
+            • Write detailed, comprehensive answers with full explanations
+            • Always finish all points you start making
+            • Use line breaks and spacing for readability
+            • Avoid any HTML tags or special formatting that might get encoded
+            • PRIORITY: Complete responses over brevity - give full detailed answers
+            • Continue until you've covered the topic thoroughly
+            • Earlier turns of the conversation may follow; use them to understand follow-up questions
+            """;
+
+    @Autowired
+    private MultiAIService multiAIService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.chatbot.context.recent-turns:4}")
+    private int recentTurns;
+
+    @Value("${app.chatbot.context.token-budget:2000}")
+    private int tokenBudget;
+
+    // Folded turns are summarized once this many have accumulated
+    @Value("${app.chatbot.context.summarize-every:4}")
+    private int summarizeEvery;
+
+    @Value("${app.chatbot.context.summary-tokens:250}")
+    private int summaryTokens;
+
+    @Value("${app.chatbot.context.session-idle-minutes:30}")
+    private long sessionIdleMinutes;
+
+    @Value("${app.chatbot.context.max-sessions:10000}")
+    private int maxSessions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Access-ordered, so the eldest entry is the least recently used; guarded by its own monitor
+    private Map<String, Session> sessions;
+
+    private ExecutorService summarizer;
+
+    private DistributionSummary promptTokens;
+    private Counter summaries;
+    private Counter fallbackSummaries;
+
+    @PostConstruct
+    void start() {
+        sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxSessions;
+            }
+        };
+        summarizer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(100), r -> {
+            Thread thread = new Thread(r, "chatbot-summarizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        promptTokens = DistributionSummary.builder("fixpoint.chatbot.prompt.tokens")
+                .description("Estimated tokens in each chatbot prompt")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        summaries = Counter.builder("fixpoint.chatbot.context.summaries")
+                .description("Conversation summaries refreshed by the AI")
+                .register(meterRegistry);
+        fallbackSummaries = Counter.builder("fixpoint.chatbot.context.summaries.fallback")
+                .description("Conversation summaries refreshed without the AI after it failed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        summarizer.shutdownNow();
+    }
+
+    /**
+     * Whether the session has earlier turns that would shape the answer
+     */
+    public boolean hasTurns(String sessionId) {
+        Session session = session(sessionId);
+        if (session == null) {
+            return false;
+        }
+        synchronized (session) {
+            return !session.recent.isEmpty() || !session.folded.isEmpty() || session.summary != null;
+        }
+    }
+
+    /**
+     * Full prompt for the next question in the session, within the token budget
+     */
+    public String buildPrompt(String sessionId, String context, String username, String message) {
+        // Not registered here: only recordTurn keeps a session
+        Session session = session(sessionId);
+        if (session == null) {
+            session = seed(context);
+        }
+
+        String header = SYSTEM_PROMPT + "\nUser: "
+                + (username != null && !username.equals("anonymous") && !username.startsWith("session_") ? username : "Citizen");
+        int remaining = tokenBudget * CHARS_PER_TOKEN - header.length();
+        String question = "\n\nUser: " + truncate(message, Math.max(remaining, 0) - "\n\nUser: ".length());
+        remaining -= question.length();
+
+        String summary;
+        List<Turn> turns;
+        synchronized (session) {
+            session.lastUsedMillis = System.currentTimeMillis();
+            summary = session.summary;
+            turns = new ArrayList<>(session.folded);
+            turns.addAll(session.recent);
+        }
+
+        StringBuilder memory = new StringBuilder();
+        if (summary != null && remaining > 0) {
+            String block = truncate("\n\nSummary of the conversation so far:\n" + summary, remaining);
+            memory.append(block);
+            remaining -= block.length();
+        }
+        // Newest turns first until the budget runs out, then put back in conversation order
+        String recentHeading = "\n\nRecent conversation:";
+        remaining -= recentHeading.length();
+        List<String> kept = new ArrayList<>();
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            String turn = turns.get(i).format();
+            if (turn.length() > remaining) {
+                break;
+            }
+            kept.add(0, turn);
+            remaining -= turn.length();
+        }
+        if (!kept.isEmpty()) {
+            memory.append(recentHeading);
+            kept.forEach(memory::append);
+        }
+
+        String prompt = header + memory + question;
+        promptTokens.record(estimateTokens(prompt));
+        return prompt;
+    }
+
+    /**
+     * Remember an answered question. Turns pushed out of the verbatim window are queued for the
+     * summary, which is refreshed in the background once enough of them have piled up.
+     */
+    public void recordTurn(String sessionId, String context, String message, String response) {
+        Session session;
+        synchronized (sessions) {
+            session = sessions.computeIfAbsent(sessionId, id -> seed(context));
+        }
+        boolean refresh;
+        synchronized (session) {
+            session.lastUsedMillis = System.currentTimeMillis();
+            session.recent.addLast(new Turn(message, response));
+            while (session.recent.size() > recentTurns) {
+                session.folded.add(session.recent.removeFirst());
+            }
+            refresh = !session.summarizing && session.folded.size() >= summarizeEvery;
+            if (refresh) {
+                session.summarizing = true;
+            }
+        }
+        if (refresh) {
+            try {
+                summarizer.execute(() -> refreshSummary(session));
+            } catch (RejectedExecutionException e) {
+                // Summarizer backed up: fold without the AI rather than let the session grow
+                applySummary(session, null, 0);
+            }
+        }
+    }
+
+    private void refreshSummary(Session session) {
+        String previous;
+        List<Turn> batch;
+        synchronized (session) {
+            previous = session.summary;
+            batch = new ArrayList<>(session.folded);
+        }
+        String summary = null;
+        try {
+            summary = multiAIService.requestChatResponse(summaryPrompt(previous, batch));
+        } catch (Exception e) {
+            logger.debug("Could not summarize chatbot conversation: {}", e.getMessage());
+        }
+        applySummary(session, summary == null || summary.isBlank() ? null : summary.trim(), batch.size());
+    }
+
+    // Replace the summarized turns with the new summary; without one, list the questions of every folded turn
+    private void applySummary(Session session, String summary, int summarized) {
+        synchronized (session) {
+            if (summary == null) {
+                summarized = session.folded.size();
+                StringBuilder questions = new StringBuilder(session.summary == null ? "" : session.summary);
+                for (Turn turn : session.folded) {
+                    questions.append("\n- The user asked: ").append(truncate(turn.question, 150));
+                }
+                summary = questions.toString().trim();
+                fallbackSummaries.increment();
+            } else {
+                summaries.increment();
+            }
+            // Keep the most recent part when even the fallback outgrows its budget
+            int limit = summaryTokens * CHARS_PER_TOKEN;
+            session.summary = summary.length() > limit ? summary.substring(summary.length() - limit) : summary;
+            session.folded.subList(0, summarized).clear();
+            session.summarizing = false;
+        }
+    }
+
+    private String summaryPrompt(String previous, List<Turn> batch) {
+        StringBuilder prompt = new StringBuilder("Summarize this conversation between a citizen and FixPoint AI in at most ")
+                .append(summaryTokens * 3 / 4)
+                .append(" words. Keep names, places, report details and open questions; plain text only.");
+        if (previous != null) {
+            prompt.append("\n\nSummary so far:\n").append(previous);
+        }
+        prompt.append("\n\nNewer turns:");
+        batch.forEach(turn -> prompt.append(turn.format()));
+        return prompt.toString();
+    }
+
+    // A session unknown here picks up the turns the web app still shows
+    private Session seed(String context) {
+        Session session = new Session();
+        if (context == null || context.isBlank()) {
+            return session;
+        }
+        try {
+            String question = null;
+            for (JsonNode previous : objectMapper.readTree(context).path("previousMessages")) {
+                String text = previous.path("text").asText("");
+                if (!previous.path("isBot").asBoolean(false)) {
+                    question = text;
+                } else if (question != null) {
+                    session.recent.addLast(new Turn(question, text));
+                    question = null;
+                }
+            }
+            while (session.recent.size() > recentTurns) {
+                session.recent.removeFirst();
+            }
+        } catch (Exception e) {
+            // Free-form context: nothing to seed from
+        }
+        return session;
+    }
+
+    /**
+     * Forget sessions nobody has written to for a while; nothing about them is stored
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - sessionIdleMinutes * 60_000;
+        synchronized (sessions) {
+            sessions.values().removeIf(session -> {
+                synchronized (session) {
+                    return !session.summarizing && session.lastUsedMillis < cutoff;
+                }
+            });
+        }
+    }
+
+    public int getSessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private Session session(String sessionId) {
+        synchronized (sessions) {
+            return sessions.get(sessionId);
+        }
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private static String truncate(String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        return maxChars <= 1 ? "" : text.substring(0, maxChars - 1) + "…";
+    }
+
+    private static class Turn {
+        private final String question;
+        private final String answer;
+
+        private Turn(String question, String answer) {
+            this.question = question;
+            this.answer = answer;
+        }
+
+        private String format() {
+            return "\nUser: " + question + "\nFixPoint AI: " + answer;
+        }
+    }
+
+    private static class Session {
+        private final Deque<Turn> recent = new ArrayDeque<>();
+        // Out of the verbatim window, not yet in the summary
+        private final List<Turn> folded = new ArrayList<>();
+        private String summary;
+        private boolean summarizing;
+        private long lastUsedMillis = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,273 @@
+package com.ambiguous.fixpoint.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chatbot answers for questions asked without any conversation around them, shared across
+ * anonymous sessions so the same civic FAQ is paid for once per TTL instead of once per visitor.
+ *
+ * Questions are matched on normalized text (case, punctuation and spacing ignored). Failing an
+ * exact match, a question may reuse the answer of a cached one whose word-pair shingles overlap
+ * by at least the fuzzy threshold (Jaccard) and whose words differ only in filler such as
+ * "please" or "thanks". Shingle overlap alone would pair long questions that differ in a single
+ * word, e.g. the place name at the end. The cache is bounded by entry count (least recently used
+ * first out) and by age.
+ */
+@Service
+public class ChatbotResponseCache {
+
+    // Words a near match may add or drop; any other differing word is a different question
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "please", "pls", "plz", "kindly", "thanks", "thank", "you", "hi", "hello", "hey",
+            "ok", "okay", "just", "the", "a", "an");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.chatbot.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chatbot.cache.ttl-minutes:360}")
+    private long ttlMinutes;
+
+    @Value("${app.chatbot.cache.max-entries:1000}")
+    private int maxEntries;
+
+    // Minimum shingle overlap for a near match; 0 turns fuzzy matching off
+    @Value("${app.chatbot.cache.fuzzy-threshold:0.8}")
+    private double fuzzyThreshold;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Access-ordered, so the eldest entry is the least recently used; guarded by its own monitor
+    private Map<String, Entry> entries;
+
+    private Counter hits;
+    private Counter fuzzyHits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        hits = lookups("hit");
+        fuzzyHits = lookups("fuzzy");
+        misses = lookups("miss");
+        Gauge.builder("fixpoint.chatbot.cache.size", this, ChatbotResponseCache::size)
+                .description("Chatbot answers currently cached")
+                .register(meterRegistry);
+    }
+
+    private Counter lookups(String result) {
+        return Counter.builder("fixpoint.chatbot.cache.lookups")
+                .description("Chatbot response cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the answer to this request depends on nothing but the question: an anonymous
+     * session, and a context that carries no earlier user turns. Free-form context that is
+     * not the web app's JSON is treated as meaningful.
+     */
+    public boolean isCacheable(String context, String username) {
+        if (!enabled) {
+            return false;
+        }
+        if (username != null && !"anonymous".equals(username) && !username.startsWith("session_")) {
+            return false;
+        }
+        if (context == null || context.isBlank()) {
+            return true;
+        }
+        try {
+            for (JsonNode previous : objectMapper.readTree(context).path("previousMessages")) {
+                if (!previous.path("isBot").asBoolean(false)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cached answer for the question, exact or near match, or null
+     */
+    public String get(String message) {
+        String key = normalize(message);
+        if (key.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry exact = entries.get(key);
+            if (exact != null && !exact.isExpired(now)) {
+                hits.increment();
+                return exact.response;
+            }
+            if (exact != null) {
+                entries.remove(key);
+            }
+            if (fuzzyThreshold > 0) {
+                // Linear scan, bounded by max-entries; fine for a few thousand short questions
+                Set<String> shingles = shingles(key);
+                Set<String> words = words(key);
+                Entry best = null;
+                double bestScore = fuzzyThreshold;
+                for (Entry entry : entries.values()) {
+                    double score = similarity(shingles, entry.shingles);
+                    if (score >= bestScore && !entry.isExpired(now) && differsOnlyInFiller(words, entry.words)) {
+                        best = entry;
+                        bestScore = score;
+                    }
+                }
+                if (best != null) {
+                    fuzzyHits.increment();
+                    return best.response;
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String message, String response) {
+        String key = normalize(message);
+        if (key.isEmpty() || response == null || response.isBlank()) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMinutes * 60_000;
+        synchronized (entries) {
+            entries.put(key, new Entry(response, shingles(key), words(key), expiresAt));
+        }
+    }
+
+    /**
+     * Drop every cached answer; returns how many there were
+     */
+    public int purge() {
+        synchronized (entries) {
+            int size = entries.size();
+            entries.clear();
+            return size;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        double hitCount = hits.count();
+        double fuzzyCount = fuzzyHits.count();
+        double lookups = hitCount + fuzzyCount + misses.count();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMinutes", ttlMinutes);
+        stats.put("hits", (long) hitCount);
+        stats.put("fuzzyHits", (long) fuzzyCount);
+        stats.put("misses", (long) misses.count());
+        stats.put("hitRate", lookups > 0 ? (hitCount + fuzzyCount) / lookups : 0.0);
+        return stats;
+    }
+
+    static String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        return Normalizer.normalize(message, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    // Adjacent word pairs; a one-word question is its own single shingle
+    static Set<String> shingles(String normalized) {
+        String[] words = normalized.split(" ");
+        Set<String> shingles = new HashSet<>();
+        if (words.length == 1) {
+            shingles.add(words[0]);
+        }
+        for (int i = 0; i + 1 < words.length; i++) {
+            shingles.add(words[i] + " " + words[i + 1]);
+        }
+        return shingles;
+    }
+
+    static Set<String> words(String normalized) {
+        return new HashSet<>(Arrays.asList(normalized.split(" ")));
+    }
+
+    // Every word in only one of the two questions is filler
+    static boolean differsOnlyInFiller(Set<String> a, Set<String> b) {
+        for (String word : a) {
+            if (!b.contains(word) && !FILLER_WORDS.contains(word)) {
+                return false;
+            }
+        }
+        for (String word : b) {
+            if (!a.contains(word) && !FILLER_WORDS.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int shared = 0;
+        for (String shingle : a) {
+            if (b.contains(shingle)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private static class Entry {
+        private final String response;
+        private final Set<String> shingles;
+        private final Set<String> words;
+        private final long expiresAt;
+
+        private Entry(String response, Set<String> shingles, Set<String> words, long expiresAt) {
+            this.response = response;
+            this.shingles = shingles;
+            this.words = words;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
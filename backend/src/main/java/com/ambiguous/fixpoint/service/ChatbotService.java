@@ -1,43 +1,79 @@
 package com.ambiguous.fixpoint.service;
 
+import com.ambiguous.fixpoint.dto.ChatbotHistoryEntry;
+import com.ambiguous.fixpoint.dto.ChatbotHistoryResponse;
 import com.ambiguous.fixpoint.entity.ChatbotConversation;
 import com.ambiguous.fixpoint.repository.ChatbotConversationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
 public class ChatbotService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 50;
+
     @Autowired
     private ChatbotConversationRepository conversationRepository;
 
     @Autowired
     private MultiAIService multiAIService;
 
+    @Autowired
+    private ChatbotResponseCache responseCache;
+
+    @Autowired
+    private ChatbotContextManager contextManager;
+
+    @Value("${app.chatbot.history.preview-length:200}")
+    private int previewLength;
+
     /**
-     * Generate chatbot response using AI service
+     * Generate chatbot response using AI service. The prompt carries the session's earlier turns
+     * (see {@link ChatbotContextManager}); questions from anonymous sessions without prior turns
+     * are answered from, and stored in, the shared response cache. The turn is added to the
+     * session's memory only when remember is set.
      */
-    public String generateResponse(String message, String context, String username) {
+    public String generateResponse(String message, String context, String username, boolean remember) {
+        boolean cacheable = isCacheable(context, username);
+        if (cacheable) {
+            String cached = responseCache.get(message);
+            if (cached != null) {
+                if (remember) {
+                    contextManager.recordTurn(username, context, message, cached);
+                }
+                return cached;
+            }
+        }
+        
         try {
-            // Build simple system prompt
-            String systemPrompt = buildSystemPrompt(context, username);
-            String fullPrompt = systemPrompt + "\n\nUser: " + message;
+            String fullPrompt = contextManager.buildPrompt(username, context, username, message);
             
             // Get AI response
-            String aiResponse = multiAIService.generateChatResponse(fullPrompt);
+            String aiResponse = multiAIService.requestChatResponse(fullPrompt);
+            if (aiResponse == null) {
+                return MultiAIService.CHAT_UNAVAILABLE_MESSAGE;
+            }
             
-            if (aiResponse != null && !aiResponse.trim().isEmpty()) {
+            if (!aiResponse.trim().isEmpty()) {
                 // Save conversation if username is not anonymous and not a temporary session
                 if (!"anonymous".equals(username) && !username.startsWith("session_")) {
                     saveConversation(username, message, aiResponse);
                 }
+                if (cacheable) {
+                    responseCache.put(message, aiResponse);
+                }
+                if (remember) {
+                    contextManager.recordTurn(username, context, message, aiResponse);
+                }
                 return aiResponse;
             }
         } catch (Exception e) {
@@ -50,36 +86,62 @@ public class ChatbotService {
     }
 
     /**
-     * Build system prompt for AI
+     * Streaming variant of generateResponse: hands the answer to onToken piece by piece as the
+     * provider generates it, and saves the conversation only once the stream has completed.
+     * Returns the full answer, or null if the provider failed; when that happens before any
+     * text was sent, the usual fallback message is sent instead.
      */
-    private String buildSystemPrompt(String context, String username) {
-        return """
-            You are FixPoint AI, a helpful assistant for civic engagement in Bangladesh.
-            
-            You help users with:
-            • Civic issues and reporting problems to authorities
-            • Government services and procedures in Bangladesh
-            • Educational questions and career guidance
-            • Technology support and troubleshooting
-            • General life advice and information
-            
-            CRITICAL INSTRUCTIONS:
-            • Be helpful, direct, and informative
-            • Use UPPERCASE for emphasis instead of HTML tags
-            • Use emojis to make responses engaging and friendly 🤖
-            • Use bullet points (•) and numbered lists for organization
-            • Provide specific, actionable advice
-            • When relevant, mention FixPoint's reporting features
-            • For Bangladesh-specific questions, provide local context
-            • NEVER TRUNCATE - Always complete your full response
-            • Write detailed, comprehensive answers with full explanations
-            • Always finish all points you start making
-            • Use line breaks and spacing for readability
-            • Avoid any HTML tags or special formatting that might get encoded
-            • PRIORITY: Complete responses over brevity - give full detailed answers
-            • Continue until you've covered the topic thoroughly
+    public String streamResponse(String message, String context, String username, boolean remember,
+                                 Consumer<String> onToken) {
+        boolean cacheable = isCacheable(context, username);
+        if (cacheable) {
+            String cached = responseCache.get(message);
+            if (cached != null) {
+                if (remember) {
+                    contextManager.recordTurn(username, context, message, cached);
+                }
+                onToken.accept(cached);
+                return cached;
+            }
+        }
+        
+        AtomicBoolean started = new AtomicBoolean();
+        try {
+            String fullPrompt = contextManager.buildPrompt(username, context, username, message);
+            String aiResponse = multiAIService.streamChatResponse(fullPrompt, token -> {
+                started.set(true);
+                onToken.accept(token);
+            });
             
-            User: """ + (username != null && !username.equals("anonymous") ? username : "Citizen");
+            if (aiResponse != null && !aiResponse.trim().isEmpty()) {
+                if (!"anonymous".equals(username) && !username.startsWith("session_")) {
+                    saveConversation(username, message, aiResponse);
+                }
+                if (!MultiAIService.CHAT_UNAVAILABLE_MESSAGE.equals(aiResponse)) {
+                    if (cacheable) {
+                        responseCache.put(message, aiResponse);
+                    }
+                    if (remember) {
+                        contextManager.recordTurn(username, context, message, aiResponse);
+                    }
+                }
+                return aiResponse;
+            }
+        } catch (Exception e) {
+            // Also reached when the client goes away mid-answer: reading stops and nothing is saved
+            System.err.println("AI streaming error: " + e.getMessage());
+        }
+        
+        if (!started.get()) {
+            onToken.accept("🤖 I'm having trouble connecting to my AI services right now. " +
+                           "Please try again in a moment! If the issue persists, contact support.");
+        }
+        return null;
+    }
+
+    // The answer may come from the shared cache only when nothing said earlier could change it
+    private boolean isCacheable(String context, String username) {
+        return responseCache.isCacheable(context, username) && !contextManager.hasTurns(username);
     }
 
     /**
@@ -102,35 +164,43 @@ public class ChatbotService {
      * Get conversation history for a user
      */
     public List<ChatbotConversation> getConversationHistory(String username, int limit) {
-        return conversationRepository.findByUsernameOrderByCreatedAtDesc(username)
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        return conversationRepository.findRecentConversationsByUsername(username, PageRequest.of(0, limit));
     }
 
     /**
-     * Get conversation history for API response
+     * One newest-first page of a session's history. Omit "before" for the latest exchanges and
+     * pass back nextCursor for older ones. In summary mode the database returns only previews
+     * of previewLength characters; fetch a single exchange with getConversation for its full text.
      */
-    public List<Map<String, Object>> getConversationHistory(String sessionId) {
-        try {
-            List<ChatbotConversation> conversations = conversationRepository.findByUsernameOrderByCreatedAtDesc(sessionId)
-                    .stream()
-                    .limit(20)
-                    .collect(Collectors.toList());
-            
-            return conversations.stream().map(conv -> {
-                Map<String, Object> convMap = new HashMap<>();
-                convMap.put("id", conv.getId());
-                convMap.put("userMessage", conv.getUserMessage());
-                convMap.put("botResponse", conv.getBotResponse());
-                convMap.put("timestamp", conv.getCreatedAt().toString());
-                convMap.put("sessionId", conv.getUsername()); // Using username field for sessionId
-                return convMap;
-            }).collect(Collectors.toList());
-        } catch (Exception e) {
-            System.err.println("Error getting conversation history: " + e.getMessage());
-            return new ArrayList<>();
+    public ChatbotHistoryResponse getHistoryPage(String sessionId, String before, int limit, boolean summary) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        LocalDateTime beforeTime = before == null || before.isBlank() ? KeysetCursor.END_TIME : KeysetCursor.time(before);
+        long beforeId = before == null || before.isBlank() ? Long.MAX_VALUE : KeysetCursor.id(before);
+        PageRequest fetch = PageRequest.of(0, pageSize + 1);
+
+        List<ChatbotHistoryEntry> rows = summary
+                ? conversationRepository.findHistorySummaryPage(sessionId, beforeTime, beforeId, previewLength, fetch)
+                : conversationRepository.findHistoryPage(sessionId, beforeTime, beforeId, fetch).stream()
+                        .map(ChatbotHistoryEntry::new)
+                        .collect(Collectors.toList());
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatbotHistoryEntry> page = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        String nextCursor = before;
+        if (!page.isEmpty()) {
+            ChatbotHistoryEntry oldest = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.of(LocalDateTime.parse(oldest.getTimestamp()), oldest.getId());
         }
+        return new ChatbotHistoryResponse(page, sessionId, nextCursor, hasMore);
+    }
+
+    /**
+     * Full text of one exchange from the session's history, or null if it is not the session's
+     */
+    public ChatbotHistoryEntry getConversation(String sessionId, Long id) {
+        return conversationRepository.findByIdAndUsername(id, sessionId)
+                .map(ChatbotHistoryEntry::new)
+                .orElse(null);
     }
 
     /**
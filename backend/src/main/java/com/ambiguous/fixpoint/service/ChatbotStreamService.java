@@ -0,0 +1,136 @@
+package com.ambiguous.fixpoint.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams chatbot answers to the browser as server-sent events while the AI provider is still
+ * generating them, so the first words show up after the provider's first chunk rather than
+ * after the whole answer.
+ *
+ * Events: "session" (sessionId) straight away, one "token" ({text}) per provider chunk, then
+ * "done" ({sessionId, complete, responseTime, timestamp}). Each answer holds one thread of a
+ * bounded pool for its duration; when the pool and its queue are full, new streams are
+ * refused. A client that disconnects stops the provider read at the next chunk.
+ */
+@Service
+public class ChatbotStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatbotStreamService.class);
+
+    @Autowired
+    private ChatbotService chatbotService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.chatbot.stream.threads:8}")
+    private int threads;
+
+    @Value("${app.chatbot.stream.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${app.chatbot.stream.timeout-ms:120000}")
+    private long timeoutMs;
+
+    private ExecutorService streams;
+
+    private Timer firstToken;
+    private Timer duration;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        streams = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "chatbot-stream-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        firstToken = Timer.builder("fixpoint.chatbot.first-token")
+                .description("Time from a streaming chatbot request to its first text")
+                .register(meterRegistry);
+        duration = Timer.builder("fixpoint.chatbot.stream.duration")
+                .description("Time to stream a whole chatbot answer")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        streams.shutdownNow();
+    }
+
+    /**
+     * Start answering in the background and return the emitter the answer is streamed into.
+     * Throws RejectedExecutionException when too many answers are already streaming.
+     */
+    public SseEmitter stream(String message, String context, String sessionId, boolean remember) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        long startedAt = System.nanoTime();
+        streams.execute(() -> answer(emitter, closed, startedAt, message, context, sessionId, remember));
+        return emitter;
+    }
+
+    private void answer(SseEmitter emitter, AtomicBoolean closed, long startedAt,
+                        String message, String context, String sessionId, boolean remember) {
+        AtomicBoolean first = new AtomicBoolean(true);
+        try {
+            Map<String, Object> session = new HashMap<>();
+            session.put("sessionId", sessionId);
+            emitter.send(SseEmitter.event().name("session").data(session));
+
+            String response = chatbotService.streamResponse(message, context, sessionId, remember, token -> {
+                if (closed.get()) {
+                    throw new IllegalStateException("Client disconnected");
+                }
+                if (first.compareAndSet(true, false)) {
+                    firstToken.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+                Map<String, Object> chunk = new HashMap<>();
+                chunk.put("text", token);
+                try {
+                    emitter.send(SseEmitter.event().name("token").data(chunk));
+                } catch (IOException e) {
+                    closed.set(true);
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            long elapsed = System.nanoTime() - startedAt;
+            duration.record(elapsed, TimeUnit.NANOSECONDS);
+            Map<String, Object> done = new HashMap<>();
+            done.put("sessionId", sessionId);
+            done.put("complete", response != null);
+            done.put("responseTime", TimeUnit.NANOSECONDS.toMillis(elapsed));
+            done.put("timestamp", System.currentTimeMillis());
+            emitter.send(SseEmitter.event().name("done").data(done));
+            emitter.complete();
+        } catch (Exception e) {
+            logger.debug("Chatbot stream for {} ended early: {}", sessionId, e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.Comment;
+import com.ambiguous.fixpoint.entity.CommentReaction;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.CommentReactionRepository;
+import com.ambiguous.fixpoint.repository.CommentRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Toggles comment reactions and keeps the per-type counters on {@link Comment} in step with
+ * the comment_reactions rows, in the same transaction.
+ *
+ * The user's existing reaction row is locked before it is changed, so concurrent toggles by
+ * one user serialize. When there is no row yet, two first clicks race on the (user, comment)
+ * unique constraint; the loser's transaction is rolled back and the toggle retried, at which
+ * point it sees the winner's row. Counters move by atomic in-place UPDATEs, never by
+ * read-modify-write, so toggles by different users never lose increments.
+ */
+@Service
+public class CommentReactionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentReactionService.class);
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private CommentReactionRepository reactionRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Same type as the user's current reaction removes it, another type replaces it, and no
+     * reaction yet adds one. Runs in its own transaction(s); do not call inside another one.
+     */
+    public void toggleReaction(Long commentId, Long userId, CommentReaction.ReactionType type) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyToggle(commentId, userId, type));
+                return;
+            } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Reaction toggle on comment {} by user {} conflicted, retrying", commentId, userId);
+            }
+        }
+    }
+
+    private void applyToggle(Long commentId, Long userId, CommentReaction.ReactionType type) {
+        Map<CommentReaction.ReactionType, Integer> deltas = new EnumMap<>(CommentReaction.ReactionType.class);
+        CommentReaction existing = reactionRepository.findByUserIdAndCommentIdForUpdate(userId, commentId).orElse(null);
+
+        if (existing == null) {
+            Comment comment = commentRepository.getReferenceById(commentId);
+            User user = userRepository.getReferenceById(userId);
+            // Flush now so a concurrent first reaction surfaces as a constraint violation here
+            reactionRepository.saveAndFlush(new CommentReaction(type, user, comment));
+            deltas.put(type, 1);
+        } else if (existing.getType() == type) {
+            reactionRepository.deleteByIdDirect(existing.getId());
+            deltas.put(type, -1);
+        } else {
+            reactionRepository.updateType(existing.getId(), type);
+            deltas.put(existing.getType(), -1);
+            deltas.put(type, 1);
+        }
+
+        // Counter row last: it is the contended one, so hold its lock for as short as possible
+        commentRepository.adjustReactionCounts(commentId,
+                deltas.getOrDefault(CommentReaction.ReactionType.LIKE, 0),
+                deltas.getOrDefault(CommentReaction.ReactionType.LOVE, 0),
+                deltas.getOrDefault(CommentReaction.ReactionType.HAHA, 0),
+                deltas.getOrDefault(CommentReaction.ReactionType.WOW, 0),
+                deltas.getOrDefault(CommentReaction.ReactionType.SAD, 0),
+                deltas.getOrDefault(CommentReaction.ReactionType.ANGRY, 0));
+    }
+}
@@ -0,0 +1,208 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.CommentPageResponse;
+import com.ambiguous.fixpoint.dto.CommentResponse;
+import com.ambiguous.fixpoint.dto.CommentSummaryResponse;
+import com.ambiguous.fixpoint.dto.UserSummary;
+import com.ambiguous.fixpoint.entity.Comment;
+import com.ambiguous.fixpoint.entity.CommentReaction;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.CommentReactionRepository;
+import com.ambiguous.fixpoint.repository.CommentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds comment responses with a fixed number of queries regardless of thread size: one for
+ * the comments (with authors and their reaction counters) and one IN query for the current
+ * user's reactions. Reply trees are assembled in memory.
+ *
+ * Large threads are read in keyset pages on (createdAt, id) instead of as a whole tree; a
+ * page's comments carry reply counts and their replies are paged separately.
+ */
+@Service
+public class CommentThreadService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int MAX_SUMMARY_SIZE = 20;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private CommentReactionRepository reactionRepository;
+
+    /**
+     * Full comment tree of a report: top-level comments in creation order, each with its
+     * replies nested to any depth
+     */
+    @Transactional(readOnly = true)
+    public List<CommentResponse> getThread(Long reportId, Long currentUserId) {
+        List<Comment> comments = commentRepository.findThreadByReportId(reportId);
+        Map<Long, CommentResponse> responses = toResponses(comments, currentUserId);
+
+        responses.values().forEach(response -> response.setReplies(new ArrayList<>()));
+        List<CommentResponse> roots = new ArrayList<>();
+        for (Comment comment : comments) {
+            CommentResponse response = responses.get(comment.getId());
+            Comment parent = comment.getParentComment();
+            CommentResponse parentResponse = parent != null ? responses.get(parent.getId()) : null;
+            if (parentResponse != null) {
+                parentResponse.getReplies().add(response);
+            } else {
+                roots.add(response);
+            }
+        }
+        responses.values().forEach(response -> response.setReplyCount((long) response.getReplies().size()));
+        return roots;
+    }
+
+    /**
+     * Page of top-level comments after the cursor (null for the first page), oldest first
+     */
+    @Transactional(readOnly = true)
+    public CommentPageResponse getTopLevelPage(Long reportId, String after, int limit, Long currentUserId) {
+        int pageSize = pageSize(limit);
+        List<Comment> comments = commentRepository.findTopLevelPage(reportId,
+                afterTime(after), afterId(after), PageRequest.of(0, pageSize + 1));
+        return toPage(comments, pageSize, after, currentUserId);
+    }
+
+    /**
+     * Page of direct replies to a comment after the cursor (null for the first page), oldest first
+     */
+    @Transactional(readOnly = true)
+    public CommentPageResponse getReplyPage(Long reportId, Long parentId, String after, int limit, Long currentUserId) {
+        int pageSize = pageSize(limit);
+        List<Comment> replies = commentRepository.findReplyPage(reportId, parentId,
+                afterTime(after), afterId(after), PageRequest.of(0, pageSize + 1));
+        return toPage(replies, pageSize, after, currentUserId);
+    }
+
+    /**
+     * Newest top-level comments of a report plus its total comment count, for the report view
+     */
+    @Transactional(readOnly = true)
+    public CommentSummaryResponse getSummary(Long reportId, int limit, Long currentUserId) {
+        List<Comment> newest = new ArrayList<>(commentRepository.findNewestTopLevel(reportId,
+                PageRequest.of(0, Math.max(1, Math.min(limit, MAX_SUMMARY_SIZE)))));
+        Collections.reverse(newest);
+        return new CommentSummaryResponse(toResponsesWithReplyCounts(newest, currentUserId),
+                commentRepository.countByReportId(reportId));
+    }
+
+    /**
+     * Flat responses for the given comments, each with its direct reply count
+     */
+    @Transactional(readOnly = true)
+    public List<CommentResponse> toResponsesWithReplyCounts(List<Comment> comments, Long currentUserId) {
+        Map<Long, CommentResponse> responses = toResponses(comments, currentUserId);
+        if (!responses.isEmpty()) {
+            Map<Long, Long> replyCounts = new HashMap<>();
+            for (Object[] row : commentRepository.countRepliesByParentIds(responses.keySet())) {
+                replyCounts.put((Long) row[0], (Long) row[1]);
+            }
+            responses.forEach((id, response) -> response.setReplyCount(replyCounts.getOrDefault(id, 0L)));
+        }
+        return new ArrayList<>(responses.values());
+    }
+
+    @Transactional(readOnly = true)
+    public CommentResponse toResponse(Comment comment, Long currentUserId) {
+        return toResponsesWithReplyCounts(List.of(comment), currentUserId).get(0);
+    }
+
+    @Transactional(readOnly = true)
+    public CommentResponse getComment(Long commentId, Long currentUserId) {
+        Comment comment = commentRepository.findByIdWithRelations(commentId)
+                .orElseThrow(() -> new RuntimeException("Comment not found"));
+        return toResponse(comment, currentUserId);
+    }
+
+    // Rows are fetched with one extra to learn whether another page follows
+    private CommentPageResponse toPage(List<Comment> rows, int pageSize, String after, Long currentUserId) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Comment> comments = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = after;
+        if (!comments.isEmpty()) {
+            Comment last = comments.get(comments.size() - 1);
+            nextCursor = KeysetCursor.of(last.getCreatedAt(), last.getId());
+        }
+        return new CommentPageResponse(toResponsesWithReplyCounts(comments, currentUserId), nextCursor, hasMore);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static LocalDateTime afterTime(String after) {
+        return after == null || after.isBlank() ? KeysetCursor.START_TIME : KeysetCursor.time(after);
+    }
+
+    private static long afterId(String after) {
+        return after == null || after.isBlank() ? 0 : KeysetCursor.id(after);
+    }
+
+    private Map<Long, CommentResponse> toResponses(List<Comment> comments, Long currentUserId) {
+        Map<Long, CommentResponse> responses = new LinkedHashMap<>();
+        if (comments.isEmpty()) {
+            return responses;
+        }
+        List<Long> ids = comments.stream().map(Comment::getId).collect(Collectors.toList());
+
+        Map<Long, CommentReaction.ReactionType> userReactions = new HashMap<>();
+        if (currentUserId != null) {
+            for (Object[] row : reactionRepository.findTypesByUserIdAndCommentIds(currentUserId, ids)) {
+                userReactions.put((Long) row[0], (CommentReaction.ReactionType) row[1]);
+            }
+        }
+
+        for (Comment comment : comments) {
+            CommentResponse cr = new CommentResponse();
+            cr.setId(comment.getId());
+            cr.setContent(comment.getContent());
+            cr.setCreatedAt(comment.getCreatedAt());
+            cr.setUser(toUserSummary(comment.getUser()));
+            cr.setReactionCounts(reactionCounts(comment));
+            cr.setUserReaction(userReactions.get(comment.getId()));
+            responses.put(comment.getId(), cr);
+        }
+        return responses;
+    }
+
+    // Only types with at least one reaction, as the grouped count used to return
+    private Map<CommentReaction.ReactionType, Long> reactionCounts(Comment comment) {
+        Map<CommentReaction.ReactionType, Long> counts = new EnumMap<>(CommentReaction.ReactionType.class);
+        for (CommentReaction.ReactionType type : CommentReaction.ReactionType.values()) {
+            int count = comment.getReactionCount(type);
+            if (count > 0) {
+                counts.put(type, (long) count);
+            }
+        }
+        return counts;
+    }
+
+    private UserSummary toUserSummary(User user) {
+        UserSummary us = new UserSummary();
+        us.setId(user.getId());
+        us.setUsername(user.getUsername());
+        us.setEmail(user.getEmail());
+        us.setFullName(user.getFullName());
+        us.setRole(user.getRole());
+        us.setIsVolunteer(user.getIsVolunteer());
+        return us;
+    }
+}
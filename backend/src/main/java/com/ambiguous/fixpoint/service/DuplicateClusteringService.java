@@ -0,0 +1,124 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.Report;
+import com.ambiguous.fixpoint.repository.ReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns newly created reports to persistent duplicate clusters.
+ *
+ * Clusters form a union-find forest that is kept fully path-compressed in the database:
+ * every member row stores its root (the oldest report in the cluster) in
+ * {@code duplicate_cluster_id}, so "find" is a column read and "union" is a single bulk
+ * UPDATE re-pointing all members of the merged clusters at the smallest root.
+ *
+ * A union row-locks every report it is about to re-point, in id order, so unions on different
+ * nodes that share a cluster run one after the other; the rare deadlock loser is retried.
+ */
+@Service
+public class DuplicateClusteringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateClusteringService.class);
+
+    private static final int MAX_UNION_ATTEMPTS = 5;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private DuplicateDetectionService duplicateDetectionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.duplicates.clustering.enabled:true}")
+    private boolean clusteringEnabled;
+
+    /**
+     * Run duplicate detection for a saved report and merge it into the matching clusters.
+     * Runs on the clustering executor; the create request does not wait for it.
+     */
+    @Async("duplicateClusteringExecutor")
+    public void clusterReportAsync(Long reportId) {
+        if (!clusteringEnabled) {
+            return;
+        }
+        try {
+            Report report = reportRepository.findById(reportId).orElse(null);
+            if (report == null) {
+                return;
+            }
+
+            List<Report> duplicates = duplicateDetectionService.findPotentialDuplicates(report);
+            if (duplicates.isEmpty()) {
+                return;
+            }
+
+            Set<Long> reportIds = duplicates.stream()
+                    .map(Report::getId)
+                    .collect(Collectors.toCollection(HashSet::new));
+            reportIds.add(reportId);
+
+            Long clusterId = union(reportIds);
+            logger.info("Report {} assigned to duplicate cluster {}", reportId, clusterId);
+        } catch (Exception e) {
+            logger.error("Duplicate clustering failed for report {}", reportId, e);
+        }
+    }
+
+    /**
+     * Merge the given reports and every cluster they already belong to into one cluster.
+     * Returns the id of the surviving cluster root.
+     */
+    public Long union(Set<Long> reportIds) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> unionLocked(reportIds));
+            } catch (PessimisticLockingFailureException e) {
+                // Chosen as a deadlock victim after a cluster grew while we were locking it
+                if (attempt >= MAX_UNION_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Duplicate cluster union of {} retried: {}", reportIds, e.getMessage());
+            }
+        }
+    }
+
+    private Long unionLocked(Set<Long> reportIds) {
+        Set<Long> memberIds = Set.of();
+        while (true) {
+            // Every row the UPDATE will touch: the reports and all members of their clusters
+            Set<Long> wanted = new TreeSet<>(reportIds);
+            List<Long> clusterIds = reportRepository.findDuplicateClusterIdsByIdIn(reportIds);
+            if (!clusterIds.isEmpty()) {
+                wanted.addAll(reportRepository.findIdsByDuplicateClusterIdIn(clusterIds));
+            }
+            if (memberIds.containsAll(wanted)) {
+                break;
+            }
+            // Membership can only change under these locks, so once the set stops growing it is final
+            memberIds = reportRepository.findAllByIdForUpdate(wanted).stream()
+                    .map(Report::getId)
+                    .collect(Collectors.toCollection(HashSet::new));
+        }
+
+        // Report ids grow monotonically, so the smallest id is the oldest root
+        Long rootId = Collections.min(memberIds);
+        reportRepository.assignDuplicateCluster(rootId, memberIds.size(), memberIds);
+        return rootId;
+    }
+}
@@ -2,6 +2,8 @@ package com.ambiguous.fixpoint.service;
 
 import com.ambiguous.fixpoint.entity.Report;
 import com.ambiguous.fixpoint.repository.ReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -13,6 +15,8 @@ import java.util.stream.Collectors;
 @Service
 public class DuplicateDetectionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateDetectionService.class);
+
     @Autowired
     private ReportRepository reportRepository;
 
@@ -29,33 +33,24 @@ public class DuplicateDetectionService {
     public List<Report> findPotentialDuplicates(Report newReport) {
         LocalDateTime timeThreshold = LocalDateTime.now().minusHours(TIME_WINDOW_HOURS);
         
-        System.out.println("Checking for duplicates. Time threshold: " + timeThreshold);
-        System.out.println("New report category: " + newReport.getCategory());
-        System.out.println("New report location: " + newReport.getLatitude() + ", " + newReport.getLongitude());
+        logger.debug("Checking report {} for duplicates: category {}, location {}, {}, since {}",
+                newReport.getId(), newReport.getCategory(), newReport.getLatitude(), newReport.getLongitude(), timeThreshold);
         
         // Get recent reports in the same category
         List<Report> recentReports = reportRepository.findByCategoryAndCreatedAtAfter(
             newReport.getCategory(), timeThreshold);
 
-        System.out.println("Found " + recentReports.size() + " recent reports in same category");
+        logger.debug("Found {} recent reports in the same category", recentReports.size());
 
         List<Report> duplicates = new ArrayList<>();
 
         for (Report existingReport : recentReports) {
-            System.out.println("🔍 Checking report ID: " + existingReport.getId());
-            System.out.println("📝 Existing description: '" + existingReport.getDescription() + "'");
-            System.out.println("📝 New description: '" + newReport.getDescription() + "'");
-            
             if (isDuplicate(newReport, existingReport)) {
-                System.out.println("✅ *** DUPLICATE FOUND! Report ID: " + existingReport.getId() + " ***");
                 duplicates.add(existingReport);
-            } else {
-                System.out.println("❌ Not a duplicate - Report ID: " + existingReport.getId());
             }
-            System.out.println("---");
         }
 
-        System.out.println("Found " + duplicates.size() + " duplicates");
+        logger.debug("Found {} duplicates of report {}", duplicates.size(), newReport.getId());
         return duplicates;
     }
 
@@ -64,17 +59,11 @@ public class DuplicateDetectionService {
      */
     private boolean isDuplicate(Report newReport, Report existingReport) {
         try {
-            System.out.println("=== isDuplicate called for report ID: " + existingReport.getId() + " ===");
-            
             // Skip if same report
             if (newReport.getId() != null && newReport.getId().equals(existingReport.getId())) {
-                System.out.println("Skipping same report ID");
                 return false;
             }
 
-            System.out.println("New report: lat=" + newReport.getLatitude() + ", lng=" + newReport.getLongitude() + ", desc='" + newReport.getDescription() + "'");
-            System.out.println("Existing report: lat=" + existingReport.getLatitude() + ", lng=" + existingReport.getLongitude() + ", desc='" + existingReport.getDescription() + "'");
-
             // Check location proximity
             boolean locationMatch = isLocationSimilar(
                 newReport.getLatitude(), newReport.getLongitude(),
@@ -89,23 +78,13 @@ public class DuplicateDetectionService {
             // Check category match
             boolean categoryMatch = newReport.getCategory().equals(existingReport.getCategory());
 
-            System.out.println("Duplicate check for report:");
-            System.out.println("Location match: " + locationMatch);
-            System.out.println("Description match: " + descriptionMatch);
-            System.out.println("Category match: " + categoryMatch);
-            if (newReport.getLatitude() != null && existingReport.getLatitude() != null) {
-                System.out.println("Distance: " + calculateDistance(newReport.getLatitude(), newReport.getLongitude(), 
-                                                                   existingReport.getLatitude(), existingReport.getLongitude()));
-            }
-
             // Consider it a duplicate if location + category match, or location + description match
             boolean isDup = locationMatch && (categoryMatch || descriptionMatch);
-            System.out.println("Is duplicate: " + isDup);
-            System.out.println("---");
+            logger.debug("Report {}: location match {}, description match {}, category match {}, duplicate {}",
+                    existingReport.getId(), locationMatch, descriptionMatch, categoryMatch, isDup);
             return isDup;
         } catch (Exception e) {
-            System.out.println("ERROR in isDuplicate: " + e.getMessage());
-            e.printStackTrace();
+            logger.warn("Duplicate check against report {} failed", existingReport.getId(), e);
             return false;
         }
     }
@@ -125,7 +104,7 @@ public class DuplicateDetectionService {
     /**
      * Haversine formula for distance calculation
      */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+    double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
         final int R = 6371; // Radius of the earth in km
 
         double latDistance = Math.toRadians(lat2 - lat1);
@@ -145,44 +124,36 @@ public class DuplicateDetectionService {
      */
     private boolean isDescriptionSimilar(String desc1, String desc2) {
         if (desc1 == null || desc2 == null) {
-            System.out.println("🚫 One description is null");
             return false;
         }
 
-        System.out.println("🧠 Analyzing descriptions:");
-        System.out.println("   Description 1: '" + desc1 + "'");
-        System.out.println("   Description 2: '" + desc2 + "'");
-
         // First try basic similarity for quick wins
         String[] words1 = desc1.toLowerCase().split("\\W+");
         String[] words2 = desc2.toLowerCase().split("\\W+");
         double basicSimilarity = calculateJaccardSimilarity(words1, words2);
         
-        System.out.println("📊 Basic similarity score: " + basicSimilarity);
-        
         // If basic similarity is high, no need for AI
         if (basicSimilarity >= 0.8) {  // Raised threshold so AI gets used more often
-            System.out.println("✅ Very high basic similarity (" + basicSimilarity + "), considering as duplicate");
+            logger.debug("Basic similarity {} is high enough to count as a duplicate", basicSimilarity);
             return true;
         }
         
         // If basic similarity is very low, skip AI to save resources  
         if (basicSimilarity < 0.05) {  // Lowered threshold so AI gets used more often
-            System.out.println("❌ Very low basic similarity (" + basicSimilarity + "), skipping AI check");
+            logger.debug("Basic similarity {} is too low, skipping the AI check", basicSimilarity);
             return false;
         }
         
         // Use AI for semantic similarity in the middle range
-        System.out.println("🤖 Using AI for semantic similarity check (basic similarity: " + basicSimilarity + ")...");
         boolean aiResult = isSemanticallySimilar(desc1, desc2);
-        System.out.println("🎯 AI result: " + aiResult);
+        logger.debug("AI similarity check at basic similarity {}: {}", basicSimilarity, aiResult);
         return aiResult;
     }
 
     /**
      * Calculate Jaccard similarity coefficient
      */
-    private double calculateJaccardSimilarity(String[] words1, String[] words2) {
+    double calculateJaccardSimilarity(String[] words1, String[] words2) {
         java.util.Set<String> set1 = new java.util.HashSet<>(java.util.Arrays.asList(words1));
         java.util.Set<String> set2 = new java.util.HashSet<>(java.util.Arrays.asList(words2));
 
@@ -213,7 +184,7 @@ public class DuplicateDetectionService {
             double basicSimilarity = calculateJaccardSimilarity(words1, words2);
             
             if (basicSimilarity > 0.7) {
-                System.out.println("High basic similarity (" + basicSimilarity + "), skipping AI check");
+                logger.debug("Basic similarity {} is high, skipping the AI check", basicSimilarity);
                 return true;
             }
 
@@ -221,13 +192,13 @@ public class DuplicateDetectionService {
             String prompt = buildSemanticSimilarityPrompt(description1, description2);
             String aiResponse = multiAIService.analyzeTextWithGemini(prompt);
             
-            System.out.println("AI semantic analysis result: " + aiResponse);
+            logger.debug("AI semantic analysis result: {}", aiResponse);
             
             // Parse AI response for similarity score
             return parseSemanticSimilarityResponse(aiResponse);
             
         } catch (Exception e) {
-            System.err.println("Error in AI semantic similarity check: " + e.getMessage());
+            logger.warn("AI semantic similarity check failed: {}", e.getMessage());
             // Fall back to basic similarity
             String[] words1 = description1.toLowerCase().split("\\W+");
             String[] words2 = description2.toLowerCase().split("\\W+");
@@ -261,15 +232,13 @@ public class DuplicateDetectionService {
         
         // Look for SIMILAR in the response
         if (cleanResponse.contains("SIMILAR")) {
-            System.out.println("AI determined descriptions are SIMILAR");
             return true;
         } else if (cleanResponse.contains("DIFFERENT")) {
-            System.out.println("AI determined descriptions are DIFFERENT");
             return false;
         }
         
         // If unclear response, fall back to basic similarity
-        System.out.println("Unclear AI response, falling back to basic similarity");
+        logger.debug("Unclear AI similarity response: {}", response);
         return false;
     }
 
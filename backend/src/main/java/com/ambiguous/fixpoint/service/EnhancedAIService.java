@@ -3,13 +3,14 @@ package com.ambiguous.fixpoint.service;
 import com.ambiguous.fixpoint.entity.Report;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,7 +21,13 @@ public class EnhancedAIService {
     @Value("${openai.api.key:}")
     private String openaiApiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    @Qualifier("aiRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AIImagePreprocessor imagePreprocessor;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -33,14 +40,14 @@ public class EnhancedAIService {
                 return generateEnhancedFallbackDescription(image, category);
             }
 
-            // Convert image to base64
-            String base64Image = Base64.getEncoder().encodeToString(image.getBytes());
+            // Downscale and strip metadata before it is base64-encoded into the request
+            AIImagePreprocessor.PreparedImage prepared = imagePreprocessor.prepare(image);
             
             // Build category-specific prompt
             String prompt = buildPromptForCategory(category);
             
             // Call OpenAI Vision API
-            return callOpenAIVision(base64Image, prompt);
+            return callOpenAIVision(prepared, prompt);
             
         } catch (Exception e) {
             System.out.println("OpenAI API error: " + e.getMessage());
@@ -118,7 +125,7 @@ public class EnhancedAIService {
     /**
      * Call OpenAI Vision API
      */
-    private String callOpenAIVision(String base64Image, String prompt) {
+    private String callOpenAIVision(AIImagePreprocessor.PreparedImage image, String prompt) {
         try {
             String url = "https://api.openai.com/v1/chat/completions";
             
@@ -131,7 +138,7 @@ public class EnhancedAIService {
             message.put("content", List.of(
                 Map.of("type", "text", "text", prompt),
                 Map.of("type", "image_url", "image_url", 
-                    Map.of("url", "data:image/jpeg;base64," + base64Image))
+                    Map.of("url", "data:" + image.getMimeType() + ";base64," + image.getBase64()))
             ));
             
             Map<String, Object> requestBody = new HashMap<>();
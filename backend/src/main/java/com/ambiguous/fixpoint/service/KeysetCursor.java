@@ -0,0 +1,51 @@
+package com.ambiguous.fixpoint.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Opaque "<epoch micros>_<id>" cursor for keyset pagination over (timestamp, id) ordered rows.
+ * Malformed cursors are rejected with IllegalArgumentException.
+ */
+final class KeysetCursor {
+
+    // Sorts before every real row; used when the client sends no cursor
+    static final LocalDateTime START_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Sorts after every real row; the starting point of newest-first pages
+    static final LocalDateTime END_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private KeysetCursor() {
+    }
+
+    static String of(LocalDateTime time, long id) {
+        return toEpochMicros(time) + "_" + id;
+    }
+
+    static LocalDateTime time(String cursor) {
+        try {
+            return fromEpochMicros(Long.parseLong(cursor.split("_")[0]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    static long id(String cursor) {
+        try {
+            return Long.parseLong(cursor.split("_")[1]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        Instant instant = time.toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+            Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -1,20 +1,35 @@
 package com.ambiguous.fixpoint.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import com.ambiguous.fixpoint.entity.Report;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.Base64;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class MultiAIService {
 
+    public static final String CHAT_UNAVAILABLE_MESSAGE =
+            "🤖 I'm currently unable to connect to AI services. Please check your configuration and try again.";
+
     @Value("${gemini.api.key:}")
     private String geminiApiKey;
 
@@ -24,31 +39,38 @@ public class MultiAIService {
     @Value("${ai.provider:gemini}")
     private String aiProvider;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private AIProviderRouter providerRouter;
+
+    @Autowired
+    private AIImagePreprocessor imagePreprocessor;
+
+    @Autowired
+    @Qualifier("aiRestTemplate")
+    private RestTemplate restTemplate;
+
+    // Same client with the longer stream timeout, for answers read as they are generated
+    @Autowired
+    @Qualifier("aiStreamingRestTemplate")
+    private RestTemplate streamingRestTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * Generate enhanced description using the configured AI provider
+     * Generate enhanced description with the AI providers, through the provider router
      */
     public String generateEnhancedDescription(MultipartFile image, String category) {
         try {
-            // Try primary AI provider
-            if ("gemini".equalsIgnoreCase(aiProvider) && isGeminiConfigured()) {
-                return generateWithGemini(image, category);
-            } else if ("openai".equalsIgnoreCase(aiProvider) && isOpenAIConfigured()) {
-                return generateWithOpenAI(image, category);
-            }
-            
-            // Fallback to available provider
-            if (isGeminiConfigured()) {
-                System.out.println("Primary provider unavailable, falling back to Gemini");
-                return generateWithGemini(image, category);
-            } else if (isOpenAIConfigured()) {
-                System.out.println("Primary provider unavailable, falling back to OpenAI");
-                return generateWithOpenAI(image, category);
-            }
-            
             // If no API keys configured, use enhanced fallback
-            return generateEnhancedFallback(image, category);
+            if ("mock".equalsIgnoreCase(aiProvider) || (!isGeminiConfigured() && !isOpenAIConfigured())) {
+                return generateEnhancedFallback(image, category);
+            }
+            // Downscaled once up front: a hedged call sends it to both providers
+            AIImagePreprocessor.PreparedImage prepared = imagePreprocessor.prepare(image);
+            Map<String, Callable<String>> providers = providers(
+                    () -> generateWithGemini(prepared, category),
+                    () -> generateWithOpenAI(prepared, category));
+            return providerRouter.call("describe", providers);
             
         } catch (Exception e) {
             System.err.println("AI generation failed: " + e.getMessage());
@@ -56,7 +78,6 @@ public class MultiAIService {
             if (e.getCause() != null) {
                 System.err.println("Cause: " + e.getCause().getMessage());
             }
-            e.printStackTrace();
             return generateEnhancedFallback(image, category);
         }
     }
@@ -64,10 +85,10 @@ public class MultiAIService {
     /**
      * Generate description using Google Gemini Vision API
      */
-    private String generateWithGemini(MultipartFile image, String category) throws Exception {
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash-lite:generateContent?key=" + geminiApiKey;
+    private String generateWithGemini(AIImagePreprocessor.PreparedImage image, String category) throws Exception {
+        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash-lite:generateContent";
         
-        String base64Image = Base64.getEncoder().encodeToString(image.getBytes());
+        String base64Image = image.getBase64();
         String prompt = buildPromptForCategory(category);
         
         Map<String, Object> requestBody = new HashMap<>();
@@ -86,7 +107,7 @@ public class MultiAIService {
         // Add image part
         Map<String, Object> imagePart = new HashMap<>();
         Map<String, Object> inlineData = new HashMap<>();
-        inlineData.put("mime_type", "image/jpeg");
+        inlineData.put("mime_type", image.getMimeType());
         inlineData.put("data", base64Image);
         imagePart.put("inline_data", inlineData);
         parts.add(imagePart);
@@ -118,6 +139,7 @@ public class MultiAIService {
         
         HttpHeaders headers = new HttpHeaders();
         headers.set("Content-Type", "application/json");
+        headers.set("x-goog-api-key", geminiApiKey);
         
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
         
@@ -147,9 +169,9 @@ public class MultiAIService {
     /**
      * Generate description using OpenAI API (fallback)
      */
-    private String generateWithOpenAI(MultipartFile image, String category) throws Exception {
+    private String generateWithOpenAI(AIImagePreprocessor.PreparedImage image, String category) throws Exception {
         String url = "https://api.openai.com/v1/chat/completions";
-        String base64Image = Base64.getEncoder().encodeToString(image.getBytes());
+        String base64Image = image.getBase64();
         String prompt = buildPromptForCategory(category);
         
         HttpHeaders headers = new HttpHeaders();
@@ -161,7 +183,7 @@ public class MultiAIService {
         message.put("content", List.of(
             Map.of("type", "text", "text", prompt),
             Map.of("type", "image_url", "image_url", 
-                Map.of("url", "data:image/jpeg;base64," + base64Image))
+                Map.of("url", "data:" + image.getMimeType() + ";base64," + base64Image))
         ));
         
         Map<String, Object> requestBody = new HashMap<>();
@@ -200,7 +222,7 @@ public class MultiAIService {
     /**
      * Parse Gemini API response from Map object
      */
-    private String parseGeminiResponse(Map<String, Object> responseBody) {
+    String parseGeminiResponse(Map<String, Object> responseBody) {
         try {
             // Handle new Gemini 2.5 response structure
             if (responseBody.containsKey("candidates")) {
@@ -434,22 +456,15 @@ public class MultiAIService {
      */
     public String translateTextToBangla(String text) {
         try {
-            // Try with configured AI provider
-            if ("gemini".equalsIgnoreCase(aiProvider) && isGeminiConfigured()) {
-                return translateWithGemini(text);
-            } else if ("openai".equalsIgnoreCase(aiProvider) && isOpenAIConfigured()) {
-                return translateWithOpenAI(text);
-            }
-            
-            // Fallback to available provider
-            if (isGeminiConfigured()) {
-                return translateWithGemini(text);
-            } else if (isOpenAIConfigured()) {
-                return translateWithOpenAI(text);
-            }
+            Map<String, Callable<String>> providers = providers(
+                    () -> translateWithGemini(text),
+                    () -> translateWithOpenAI(text));
             
             // If no AI providers available, return a simple fallback translation
-            return generateFallbackTranslation(text);
+            if (providers.isEmpty()) {
+                return generateFallbackTranslation(text);
+            }
+            return providerRouter.call("translate", providers);
             
         } catch (Exception e) {
             System.err.println("Translation failed with all providers: " + e.getMessage());
@@ -461,7 +476,7 @@ public class MultiAIService {
      * Translate text using Google Gemini
      */
     private String translateWithGemini(String text) throws Exception {
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key=" + geminiApiKey;
+        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent";
         
         String prompt = "Translate the following English text to Bangla (Bengali). Provide only the translation without any additional text or explanations:\n\n" + text;
         
@@ -478,6 +493,7 @@ public class MultiAIService {
         
         HttpHeaders headers = new HttpHeaders();
         headers.set("Content-Type", "application/json");
+        headers.set("x-goog-api-key", geminiApiKey);
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
         
         ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
@@ -563,6 +579,7 @@ public class MultiAIService {
         status.put("geminiConfigured", isGeminiConfigured());
         status.put("openaiConfigured", isOpenAIConfigured());
         status.put("fallbackAvailable", true);
+        status.put("providers", providerRouter.getSnapshot());
         return status;
     }
 
@@ -575,7 +592,7 @@ public class MultiAIService {
                 return "AI service not configured";
             }
 
-            String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key=" + geminiApiKey;
+            String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent";
             
             Map<String, Object> requestBody = new HashMap<>();
             List<Map<String, Object>> contents = new ArrayList<>();
@@ -599,6 +616,7 @@ public class MultiAIService {
             
             HttpHeaders headers = new HttpHeaders();
             headers.set("Content-Type", "application/json");
+            headers.set("x-goog-api-key", geminiApiKey);
             
             HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
             
@@ -645,24 +663,15 @@ public class MultiAIService {
      */
     public Map<String, Object> categorizeIssue(String description, MultipartFile image, String location) {
         try {
-            // Try primary AI provider for categorization
-            if ("gemini".equalsIgnoreCase(aiProvider) && isGeminiConfigured()) {
-                return categorizeWithGemini(description, image, location);
-            } else if ("openai".equalsIgnoreCase(aiProvider) && isOpenAIConfigured()) {
-                return categorizeWithOpenAI(description, image, location);
-            }
-            
-            // Fallback to available provider
-            if (isGeminiConfigured()) {
-                System.out.println("Primary provider unavailable for categorization, falling back to Gemini");
-                return categorizeWithGemini(description, image, location);
-            } else if (isOpenAIConfigured()) {
-                System.out.println("Primary provider unavailable for categorization, falling back to OpenAI");
-                return categorizeWithOpenAI(description, image, location);
-            }
+            Map<String, Callable<Map<String, Object>>> providers = providers(
+                    () -> categorizeWithGemini(description, image, location),
+                    () -> categorizeWithOpenAI(description, image, location));
             
             // If no AI providers available, use keyword-based fallback
-            return generateFallbackCategorization(description);
+            if (providers.isEmpty()) {
+                return generateFallbackCategorization(description);
+            }
+            return providerRouter.call("categorize", providers);
             
         } catch (Exception e) {
             System.err.println("Error in AI categorization: " + e.getMessage());
@@ -670,71 +679,60 @@ public class MultiAIService {
         }
     }
 
-    private Map<String, Object> categorizeWithGemini(String description, MultipartFile image, String location) {
-        try {
-            String prompt = buildCategorizationPrompt(description, location);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            Map<String, Object> contents = new HashMap<>();
-            Map<String, Object> parts = new HashMap<>();
-            parts.put("text", prompt);
-            contents.put("parts", Arrays.asList(parts));
-            requestBody.put("contents", Arrays.asList(contents));
+    private Map<String, Object> categorizeWithGemini(String description, MultipartFile image, String location) throws Exception {
+        String prompt = buildCategorizationPrompt(description, location);
+        
+        Map<String, Object> requestBody = new HashMap<>();
+        Map<String, Object> contents = new HashMap<>();
+        Map<String, Object> parts = new HashMap<>();
+        parts.put("text", prompt);
+        contents.put("parts", Arrays.asList(parts));
+        requestBody.put("contents", Arrays.asList(contents));
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Content-Type", "application/json");
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key=" + geminiApiKey;
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
-            
-            if (response.getBody() != null) {
-                return parseCategorizationResponse(response.getBody());
-            }
-            
-        } catch (Exception e) {
-            System.err.println("Gemini categorization error: " + e.getMessage());
-        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "application/json");
+        headers.set("x-goog-api-key", geminiApiKey);
         
-        return generateFallbackCategorization(description);
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        
+        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent";
+        ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
+        
+        if (response.getBody() == null) {
+            throw new IllegalStateException("Empty Gemini categorization response");
+        }
+        return parseCategorizationResponse(response.getBody());
     }
 
-    private Map<String, Object> categorizeWithOpenAI(String description, MultipartFile image, String location) {
-        try {
-            String prompt = buildCategorizationPrompt(description, location);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-3.5-turbo");
-            requestBody.put("max_tokens", 500);
-            requestBody.put("temperature", 0.3);
-            
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", prompt);
-            requestBody.put("messages", Arrays.asList(message));
+    private Map<String, Object> categorizeWithOpenAI(String description, MultipartFile image, String location) throws Exception {
+        String prompt = buildCategorizationPrompt(description, location);
+        
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "gpt-3.5-turbo");
+        requestBody.put("max_tokens", 500);
+        requestBody.put("temperature", 0.3);
+        
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", prompt);
+        requestBody.put("messages", Arrays.asList(message));
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Content-Type", "application/json");
-            headers.set("Authorization", "Bearer " + openaiApiKey);
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                "https://api.openai.com/v1/chat/completions", 
-                request, 
-                Map.class
-            );
-            
-            if (response.getBody() != null) {
-                return parseOpenAICategorizationResponse(response.getBody());
-            }
-            
-        } catch (Exception e) {
-            System.err.println("OpenAI categorization error: " + e.getMessage());
-        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "application/json");
+        headers.set("Authorization", "Bearer " + openaiApiKey);
+        
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+            "https://api.openai.com/v1/chat/completions", 
+            request, 
+            Map.class
+        );
         
-        return generateFallbackCategorization(description);
+        if (response.getBody() == null) {
+            throw new IllegalStateException("Empty OpenAI categorization response");
+        }
+        return parseOpenAICategorizationResponse(response.getBody());
     }
 
     private String buildCategorizationPrompt(String description, String location) {
@@ -805,7 +803,7 @@ public class MultiAIService {
         return null;
     }
 
-    private Map<String, Object> parseCategorizationJSON(String jsonText) {
+    Map<String, Object> parseCategorizationJSON(String jsonText) {
         try {
             // Basic JSON parsing for the categorization response
             jsonText = jsonText.trim();
@@ -1020,24 +1018,10 @@ public class MultiAIService {
      */
     public String generateChatResponse(String prompt) {
         try {
-            // Try primary AI provider
-            if ("gemini".equalsIgnoreCase(aiProvider) && isGeminiConfigured()) {
-                return generateChatWithGemini(prompt);
-            } else if ("openai".equalsIgnoreCase(aiProvider) && isOpenAIConfigured()) {
-                return generateChatWithOpenAI(prompt);
-            }
-            
-            // Fallback to available provider
-            if (isGeminiConfigured()) {
-                System.out.println("Primary provider unavailable, falling back to Gemini for chat");
-                return generateChatWithGemini(prompt);
-            } else if (isOpenAIConfigured()) {
-                System.out.println("Primary provider unavailable, falling back to OpenAI for chat");
-                return generateChatWithOpenAI(prompt);
-            }
+            String response = requestChatResponse(prompt);
             
             // If no API keys configured, return error message
-            return "🤖 I'm currently unable to connect to AI services. Please check your configuration and try again.";
+            return response != null ? response : CHAT_UNAVAILABLE_MESSAGE;
             
         } catch (Exception e) {
             System.err.println("Chat generation failed: " + e.getMessage());
@@ -1045,12 +1029,99 @@ public class MultiAIService {
         }
     }
 
+    /**
+     * Chat response from the AI providers, through the provider router. Returns null when no
+     * provider is configured and throws when every provider failed, so callers can tell a real
+     * answer from an apology.
+     */
+    public String requestChatResponse(String prompt) throws Exception {
+        Map<String, Callable<String>> providers = providers(
+                () -> generateChatWithGemini(prompt),
+                () -> generateChatWithOpenAI(prompt));
+        if (providers.isEmpty()) {
+            return null;
+        }
+        return providerRouter.call("chat", providers);
+    }
+
+    /**
+     * Stream a chat response, handing each piece of text to onToken as the provider produces it,
+     * and return the whole response once the stream ends. Providers are ordered by the router
+     * but never hedged, and a failure moves on to the next provider only if no text was sent
+     * yet. Provider failures are thrown so the caller can tell a complete answer from a cut-off one.
+     */
+    public String streamChatResponse(String prompt, Consumer<String> onToken) throws Exception {
+        AtomicBoolean started = new AtomicBoolean();
+        Consumer<String> tracked = token -> {
+            started.set(true);
+            onToken.accept(token);
+        };
+        Map<String, Callable<String>> providers = providers(
+                () -> streamChatWithGemini(prompt, tracked),
+                () -> streamChatWithOpenAI(prompt, tracked));
+        if (providers.isEmpty()) {
+            onToken.accept(CHAT_UNAVAILABLE_MESSAGE);
+            return CHAT_UNAVAILABLE_MESSAGE;
+        }
+        return providerRouter.callInOrder("chat-stream", providers, () -> !started.get());
+    }
+
+    /**
+     * Calls of the configured providers, the preferred one (ai.provider) first. Empty when no
+     * key is configured or ai.provider is "mock", which leaves every caller on its built-in answers.
+     */
+    private <T> Map<String, Callable<T>> providers(Callable<T> gemini, Callable<T> openai) {
+        Map<String, Callable<T>> providers = new LinkedHashMap<>();
+        if ("mock".equalsIgnoreCase(aiProvider)) {
+            return providers;
+        }
+        if ("openai".equalsIgnoreCase(aiProvider) && isOpenAIConfigured()) {
+            providers.put("openai", openai);
+        }
+        if (isGeminiConfigured()) {
+            providers.put("gemini", gemini);
+        }
+        if (isOpenAIConfigured()) {
+            providers.putIfAbsent("openai", openai);
+        }
+        return providers;
+    }
+
     /**
      * Generate chat response using Google Gemini API
      */
     private String generateChatWithGemini(String prompt) throws Exception {
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash-lite:generateContent?key=" + geminiApiKey;
+        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash-lite:generateContent";
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "application/json");
+        headers.set("x-goog-api-key", geminiApiKey);
+        
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(buildGeminiChatRequest(prompt), headers);
+        ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
         
+        return parseGeminiResponse(response.getBody());
+    }
+
+    /**
+     * Stream a chat response from Gemini's streamGenerateContent endpoint (server-sent events)
+     */
+    private String streamChatWithGemini(String prompt, Consumer<String> onToken) throws Exception {
+        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash-lite:streamGenerateContent?alt=sse";
+        
+        return streamEvents(url, "x-goog-api-key", geminiApiKey, buildGeminiChatRequest(prompt), event -> {
+            StringBuilder text = new StringBuilder();
+            JsonNode candidates = event.path("candidates");
+            if (candidates.isArray() && candidates.size() > 0) {
+                for (JsonNode part : candidates.get(0).path("content").path("parts")) {
+                    text.append(part.path("text").asText(""));
+                }
+            }
+            return text.toString();
+        }, onToken);
+    }
+
+    private Map<String, Object> buildGeminiChatRequest(String prompt) {
         Map<String, Object> requestBody = new HashMap<>();
         
         // Build the contents array
@@ -1073,22 +1144,43 @@ public class MultiAIService {
         generationConfig.put("topP", 0.8);
         generationConfig.put("topK", 40);
         requestBody.put("generationConfig", generationConfig);
+        return requestBody;
+    }
+
+    /**
+     * Generate chat response using OpenAI API
+     */
+    private String generateChatWithOpenAI(String prompt) throws Exception {
+        String url = "https://api.openai.com/v1/chat/completions";
         
         HttpHeaders headers = new HttpHeaders();
         headers.set("Content-Type", "application/json");
+        headers.set("Authorization", "Bearer " + openaiApiKey);
         
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-        ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(buildOpenAIChatRequest(prompt), headers);
+        ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
         
-        return parseGeminiResponse(response.getBody());
+        return parseOpenAIResponse(response.getBody());
     }
 
     /**
-     * Generate chat response using OpenAI API
+     * Stream a chat response from OpenAI with stream=true (server-sent events of deltas)
      */
-    private String generateChatWithOpenAI(String prompt) throws Exception {
+    private String streamChatWithOpenAI(String prompt, Consumer<String> onToken) throws Exception {
         String url = "https://api.openai.com/v1/chat/completions";
         
+        Map<String, Object> requestBody = buildOpenAIChatRequest(prompt);
+        requestBody.put("stream", true);
+        
+        return streamEvents(url, "Authorization", "Bearer " + openaiApiKey, requestBody, event -> {
+            JsonNode choices = event.path("choices");
+            return choices.isArray() && choices.size() > 0
+                    ? choices.get(0).path("delta").path("content").asText("")
+                    : "";
+        }, onToken);
+    }
+
+    private Map<String, Object> buildOpenAIChatRequest(String prompt) {
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", "gpt-3.5-turbo");
         
@@ -1101,14 +1193,43 @@ public class MultiAIService {
         requestBody.put("messages", messages);
         requestBody.put("temperature", 0.7);
         // Remove max_tokens to allow full responses
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Content-Type", "application/json");
-        headers.set("Authorization", "Bearer " + openaiApiKey);
-        
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-        ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-        
-        return parseOpenAIResponse(response.getBody());
+        return requestBody;
+    }
+
+    /**
+     * POST the request and read the response as server-sent events while it arrives. Each
+     * "data:" line is parsed as JSON and textOf picks the generated text out of it; non-empty
+     * text goes to onToken straight away. Returns the concatenated text.
+     */
+    private String streamEvents(String url, String authHeader, String authValue, Map<String, Object> requestBody,
+                                Function<JsonNode, String> textOf, Consumer<String> onToken) {
+        return streamingRestTemplate.execute(url, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+            request.getHeaders().set(authHeader, authValue);
+            objectMapper.writeValue(request.getBody(), requestBody);
+        }, response -> {
+            StringBuilder full = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring(5).trim();
+                if (data.equals("[DONE]")) {
+                    break;
+                }
+                if (data.isEmpty()) {
+                    continue;
+                }
+                String text = textOf.apply(objectMapper.readTree(data));
+                if (!text.isEmpty()) {
+                    full.append(text);
+                    onToken.accept(text);
+                }
+            }
+            return full.toString();
+        });
     }
 }
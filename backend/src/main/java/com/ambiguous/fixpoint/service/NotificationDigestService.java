@@ -0,0 +1,101 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.NotificationDigestMessage;
+import com.ambiguous.fixpoint.entity.Notification;
+import com.ambiguous.fixpoint.entity.OutboxEvent;
+import com.ambiguous.fixpoint.repository.NotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends one summary push per interval to users who chose digest mode, in place of the
+ * individual real-time pushes NotificationService skips for them.
+ *
+ * Runs under a database lease so only one node sends digests. The end of the last window sent
+ * is stored with the lease and moves in the same transaction that queues the digests, so a
+ * restart or a switch to another node carries on where the previous run stopped.
+ */
+@Service
+public class NotificationDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    private static final int MAX_TITLES = 5;
+
+    private static final String LOCK_NAME = "notification-digest";
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.notifications.digest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notifications.digest.interval-ms:3600000}")
+    private long intervalMs;
+
+    @Scheduled(fixedDelayString = "${app.notifications.digest.interval-ms:3600000}",
+               initialDelayString = "${app.notifications.digest.interval-ms:3600000}")
+    public void sendDigests() {
+        if (!enabled) {
+            return;
+        }
+        if (!schedulerLockService.tryLock(LOCK_NAME, Duration.ofMinutes(10))) {
+            logger.debug("Notification digests skipped, another node holds the lock");
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> sendDigestsSinceWatermark());
+        } finally {
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    private void sendDigestsSinceWatermark() {
+        LocalDateTime until = LocalDateTime.now();
+        LocalDateTime watermark = schedulerLockService.getWatermark(LOCK_NAME);
+        // First run ever: cover one interval back
+        LocalDateTime since = watermark != null ? watermark : until.minus(Duration.ofMillis(intervalMs));
+
+        Map<Long, List<Notification>> byUser = new LinkedHashMap<>();
+        for (Notification notification : notificationRepository.findDigestCandidates(since, until)) {
+            byUser.computeIfAbsent(notification.getUser().getId(), id -> new ArrayList<>()).add(notification);
+        }
+
+        List<OutboxEvent> events = new ArrayList<>(byUser.size());
+        byUser.forEach((userId, notifications) -> {
+            List<String> titles = notifications.stream()
+                    .limit(MAX_TITLES)
+                    .map(Notification::getTitle)
+                    .toList();
+            NotificationDigestMessage digest = new NotificationDigestMessage(notifications.size(), since, titles);
+            events.add(new OutboxEvent(userId.toString(), "/queue/notifications", outboxService.toJson(digest)));
+        });
+        outboxService.enqueue(events);
+        schedulerLockService.setWatermark(LOCK_NAME, until);
+
+        if (!events.isEmpty()) {
+            logger.info("Queued notification digests for {} users", events.size());
+        }
+    }
+}
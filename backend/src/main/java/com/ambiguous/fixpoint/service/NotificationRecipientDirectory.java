@@ -0,0 +1,166 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.Organization;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached lookup of who receives organization-wide notifications: organization id to the ids
+ * of its active admins, plus the set of users in digest mode. Entries load lazily (all missing
+ * organizations in one query) and are dropped by the code paths that change admins,
+ * organizations or delivery preferences, so steady-state fan-out issues no directory queries.
+ *
+ * Those invalidations only reach this node. Entries also expire after ttl-seconds, which bounds
+ * how long a change made through another node, or directly in the database, goes unseen.
+ */
+@Service
+public class NotificationRecipientDirectory {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.notifications.recipients.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<Long, Cached<List<Long>>> adminIdsByOrganization = new ConcurrentHashMap<>();
+
+    private volatile Cached<Set<Long>> digestUserIds;
+
+    // Bumped on every invalidation so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Ids of the active admins of the given organizations, without duplicates
+     */
+    public Set<Long> getAdminIds(Collection<Organization> organizations) {
+        Map<Long, List<Long>> resolved = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for (Organization organization : organizations) {
+            Cached<List<Long>> cached = adminIdsByOrganization.get(organization.getId());
+            if (cached != null && !cached.isExpired(now)) {
+                resolved.put(organization.getId(), cached.value);
+            } else {
+                missing.add(organization.getId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            resolved.putAll(load(missing));
+        }
+
+        Set<Long> adminIds = new LinkedHashSet<>();
+        resolved.values().forEach(adminIds::addAll);
+        return adminIds;
+    }
+
+    public boolean isDigestUser(Long userId) {
+        Cached<Set<Long>> cached = digestUserIds;
+        if (cached == null || cached.isExpired(System.currentTimeMillis())) {
+            long loadedAt = generation.get();
+            cached = new Cached<>(Set.copyOf(userRepository.findIdsWithNotificationDigest()), expiry());
+            if (generation.get() == loadedAt) {
+                digestUserIds = cached;
+            }
+        }
+        return cached.value.contains(userId);
+    }
+
+    /**
+     * Drop the cached admins of an organization once the current transaction (if any) commits
+     */
+    public void invalidateOrganization(Long organizationId) {
+        if (organizationId != null) {
+            afterCommit(() -> {
+                generation.incrementAndGet();
+                adminIdsByOrganization.remove(organizationId);
+            });
+        }
+    }
+
+    public void invalidateDigestUsers() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            digestUserIds = null;
+        });
+    }
+
+    /**
+     * Drop everything cached on this node, e.g. after admins were changed directly in the database
+     */
+    public void invalidateAll() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            adminIdsByOrganization.clear();
+            digestUserIds = null;
+        });
+    }
+
+    private Map<Long, List<Long>> load(Set<Long> organizationIds) {
+        long loadedAt = generation.get();
+        Map<Long, List<Long>> loaded = new HashMap<>();
+        for (Long organizationId : organizationIds) {
+            loaded.put(organizationId, new ArrayList<>());
+        }
+        for (Object[] row : userRepository.findActiveUserIdsByOrganizationIdsAndUserType(
+                organizationIds, User.UserType.ORGANIZATION_ADMIN)) {
+            loaded.get((Long) row[0]).add((Long) row[1]);
+        }
+        loaded.replaceAll((organizationId, adminIds) -> List.copyOf(adminIds));
+
+        // A load that raced with an invalidation is used for this call only
+        if (generation.get() == loadedAt) {
+            long expiresAt = expiry();
+            loaded.forEach((organizationId, adminIds) ->
+                    adminIdsByOrganization.put(organizationId, new Cached<>(adminIds, expiresAt)));
+        }
+        return loaded;
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + ttlSeconds * 1000;
+    }
+
+    // Invalidating before commit would let a concurrent reader re-cache the old rows
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class Cached<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private Cached(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -1,26 +1,40 @@
 package com.ambiguous.fixpoint.service;
 
+import com.ambiguous.fixpoint.dto.NotificationChangesResponse;
 import com.ambiguous.fixpoint.dto.NotificationResponse;
 import com.ambiguous.fixpoint.entity.Notification;
+import com.ambiguous.fixpoint.entity.OutboxEvent;
 import com.ambiguous.fixpoint.entity.User;
 import com.ambiguous.fixpoint.entity.Report;
 import com.ambiguous.fixpoint.entity.Comment;
-import com.ambiguous.fixpoint.entity.Organization;
 import com.ambiguous.fixpoint.repository.NotificationRepository;
 import com.ambiguous.fixpoint.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class NotificationService {
 
+    private static final String NOTIFICATION_DESTINATION = "/queue/notifications";
+
+    private static final int MAX_CHANGES_BATCH = 500;
+
     @Autowired
     private NotificationRepository notificationRepository;
 
@@ -28,11 +42,24 @@ public class NotificationService {
     private UserRepository userRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private OutboxService outboxService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Autowired
+    private NotificationRecipientDirectory recipientDirectory;
+
+    @Value("${app.notifications.coalesce.window-seconds:300}")
+    private long coalesceWindowSeconds;
+
+    @Value("${app.notifications.changes.settle-ms:1000}")
+    private long changesSettleMs;
 
     /**
      * Create a progress update notification
      */
+    @Transactional
     public void createProgressNotification(Report report, User recipient, int progressPercentage) {
         String title = "Progress Update: " + report.getTitle();
         String message = String.format("Report progress updated to %d%%. %s", 
@@ -43,49 +70,47 @@ public class NotificationService {
         notification.setProgressPercentage(progressPercentage);
         notification.setActionUrl("/reports/" + report.getId());
         
-        Notification saved = notificationRepository.save(notification);
-        
-        // Send real-time notification
-        sendRealTimeNotification(recipient, saved);
+        saveCoalescedAndDispatch(report, Notification.NotificationType.PROGRESS_UPDATE, Collections.singletonList(notification));
     }
 
     /**
      * Create progress update notifications for both reporter and organization admins
      */
+    @Transactional
     public void createProgressNotificationForAll(Report report, int progressPercentage) {
+        List<Notification> batch = new ArrayList<>();
+        String status = progressPercentage == 100 ? "Task completed!" : "Work in progress...";
+
         // Notify the reporter
-        if (report.getReporter() != null) {
-            createProgressNotification(report, report.getReporter(), progressPercentage);
+        User reporter = report.getReporter();
+        if (reporter != null) {
+            Notification notification = new Notification("Progress Update: " + report.getTitle(),
+                String.format("Report progress updated to %d%%. %s", progressPercentage, status),
+                Notification.NotificationType.PROGRESS_UPDATE, reporter, report);
+            notification.setProgressPercentage(progressPercentage);
+            notification.setActionUrl("/reports/" + report.getId());
+            batch.add(notification);
         }
-        
+
         // Notify organization admins
-        if (report.getTargetOrganizations() != null && !report.getTargetOrganizations().isEmpty()) {
-            for (Organization org : report.getTargetOrganizations()) {
-                // Find admin users for this organization
-                List<User> admins = userRepository.findByOrganizationAndUserType(org, User.UserType.ORGANIZATION_ADMIN);
-                for (User admin : admins) {
-                    if (!admin.getId().equals(report.getReporter().getId())) { // Don't duplicate for reporter
-                        String adminTitle = "Progress Update on Assigned Report: " + report.getTitle();
-                        String adminMessage = String.format("Report progress updated to %d%% by staff member. %s", 
-                            progressPercentage, 
-                            progressPercentage == 100 ? "Task completed!" : "Work in progress...");
-                        
-                        Notification adminNotification = new Notification(adminTitle, adminMessage, 
-                            Notification.NotificationType.PROGRESS_UPDATE, admin, report);
-                        adminNotification.setProgressPercentage(progressPercentage);
-                        adminNotification.setActionUrl("/reports/" + report.getId());
-                        
-                        Notification savedAdmin = notificationRepository.save(adminNotification);
-                        sendRealTimeNotification(admin, savedAdmin);
-                    }
-                }
+        for (User admin : findOrganizationAdmins(report)) {
+            if (reporter == null || !admin.getId().equals(reporter.getId())) { // Don't duplicate for reporter
+                Notification adminNotification = new Notification("Progress Update on Assigned Report: " + report.getTitle(),
+                    String.format("Report progress updated to %d%% by staff member. %s", progressPercentage, status),
+                    Notification.NotificationType.PROGRESS_UPDATE, admin, report);
+                adminNotification.setProgressPercentage(progressPercentage);
+                adminNotification.setActionUrl("/reports/" + report.getId());
+                batch.add(adminNotification);
             }
         }
+
+        saveCoalescedAndDispatch(report, Notification.NotificationType.PROGRESS_UPDATE, batch);
     }
 
     /**
      * Create a new comment notification
      */
+    @Transactional
     public void createCommentNotification(Comment comment, User recipient) {
         String title = "New Comment on: " + comment.getReport().getTitle();
         String message = String.format("%s commented: %s", 
@@ -107,46 +132,47 @@ public class NotificationService {
     /**
      * Create comment notifications for both reporter and organization admins
      */
+    @Transactional
     public void createCommentNotificationForAll(Comment comment) {
         Report report = comment.getReport();
         User commenter = comment.getUser();
-        
+        User reporter = report.getReporter();
+        String preview = comment.getContent().length() > 50 ?
+            comment.getContent().substring(0, 50) + "..." :
+            comment.getContent();
+        List<Notification> batch = new ArrayList<>();
+
         // Notify the reporter (if not the commenter)
-        if (report.getReporter() != null && !report.getReporter().getId().equals(commenter.getId())) {
-            createCommentNotification(comment, report.getReporter());
+        if (reporter != null && !reporter.getId().equals(commenter.getId())) {
+            Notification notification = new Notification("New Comment on: " + report.getTitle(),
+                String.format("%s commented: %s", commenter.getFullName(), preview),
+                Notification.NotificationType.NEW_COMMENT, reporter, report);
+            notification.setComment(comment);
+            notification.setActionUrl("/reports/" + report.getId());
+            batch.add(notification);
         }
-        
+
         // Notify organization admins (if not the commenter and not already notified as reporter)
-        if (report.getTargetOrganizations() != null && !report.getTargetOrganizations().isEmpty()) {
-            for (Organization org : report.getTargetOrganizations()) {
-                List<User> admins = userRepository.findByOrganizationAndUserType(org, User.UserType.ORGANIZATION_ADMIN);
-                for (User admin : admins) {
-                    if (!admin.getId().equals(commenter.getId()) && 
-                        (report.getReporter() == null || !admin.getId().equals(report.getReporter().getId()))) {
-                        
-                        String adminTitle = "New Comment on Assigned Report: " + report.getTitle();
-                        String adminMessage = String.format("%s commented on a report assigned to your organization: %s", 
-                            commenter.getFullName(), 
-                            comment.getContent().length() > 50 ? 
-                                comment.getContent().substring(0, 50) + "..." : 
-                                comment.getContent());
-                        
-                        Notification adminNotification = new Notification(adminTitle, adminMessage, 
-                            Notification.NotificationType.NEW_COMMENT, admin, report);
-                        adminNotification.setComment(comment);
-                        adminNotification.setActionUrl("/reports/" + report.getId());
-                        
-                        Notification savedAdmin = notificationRepository.save(adminNotification);
-                        sendRealTimeNotification(admin, savedAdmin);
-                    }
-                }
+        for (User admin : findOrganizationAdmins(report)) {
+            if (!admin.getId().equals(commenter.getId()) &&
+                (reporter == null || !admin.getId().equals(reporter.getId()))) {
+
+                Notification adminNotification = new Notification("New Comment on Assigned Report: " + report.getTitle(),
+                    String.format("%s commented on a report assigned to your organization: %s", commenter.getFullName(), preview),
+                    Notification.NotificationType.NEW_COMMENT, admin, report);
+                adminNotification.setComment(comment);
+                adminNotification.setActionUrl("/reports/" + report.getId());
+                batch.add(adminNotification);
             }
         }
+
+        saveAndDispatch(batch);
     }
 
     /**
      * Create a comment reply notification
      */
+    @Transactional
     public void createCommentReplyNotification(Comment reply, User recipient) {
         String title = "Reply to Your Comment";
         String message = String.format("%s replied to your comment: %s", 
@@ -168,6 +194,7 @@ public class NotificationService {
     /**
      * Create a chat message notification
      */
+    @Transactional
     public void createChatNotification(User sender, User recipient, String messageContent, Report report) {
         String title = "New Message from " + sender.getFullName();
         String message = messageContent.length() > 100 ? 
@@ -186,6 +213,7 @@ public class NotificationService {
     /**
      * Create a report assignment notification
      */
+    @Transactional
     public void createReportAssignmentNotification(Report report, User assignee) {
         String title = "New Task Assigned: " + report.getTitle();
         String message = String.format("You have been assigned to work on: %s", report.getTitle());
@@ -202,6 +230,7 @@ public class NotificationService {
     /**
      * Create a report status change notification
      */
+    @Transactional
     public void createStatusChangeNotification(Report report, User recipient, Report.Status oldStatus, Report.Status newStatus) {
         String title = "Status Update: " + report.getTitle();
         String message = String.format("Report status changed from %s to %s", 
@@ -211,47 +240,46 @@ public class NotificationService {
         Notification notification = new Notification(title, message, Notification.NotificationType.REPORT_STATUS_CHANGE, recipient, report);
         notification.setActionUrl("/reports/" + report.getId());
         
-        Notification saved = notificationRepository.save(notification);
-        
-        // Send real-time notification
-        sendRealTimeNotification(recipient, saved);
+        saveCoalescedAndDispatch(report, Notification.NotificationType.REPORT_STATUS_CHANGE, Collections.singletonList(notification));
     }
 
     /**
      * Create status change notifications for both reporter and organization admins
      */
+    @Transactional
     public void createStatusChangeNotificationForAll(Report report, Report.Status oldStatus, Report.Status newStatus) {
+        String from = oldStatus.toString().replace("_", " ");
+        String to = newStatus.toString().replace("_", " ");
+        List<Notification> batch = new ArrayList<>();
+
         // Notify the reporter
-        if (report.getReporter() != null) {
-            createStatusChangeNotification(report, report.getReporter(), oldStatus, newStatus);
+        User reporter = report.getReporter();
+        if (reporter != null) {
+            Notification notification = new Notification("Status Update: " + report.getTitle(),
+                String.format("Report status changed from %s to %s", from, to),
+                Notification.NotificationType.REPORT_STATUS_CHANGE, reporter, report);
+            notification.setActionUrl("/reports/" + report.getId());
+            batch.add(notification);
         }
-        
+
         // Notify organization admins
-        if (report.getTargetOrganizations() != null && !report.getTargetOrganizations().isEmpty()) {
-            for (Organization org : report.getTargetOrganizations()) {
-                List<User> admins = userRepository.findByOrganizationAndUserType(org, User.UserType.ORGANIZATION_ADMIN);
-                for (User admin : admins) {
-                    if (report.getReporter() == null || !admin.getId().equals(report.getReporter().getId())) {
-                        String adminTitle = "Status Update on Assigned Report: " + report.getTitle();
-                        String adminMessage = String.format("Report status changed from %s to %s by staff member", 
-                            oldStatus.toString().replace("_", " "), 
-                            newStatus.toString().replace("_", " "));
-                        
-                        Notification adminNotification = new Notification(adminTitle, adminMessage, 
-                            Notification.NotificationType.REPORT_STATUS_CHANGE, admin, report);
-                        adminNotification.setActionUrl("/reports/" + report.getId());
-                        
-                        Notification savedAdmin = notificationRepository.save(adminNotification);
-                        sendRealTimeNotification(admin, savedAdmin);
-                    }
-                }
+        for (User admin : findOrganizationAdmins(report)) {
+            if (reporter == null || !admin.getId().equals(reporter.getId())) {
+                Notification adminNotification = new Notification("Status Update on Assigned Report: " + report.getTitle(),
+                    String.format("Report status changed from %s to %s by staff member", from, to),
+                    Notification.NotificationType.REPORT_STATUS_CHANGE, admin, report);
+                adminNotification.setActionUrl("/reports/" + report.getId());
+                batch.add(adminNotification);
             }
         }
+
+        saveCoalescedAndDispatch(report, Notification.NotificationType.REPORT_STATUS_CHANGE, batch);
     }
 
     /**
      * Create a report resolution notification
      */
+    @Transactional
     public void createReportResolvedNotification(Report report, User recipient) {
         String title = "Report Resolved: " + report.getTitle();
         String message = "Your report has been successfully resolved. Thank you for your contribution!";
@@ -285,14 +313,23 @@ public class NotificationService {
      * Get unread notification count for a user
      */
     public long getUnreadNotificationCount(User user) {
-        return notificationRepository.countByUserAndIsReadFalse(user);
+        return getUnreadNotificationCount(user.getId());
+    }
+
+    /**
+     * Get unread notification count for a user id (served from the in-memory counter)
+     */
+    public long getUnreadNotificationCount(Long userId) {
+        return unreadNotificationCounter.getUnreadCount(userId);
     }
 
     /**
-     * Mark notification as read
+     * Mark one of the user's notifications as read and update their unread counter
      */
-    public void markAsRead(Long notificationId) {
-        notificationRepository.markAsRead(notificationId, LocalDateTime.now());
+    public void markAsRead(Long notificationId, Long userId) {
+        if (notificationRepository.markAsReadForUser(notificationId, userId, LocalDateTime.now()) > 0) {
+            unreadNotificationCounter.decrement(userId);
+        }
     }
 
     /**
@@ -300,6 +337,7 @@ public class NotificationService {
      */
     public void markAllAsRead(User user) {
         notificationRepository.markAllAsReadForUser(user, LocalDateTime.now());
+        unreadNotificationCounter.reset(user.getId());
     }
 
     /**
@@ -310,12 +348,77 @@ public class NotificationService {
         return notificationRepository.findRecentNotifications(user, since);
     }
 
+    /**
+     * Notifications created or changed (read, coalesced) after the cursor, oldest change first.
+     * Rows changed within the last settle interval are held back so a transaction that commits
+     * late with an earlier timestamp cannot be skipped by a client that already moved past it.
+     */
+    @Transactional(readOnly = true)
+    public NotificationChangesResponse getChangesSince(Long userId, String cursor, int limit) {
+        int batchSize = Math.max(1, Math.min(limit, MAX_CHANGES_BATCH));
+        LocalDateTime afterTime = KeysetCursor.START_TIME;
+        long afterId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            afterTime = cursorTime(cursor);
+            afterId = cursorId(cursor);
+        }
+
+        LocalDateTime until = LocalDateTime.now().minusNanos(changesSettleMs * 1_000_000);
+        List<Notification> changes = notificationRepository.findChangesAfter(
+            userId, afterTime, afterId, until, PageRequest.of(0, batchSize + 1));
+
+        boolean hasMore = changes.size() > batchSize;
+        if (hasMore) {
+            changes = changes.subList(0, batchSize);
+        }
+        String nextCursor = cursor;
+        if (!changes.isEmpty()) {
+            nextCursor = cursorOf(changes.get(changes.size() - 1));
+        }
+        List<NotificationResponse> responses = changes.stream()
+            .map(NotificationResponse::new)
+            .collect(Collectors.toList());
+        return new NotificationChangesResponse(responses, nextCursor, hasMore);
+    }
+
+    /**
+     * Change-feed cursor ("<updatedAt epoch micros>_<id>") positioned just after the notification
+     */
+    static String cursorOf(Notification notification) {
+        return cursorOf(notification.getUpdatedAt(), notification.getId());
+    }
+
+    static String cursorOf(LocalDateTime updatedAt, long id) {
+        return KeysetCursor.of(updatedAt, id);
+    }
+
+    static LocalDateTime cursorTime(String cursor) {
+        return KeysetCursor.time(cursor);
+    }
+
+    static long cursorId(String cursor) {
+        return KeysetCursor.id(cursor);
+    }
+
     /**
      * Clean up old notifications (older than 30 days)
      */
     public void cleanupOldNotifications() {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(30);
         notificationRepository.deleteOldNotifications(cutoffDate);
+        unreadNotificationCounter.resetAll();
+    }
+
+    /**
+     * Switch a user between real-time pushes and periodic digests
+     */
+    @Transactional
+    public void setDigestMode(Long userId, boolean digest) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setNotificationDigest(digest);
+        userRepository.save(user);
+        recipientDirectory.invalidateDigestUsers();
     }
 
     /**
@@ -323,11 +426,13 @@ public class NotificationService {
      */
     public void clearAllNotifications(Long userId) {
         notificationRepository.deleteByUserId(userId);
+        unreadNotificationCounter.reset(userId);
     }
 
     /**
      * General purpose notification creation method (for testing and custom notifications)
      */
+    @Transactional
     public Notification createNotification(User user, String title, String message, 
                                          Notification.NotificationType type, Report report, 
                                          Comment comment, Integer progressPercentage) {
@@ -348,20 +453,119 @@ public class NotificationService {
         return saved;
     }
 
+    /**
+     * Admins of all target organizations of a report, from the cached recipient directory.
+     * Returned as references so building the fan-out does not load the user rows.
+     */
+    private List<User> findOrganizationAdmins(Report report) {
+        if (report.getTargetOrganizations() == null || report.getTargetOrganizations().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return recipientDirectory.getAdminIds(report.getTargetOrganizations()).stream()
+            .map(userRepository::getReferenceById)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Persist a fan-out batch in one saveAll (JDBC-batched) and push it after commit
+     */
+    private void saveAndDispatch(List<Notification> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        enqueuePushes(notificationRepository.saveAll(batch));
+    }
+
+    /**
+     * Persist progress or status notifications, folding each into the recipient's unread
+     * notification of the same type for the report when that one was raised within the
+     * coalescing window. The merged row takes the new text and moves to the top of the list.
+     */
+    private void saveCoalescedAndDispatch(Report report, Notification.NotificationType type, List<Notification> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (coalesceWindowSeconds <= 0) {
+            saveAndDispatch(batch);
+            return;
+        }
+
+        Set<Long> recipientIds = batch.stream().map(n -> n.getUser().getId()).collect(Collectors.toSet());
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Notification> latestByUser = new HashMap<>();
+        for (Notification candidate : notificationRepository.findCoalescingCandidates(
+                report, type, recipientIds, now.minusSeconds(coalesceWindowSeconds))) {
+            latestByUser.putIfAbsent(candidate.getUser().getId(), candidate);
+        }
+
+        List<Notification> created = new ArrayList<>();
+        List<Notification> merged = new ArrayList<>();
+        for (Notification notification : batch) {
+            Notification existing = latestByUser.get(notification.getUser().getId());
+            if (existing == null) {
+                created.add(notification);
+                continue;
+            }
+            existing.setTitle(notification.getTitle());
+            existing.setMessage(notification.getMessage());
+            existing.setProgressPercentage(notification.getProgressPercentage());
+            existing.setActionUrl(notification.getActionUrl());
+            existing.setCreatedAt(now);
+            merged.add(existing);
+        }
+
+        // Merged rows are managed and are written by the flush in enqueuePushes
+        enqueuePushes(notificationRepository.saveAll(created), merged);
+    }
+
     /**
      * Send real-time notification via WebSocket
      */
     private void sendRealTimeNotification(User user, Notification notification) {
-        try {
-            NotificationResponse response = new NotificationResponse(notification);
-            messagingTemplate.convertAndSendToUser(
-                user.getId().toString(),
-                "/queue/notifications",
-                response
-            );
-        } catch (Exception e) {
-            // Log error but don't fail the main operation
-            System.err.println("Failed to send real-time notification: " + e.getMessage());
+        enqueuePushes(Collections.singletonList(notification));
+    }
+
+    /**
+     * Record WebSocket pushes in the outbox within the current transaction. The outbox
+     * dispatcher delivers them once committed, so clients never see rolled-back notifications
+     * and the request thread never waits on the broker.
+     */
+    private void enqueuePushes(List<Notification> notifications) {
+        enqueuePushes(notifications, Collections.emptyList());
+    }
+
+    /**
+     * Same as above for a mix of new rows and coalesced rows updated in place. Both are pushed
+     * (clients replace by id) but only new rows count towards the unread total. Users in
+     * digest mode get no push here; NotificationDigestService summarizes for them.
+     */
+    private void enqueuePushes(List<Notification> created, List<Notification> merged) {
+        // Flush first so insert-generated values such as createdAt are part of the payload
+        notificationRepository.flush();
+
+        List<OutboxEvent> events = new ArrayList<>(created.size() + merged.size());
+        Map<Long, List<Long>> newUnread = new HashMap<>();
+        for (Notification notification : created) {
+            newUnread.computeIfAbsent(notification.getUser().getId(), id -> new ArrayList<>()).add(notification.getId());
+        }
+        List<Notification> pushed = new ArrayList<>(created);
+        pushed.addAll(merged);
+        for (Notification notification : pushed) {
+            Long userId = notification.getUser().getId();
+            if (recipientDirectory.isDigestUser(userId)) {
+                continue;
+            }
+            events.add(new OutboxEvent(userId.toString(), NOTIFICATION_DESTINATION,
+                outboxService.toJson(new NotificationResponse(notification))));
         }
+        outboxService.enqueue(events);
+
+        // Counters must only see committed rows, otherwise a rollback would leave them too high
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                newUnread.forEach(unreadNotificationCounter::increment);
+            }
+        });
     }
 }
@@ -0,0 +1,376 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.NotificationResponse;
+import com.ambiguous.fixpoint.entity.Notification;
+import com.ambiguous.fixpoint.repository.NotificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events delivery of notification changes for clients that cannot hold a
+ * WebSocket open.
+ *
+ * Streams are fed from the same (updatedAt, id) change feed as /api/notifications/changes:
+ * a single poller thread reads the changes of every user connected to this node in one keyset
+ * query per tick and hands them to a small pool of writer threads, so idle connections cost
+ * no thread and no per-user query. Every event carries its change-feed cursor as the SSE id;
+ * a reconnecting client sends it back in Last-Event-ID and is replayed what it missed before
+ * joining the live feed. Because the feed is read from the database, it works the same on
+ * every node regardless of which node created the notification.
+ *
+ * A stream that falls behind is closed rather than buffered: more than max-pending queued
+ * events, or a single write stuck for longer than write-timeout-ms, ends the stream and frees
+ * its writer thread. The client reconnects with its Last-Event-ID and catches up from the
+ * database, so nothing is lost and one stalled socket cannot hold up everyone else.
+ */
+@Service
+public class NotificationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    // Keeps IN lists within what every database handles comfortably
+    private static final int USER_CHUNK_SIZE = 500;
+
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.stream.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.notifications.stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${app.notifications.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.notifications.stream.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${app.notifications.stream.replay-max:1000}")
+    private int replayMax;
+
+    @Value("${app.notifications.stream.max-pending:256}")
+    private int maxPending;
+
+    @Value("${app.notifications.stream.write-timeout-ms:10000}")
+    private long writeTimeoutMs;
+
+    @Value("${app.notifications.changes.settle-ms:1000}")
+    private long settleMs;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService writers;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    // New streams waiting for their Last-Event-ID replay on the poller thread
+    private final Queue<Subscriber> joining = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // Upper bound of the window covered by the previous tick; only touched by the poller thread
+    private LocalDateTime feedWatermark;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger writerIndex = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, r -> {
+            Thread thread = new Thread(r, "notif-sse-writer-" + writerIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notif-sse-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        feedWatermark = settledNow();
+        poller.scheduleWithFixedDelay(this::pollSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        if (writers != null) {
+            writers.shutdownNow();
+        }
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    /**
+     * Open a stream for the user. A non-blank lastEventId replays the changes after that
+     * cursor first; an invalid one is rejected with IllegalArgumentException.
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(emitterTimeoutMs));
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            subscriber.afterTime = NotificationService.cursorTime(lastEventId);
+            subscriber.afterId = NotificationService.cursorId(lastEventId);
+        }
+
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+
+        // Tell EventSource how soon to come back if the connection drops
+        subscriber.enqueue(SseEmitter.event().comment("connected").reconnectTime(3000));
+        joining.add(subscriber);
+        connectionCount.incrementAndGet();
+        return subscriber.emitter;
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.error("Notification stream poll failed", e);
+        }
+    }
+
+    private void poll() {
+        LocalDateTime windowStart = feedWatermark;
+        LocalDateTime windowEnd = settledNow();
+
+        // Bring new streams up to the start of this window, then they ride the live feed
+        Subscriber subscriber;
+        while ((subscriber = joining.poll()) != null) {
+            replay(subscriber, windowStart);
+            subscribers.computeIfAbsent(subscriber.userId, id -> new CopyOnWriteArraySet<>()).add(subscriber);
+            if (subscriber.closed.get()) {
+                // Closed while replaying; remove() already ran and could not see it registered
+                unregister(subscriber);
+            }
+        }
+
+        if (!subscribers.isEmpty() && windowEnd.isAfter(windowStart)) {
+            List<Long> userIds = new ArrayList<>(subscribers.keySet());
+            for (int from = 0; from < userIds.size(); from += USER_CHUNK_SIZE) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + USER_CHUNK_SIZE, userIds.size()));
+                publishWindow(chunk, windowStart, windowEnd);
+            }
+        }
+        if (windowEnd.isAfter(windowStart)) {
+            feedWatermark = windowEnd;
+        }
+    }
+
+    private void replay(Subscriber subscriber, LocalDateTime until) {
+        if (subscriber.afterTime == null) {
+            return;
+        }
+        int replayed = 0;
+        while (replayed < replayMax) {
+            List<Notification> page = notificationRepository.findChangesAfter(subscriber.userId,
+                    subscriber.afterTime, subscriber.afterId, until, PageRequest.of(0, PAGE_SIZE));
+            page.forEach(subscriber::send);
+            replayed += page.size();
+            if (page.size() < PAGE_SIZE) {
+                return;
+            }
+        }
+        // Too far behind to stream; the client pages through /changes from here instead
+        logger.debug("Replay for user {} capped at {} events", subscriber.userId, replayMax);
+        subscriber.enqueue(SseEmitter.event().name("resync").data(subscriber.cursor()));
+    }
+
+    private void publishWindow(List<Long> userIds, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        LocalDateTime afterTime = windowStart;
+        // Rows stamped exactly at windowStart were delivered by the previous tick
+        long afterId = Long.MAX_VALUE;
+        while (true) {
+            List<Notification> page = notificationRepository.findChangesForUsersAfter(
+                    userIds, afterTime, afterId, windowEnd, PageRequest.of(0, PAGE_SIZE));
+            for (Notification notification : page) {
+                Set<Subscriber> streams = subscribers.get(notification.getUser().getId());
+                if (streams != null) {
+                    streams.forEach(stream -> stream.send(notification));
+                }
+            }
+            if (page.size() < PAGE_SIZE) {
+                return;
+            }
+            Notification last = page.get(page.size() - 1);
+            afterTime = last.getUpdatedAt();
+            afterId = last.getId();
+        }
+    }
+
+    private void sendHeartbeats() {
+        long now = System.nanoTime();
+        // Comment frames keep proxies from idling the connection out and surface dead sockets
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            long writeStarted = subscriber.writeStartedNanos;
+            if (writeStarted != 0 && now - writeStarted > TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs)) {
+                evict(subscriber, "stalled");
+            } else if (subscriber.pendingCount.get() == 0) {
+                subscriber.enqueue(SseEmitter.event().comment("heartbeat"));
+            }
+        }));
+    }
+
+    // Ends a stream that cannot keep up; the client reconnects and replays from Last-Event-ID
+    private void evict(Subscriber subscriber, String reason) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        logger.debug("Closing {} notification stream of user {}", reason, subscriber.userId);
+        meterRegistry.counter("fixpoint.notifications.stream.evicted", "reason", reason).increment();
+        remove(subscriber);
+        subscriber.pending.clear();
+        subscriber.pendingCount.set(0);
+        Thread writer = subscriber.writer;
+        if (writer != null && subscriber.writeStartedNanos != 0) {
+            // Unblocks a write parked on a full socket buffer so the writer thread is freed
+            writer.interrupt();
+        }
+        try {
+            subscriber.emitter.complete();
+        } catch (IllegalStateException ignored) {
+            // Already completed by the container
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        joining.remove(subscriber);
+        unregister(subscriber);
+        connectionCount.decrementAndGet();
+    }
+
+    private void unregister(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private LocalDateTime settledNow() {
+        return LocalDateTime.now().minusNanos(settleMs * 1_000_000);
+    }
+
+    /**
+     * One open stream. Events are queued here, up to max-pending, and written by at most one
+     * writer thread at a time, so a slow client only ever occupies a single writer.
+     */
+    private class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        // Last change queued to this stream; older feed rows are skipped
+        private LocalDateTime afterTime;
+        private long afterId;
+
+        // Set while a write is in progress so the heartbeat tick can spot a stalled socket
+        private volatile Thread writer;
+        private volatile long writeStartedNanos;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private String cursor() {
+            return NotificationService.cursorOf(afterTime, afterId);
+        }
+
+        private void send(Notification notification) {
+            if (afterTime != null) {
+                int order = notification.getUpdatedAt().compareTo(afterTime);
+                if (order < 0 || (order == 0 && notification.getId() <= afterId)) {
+                    return;
+                }
+            }
+            afterTime = notification.getUpdatedAt();
+            afterId = notification.getId();
+            enqueue(SseEmitter.event()
+                    .id(NotificationService.cursorOf(notification))
+                    .name("notification")
+                    .data(new NotificationResponse(notification)));
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > maxPending) {
+                evict(this, "overflow");
+                return;
+            }
+            pending.add(event);
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            writer = Thread.currentThread();
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    writeStartedNanos = System.nanoTime();
+                    emitter.send(event);
+                    writeStartedNanos = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the emitter callbacks may not fire for a broken pipe
+                pending.clear();
+                remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                writeStartedNanos = 0;
+                writer = null;
+                // An eviction interrupt must not leak into the next task on this pooled thread
+                Thread.interrupted();
+                draining.set(false);
+            }
+            if (!pending.isEmpty() && !closed.get() && draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+    }
+}
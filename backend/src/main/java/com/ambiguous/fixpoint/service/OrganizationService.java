@@ -14,6 +14,9 @@ public class OrganizationService {
     @Autowired
     private OrganizationRepository organizationRepository;
 
+    @Autowired
+    private NotificationRecipientDirectory recipientDirectory;
+
     public List<Organization> getAllActiveOrganizations() {
         return organizationRepository.findByIsActiveTrue();
     }
@@ -81,7 +84,9 @@ public class OrganizationService {
         organization.setCategories(organizationDetails.getCategories());
         organization.setIsActive(organizationDetails.getIsActive());
 
-        return organizationRepository.save(organization);
+        Organization saved = organizationRepository.save(organization);
+        recipientDirectory.invalidateOrganization(id);
+        return saved;
     }
 
     public void deleteOrganization(Long id) {
@@ -89,6 +94,7 @@ public class OrganizationService {
                 .orElseThrow(() -> new RuntimeException("Organization not found with id: " + id));
         organization.setIsActive(false);
         organizationRepository.save(organization);
+        recipientDirectory.invalidateOrganization(id);
     }
 
     public boolean existsByName(String name) {
@@ -0,0 +1,199 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.OutboxEvent;
+import com.ambiguous.fixpoint.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox on a single background thread: claims pending events in id order, pushes
+ * them through {@link SimpMessagingTemplate} and marks them delivered. Every node runs a
+ * dispatcher against the shared table, so a batch is claimed with a conditional update before
+ * it is pushed and each event goes out from one node only. Claims lapse after claim-seconds,
+ * so events claimed by a node that crashed, or left pending by a broker outage, are picked up
+ * again on a later poll. Delivered events, and events that used up max-attempts, are purged once
+ * they are older than retention-hours.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    // How long a claimed batch stays reserved for this node; well above the time to push one
+    @Value("${app.outbox.claim-seconds:30}")
+    private long claimSeconds;
+
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    private Counter deadPurged;
+
+    private ScheduledExecutorService executor;
+
+    // Set while a wake-up drain is queued so bursts of commits collapse into one drain
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void start() {
+        deadPurged = Counter.builder("fixpoint.outbox.dead.purged")
+                .description("Outbox events purged undelivered after using up their attempts")
+                .register(meterRegistry);
+        if (!enabled) {
+            logger.info("Outbox dispatcher disabled");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::drainSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::purge, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Request a drain as soon as possible, e.g. right after an enqueueing transaction commits
+     */
+    public void wakeUp() {
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        if (wakeUpPending.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    wakeUpPending.set(false);
+                    drainSafely();
+                });
+            } catch (Exception e) {
+                wakeUpPending.set(false);
+            }
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            logger.warn("Outbox drain failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claim and push pending events batch by batch until nothing is left to claim or a batch
+     * fails entirely
+     */
+    void drain() {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> candidates = outboxEventRepository.findClaimableIds(maxAttempts, now, PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                return;
+            }
+            // Fresh token per batch, so only rows claimed just now are read back
+            String token = schedulerLockService.getOwner() + "-" + claimSequence.incrementAndGet();
+            outboxEventRepository.claim(candidates, token, now, now.plusSeconds(claimSeconds));
+            List<OutboxEvent> batch = outboxEventRepository.findClaimed(token);
+            if (batch.isEmpty()) {
+                // Another node claimed all of them first; go round for the next candidates
+                continue;
+            }
+
+            List<Long> delivered = new ArrayList<>(batch.size());
+            List<Long> failed = new ArrayList<>();
+            for (OutboxEvent event : batch) {
+                try {
+                    JsonNode body = objectMapper.readTree(event.getPayload());
+                    messagingTemplate.convertAndSendToUser(event.getRecipient(), event.getDestination(), body);
+                    delivered.add(event.getId());
+                } catch (Exception e) {
+                    logger.warn("Outbox event {} could not be pushed: {}", event.getId(), e.getMessage());
+                    failed.add(event.getId());
+                }
+            }
+
+            if (!delivered.isEmpty()) {
+                outboxEventRepository.markDelivered(delivered, LocalDateTime.now());
+            }
+            if (!failed.isEmpty()) {
+                outboxEventRepository.incrementAttempts(failed);
+            }
+            // Back off until the next poll when nothing went through or the outbox is drained
+            if (delivered.isEmpty() || candidates.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    void purge() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+            int purged = outboxEventRepository.deleteDeliveredBefore(cutoff);
+            if (purged > 0) {
+                logger.info("Purged {} delivered outbox events", purged);
+            }
+            int dead = outboxEventRepository.deleteExhaustedBefore(maxAttempts, cutoff);
+            if (dead > 0) {
+                deadPurged.increment(dead);
+                logger.warn("Purged {} outbox events that were never delivered after {} attempts", dead, maxAttempts);
+            }
+        } catch (Exception e) {
+            logger.warn("Outbox purge failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.OutboxEvent;
+import com.ambiguous.fixpoint.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Writes real-time messages to the outbox. Callers enqueue inside their own transaction, so a
+ * message becomes visible to the dispatcher exactly when the change it describes commits.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Queue a message for a user destination such as /queue/notifications
+     */
+    public void enqueueForUser(Long userId, String destination, Object payload) {
+        enqueue(List.of(new OutboxEvent(userId.toString(), destination, toJson(payload))));
+    }
+
+    public void enqueue(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        outboxEventRepository.saveAll(events);
+
+        // Nudge the dispatcher once the rows are committed instead of waiting for its next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxDispatcher.wakeUp();
+                }
+            });
+        } else {
+            outboxDispatcher.wakeUp();
+        }
+    }
+
+    public String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize outbox payload: " + e.getMessage(), e);
+        }
+    }
+}
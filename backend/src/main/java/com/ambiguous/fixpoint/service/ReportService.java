@@ -56,6 +56,9 @@ public class ReportService {
     @Autowired
     private PDFExportService pdfExportService;
 
+    @Autowired
+    private DuplicateClusteringService duplicateClusteringService;
+
     private final String uploadDir = "uploads/";
 
     public ReportSummary createReport(ReportRequest reportRequest, MultipartFile image, User reporter) {
@@ -91,13 +94,24 @@ public class ReportService {
         }
 
         Report savedReport = reportRepository.save(report);
+
+        // Cluster with existing duplicates in the background; the response does not wait for it
+        duplicateClusteringService.clusterReportAsync(savedReport.getId());
+
         return convertToReportSummary(savedReport, null);
     }
 
     @Transactional(readOnly = true)
     public Page<ReportSummary> getAllReports(Pageable pageable, User currentUser) {
+        return getAllReports(pageable, currentUser, false);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ReportSummary> getAllReports(Pageable pageable, User currentUser, boolean collapseDuplicates) {
         // Two-step approach to avoid collection fetch with pagination warning
-        Page<Report> reportPage = reportRepository.findAllWithImagesPrioritizedOrderByCreatedAtDesc(pageable);
+        Page<Report> reportPage = collapseDuplicates
+                ? reportRepository.findClusterRepresentativesWithImagesPrioritizedOrderByCreatedAtDesc(pageable)
+                : reportRepository.findAllWithImagesPrioritizedOrderByCreatedAtDesc(pageable);
         
         if (reportPage.getContent().isEmpty()) {
             return reportPage.map(report -> convertToReportSummary(report, currentUser));
@@ -126,8 +140,15 @@ public class ReportService {
 
     @Transactional(readOnly = true)
     public Page<ReportSummary> getReportsByStatus(Report.Status status, Pageable pageable, User currentUser) {
+        return getReportsByStatus(status, pageable, currentUser, false);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ReportSummary> getReportsByStatus(Report.Status status, Pageable pageable, User currentUser, boolean collapseDuplicates) {
         // Two-step approach to avoid collection fetch with pagination warning
-        Page<Report> reportPage = reportRepository.findByStatusWithImagesPrioritizedOrderByCreatedAtDesc(status, pageable);
+        Page<Report> reportPage = collapseDuplicates
+                ? reportRepository.findClusterRepresentativesByStatusWithImagesPrioritizedOrderByCreatedAtDesc(status, pageable)
+                : reportRepository.findByStatusWithImagesPrioritizedOrderByCreatedAtDesc(status, pageable);
         
         if (reportPage.getContent().isEmpty()) {
             return reportPage.map(report -> convertToReportSummary(report, currentUser));
@@ -156,8 +177,15 @@ public class ReportService {
 
     @Transactional(readOnly = true)
     public Page<ReportSummary> getReportsByCategory(Report.Category category, Pageable pageable, User currentUser) {
+        return getReportsByCategory(category, pageable, currentUser, false);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ReportSummary> getReportsByCategory(Report.Category category, Pageable pageable, User currentUser, boolean collapseDuplicates) {
         // Two-step approach to avoid collection fetch with pagination warning
-        Page<Report> reportPage = reportRepository.findByCategoryWithImagesPrioritizedOrderByCreatedAtDesc(category, pageable);
+        Page<Report> reportPage = collapseDuplicates
+                ? reportRepository.findClusterRepresentativesByCategoryWithImagesPrioritizedOrderByCreatedAtDesc(category, pageable)
+                : reportRepository.findByCategoryWithImagesPrioritizedOrderByCreatedAtDesc(category, pageable);
         
         if (reportPage.getContent().isEmpty()) {
             return reportPage.map(report -> convertToReportSummary(report, currentUser));
@@ -294,7 +322,7 @@ public class ReportService {
         return uploadDir + fileName;
     }
 
-    private ReportSummary convertToReportSummary(Report report, User currentUser) {
+    ReportSummary convertToReportSummary(Report report, User currentUser) {
         ReportSummary summary = new ReportSummary();
         summary.setId(report.getId());
         summary.setTitle(report.getTitle());
@@ -311,6 +339,8 @@ public class ReportService {
         summary.setResolvedAt(report.getResolvedAt());
         summary.setVoteCount(report.getVoteCount());
         summary.setCreatedAt(report.getCreatedAt());
+        summary.setDuplicateClusterId(report.getDuplicateClusterId());
+        summary.setDuplicateClusterSize(report.getDuplicateClusterSize() != null ? report.getDuplicateClusterSize() : 1);
         summary.setUpdatedAt(report.getUpdatedAt());
         
         // Set progress tracking fields
@@ -0,0 +1,155 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.repository.ChatbotConversationRepository;
+import com.ambiguous.fixpoint.repository.EmailVerificationOtpRepository;
+import com.ambiguous.fixpoint.repository.NotificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Nightly purge of expired notifications, OTPs and chatbot conversations.
+ *
+ * Rows are deleted in id-ordered chunks, each in its own short transaction with a pause in
+ * between, so the purge never holds long locks on the tables it cleans. A database lease makes
+ * sure only one node runs it. Rows purged and time spent are recorded per table as
+ * fixpoint.retention.rows.purged and fixpoint.retention.duration.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    private static final String LOCK_NAME = "retention";
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EmailVerificationOtpRepository otpRepository;
+
+    @Autowired
+    private ChatbotConversationRepository chatbotConversationRepository;
+
+    @Autowired
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.retention.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${app.retention.lock-minutes:60}")
+    private long lockMinutes;
+
+    // Per-table policies; zero or less disables the table
+    @Value("${app.retention.notifications.max-age-days:30}")
+    private long notificationMaxAgeDays;
+
+    @Value("${app.retention.otps.grace-hours:24}")
+    private long otpGraceHours;
+
+    @Value("${app.retention.chatbot.max-age-days:90}")
+    private long chatbotMaxAgeDays;
+
+    @Scheduled(cron = "${app.retention.cron:0 30 3 * * *}")
+    public void runScheduled() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    /**
+     * Run every enabled policy once. Returns rows purged per table, or an empty map when
+     * another node holds the lease.
+     */
+    public Map<String, Long> run() {
+        if (!schedulerLockService.tryLock(LOCK_NAME, Duration.ofMinutes(lockMinutes))) {
+            logger.info("Retention run skipped, another node holds the lock");
+            return Map.of();
+        }
+
+        Map<String, Long> purged = new LinkedHashMap<>();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (notificationMaxAgeDays > 0) {
+                long count = purge("notifications", now.minusDays(notificationMaxAgeDays),
+                        notificationRepository::findIdsCreatedBefore, notificationRepository::deleteByIdIn);
+                purged.put("notifications", count);
+                if (count > 0) {
+                    // Purged rows may have been unread
+                    unreadNotificationCounter.resetAll();
+                }
+            }
+            if (otpGraceHours > 0) {
+                purged.put("email_verification_otps", purge("email_verification_otps", now.minusHours(otpGraceHours),
+                        otpRepository::findIdsExpiredBefore, otpRepository::deleteByIdIn));
+            }
+            if (chatbotMaxAgeDays > 0) {
+                purged.put("chatbot_conversations", purge("chatbot_conversations", now.minusDays(chatbotMaxAgeDays),
+                        chatbotConversationRepository::findIdsCreatedBefore, chatbotConversationRepository::deleteByIdIn));
+            }
+            logger.info("Retention run completed: {}", purged);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Retention run interrupted after {}", purged);
+        } finally {
+            schedulerLockService.unlock(LOCK_NAME);
+        }
+        return purged;
+    }
+
+    private long purge(String table, LocalDateTime cutoff,
+                       BiFunction<LocalDateTime, Pageable, List<Long>> findIds,
+                       Function<Collection<Long>, Integer> deleteIds) throws InterruptedException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = 0;
+        try {
+            while (true) {
+                Integer deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = findIds.apply(cutoff, PageRequest.of(0, chunkSize));
+                    return ids.isEmpty() ? 0 : deleteIds.apply(ids);
+                });
+                int count = deleted != null ? deleted : 0;
+                total += count;
+                meterRegistry.counter("fixpoint.retention.rows.purged", "table", table).increment(count);
+                if (count < chunkSize) {
+                    return total;
+                }
+                Thread.sleep(pauseMs);
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("fixpoint.retention.duration", "table", table));
+        }
+    }
+}
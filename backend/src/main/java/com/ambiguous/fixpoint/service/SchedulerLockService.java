@@ -0,0 +1,73 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.SchedulerLock;
+import com.ambiguous.fixpoint.repository.SchedulerLockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Database-backed leases so a scheduled job runs on a single node even when several
+ * instances share the database. A lease expires on its own if the holder dies.
+ */
+@Service
+public class SchedulerLockService {
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    private final String owner = resolveOwner();
+
+    public boolean tryLock(String name, Duration leaseTime) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!schedulerLockRepository.existsById(name)) {
+            try {
+                schedulerLockRepository.saveAndFlush(new SchedulerLock(name, now.minusSeconds(1)));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the row first; fall through and compete for it
+            }
+        }
+        return schedulerLockRepository.tryAcquire(name, owner, now, now.plus(leaseTime)) == 1;
+    }
+
+    public void unlock(String name) {
+        schedulerLockRepository.release(name, owner, LocalDateTime.now());
+    }
+
+    /**
+     * Progress recorded by the job holding the lease, or null if it has never recorded any
+     */
+    public LocalDateTime getWatermark(String name) {
+        return schedulerLockRepository.findById(name).map(SchedulerLock::getWatermark).orElse(null);
+    }
+
+    /**
+     * Record the job's progress. Call while holding the lease, inside the transaction that does
+     * the work, so the watermark only moves if that work commits.
+     */
+    public void setWatermark(String name, LocalDateTime watermark) {
+        schedulerLockRepository.updateWatermark(name, owner, watermark);
+    }
+
+    /**
+     * Identity of this node (host name plus a per-start suffix), as recorded on the leases it holds
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    private static String resolveOwner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
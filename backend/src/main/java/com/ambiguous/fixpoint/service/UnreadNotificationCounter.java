@@ -0,0 +1,154 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.UnreadCountMessage;
+import com.ambiguous.fixpoint.repository.NotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user unread notification counts held in memory. A counter is seeded from the database
+ * the first time it is read and then kept current by the notification write paths, which call
+ * in here after their transaction commits. Changes to a cached counter are pushed to the user
+ * on /queue/notifications so clients do not need to poll.
+ *
+ * A seed can run after a notification committed but before its commit callback increments the
+ * counter. The seed therefore lists the unread notifications created in the last few minutes,
+ * and increments for those ids are skipped, since the seed already counted them.
+ *
+ * Counts are local to this node. Writes made through other nodes, and bulk deletes there, are
+ * only picked up when the counter is re-seeded, which happens after ttl-seconds. Entries that
+ * may be stale are dropped rather than adjusted and re-seeded on the next read.
+ */
+@Service
+public class UnreadNotificationCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadNotificationCounter.class);
+
+    // Longest expected gap between inserting a notification and its transaction's commit callback
+    private static final long SEED_OVERLAP_SECONDS = 120;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.notifications.unread-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.notifications.unread-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Current unread count, seeded from the database on a miss or once the counter has expired
+     */
+    public long getUnreadCount(Long userId) {
+        if (counters.size() >= maxEntries && !counters.containsKey(userId)) {
+            // Crude bound: start over rather than track recency for every read
+            counters.clear();
+        }
+        long now = System.currentTimeMillis();
+        // compute holds the entry while seeding, so concurrent increments wait for it
+        return counters.compute(userId, (id, counter) ->
+                counter != null && !counter.isExpired(now) ? counter : seed(id, now)).count.get();
+    }
+
+    /**
+     * New unread notifications were committed for the user
+     */
+    public void increment(Long userId, Collection<Long> notificationIds) {
+        long now = System.currentTimeMillis();
+        // Absent counters are left alone: the next read seeds them including these rows
+        Counter counter = counters.computeIfPresent(userId, (id, c) -> {
+            if (c.isExpired(now)) {
+                return null;
+            }
+            long delta = notificationIds.stream().filter(n -> !c.seededIds.contains(n)).count();
+            c.count.addAndGet(delta);
+            return c;
+        });
+        if (counter != null) {
+            publish(userId, counter.count.get());
+        }
+    }
+
+    /**
+     * A single notification of the user went from unread to read
+     */
+    public void decrement(Long userId) {
+        long now = System.currentTimeMillis();
+        Counter counter = counters.computeIfPresent(userId, (id, c) -> {
+            if (c.isExpired(now)) {
+                return null;
+            }
+            c.count.updateAndGet(v -> Math.max(0, v - 1));
+            return c;
+        });
+        if (counter != null) {
+            publish(userId, counter.count.get());
+        }
+    }
+
+    /**
+     * Drop the user's counter after bulk changes (mark all read, clear); it is re-seeded on demand
+     */
+    public void reset(Long userId) {
+        counters.remove(userId);
+        publish(userId, getUnreadCount(userId));
+    }
+
+    /**
+     * Drop every counter on this node, e.g. after retention deletes notifications across users.
+     * Other nodes catch up as their counters expire.
+     */
+    public void resetAll() {
+        counters.clear();
+    }
+
+    // Older rows are counted and recent ones listed, so the total and the skip list agree
+    private Counter seed(Long userId, long now) {
+        LocalDateTime since = LocalDateTime.now().minusSeconds(SEED_OVERLAP_SECONDS);
+        long older = notificationRepository.countUnreadCreatedBefore(userId, since);
+        Set<Long> recent = new HashSet<>(notificationRepository.findUnreadIdsCreatedSince(userId, since));
+        return new Counter(older + recent.size(), recent, now + ttlSeconds * 1000);
+    }
+
+    private void publish(Long userId, long count) {
+        try {
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notifications", new UnreadCountMessage(count));
+        } catch (Exception e) {
+            logger.warn("Failed to push unread count to user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static class Counter {
+        private final AtomicLong count;
+        // Unread notifications the seed already counted that may still have an increment on the way
+        private final Set<Long> seededIds;
+        private final long expiresAt;
+
+        private Counter(long count, Set<Long> seededIds, long expiresAt) {
+            this.count = new AtomicLong(count);
+            this.seededIds = seededIds;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ambiguous.fixpoint.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process ActiveMQ Artemis broker with a STOMP acceptor, standing in for the external
+ * broker in relay-mode tests. Lives with the tests so the broker never ships in the
+ * application jar; enable it on one node only.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.websocket.broker.embedded", havingValue = "true")
+public class EmbeddedStompBrokerConfig {
+
+    @Value("${app.websocket.broker.relay-port:61613}")
+    private int stompPort;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedStompBroker() throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.setJMXManagementEnabled(false);
+        configuration.setJournalDirectory("target/artemis/journal");
+        // No routing prefixes: every address defaults to multicast, which keeps the
+        // destination-type header the relay copies onto resolved user messages consistent
+        configuration.addAcceptorConfiguration("stomp",
+                "tcp://localhost:" + stompPort + "?protocols=STOMP");
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        return broker;
+    }
+}
@@ -0,0 +1,205 @@
+package com.ambiguous.fixpoint.config;
+
+import com.ambiguous.fixpoint.FixpointApplication;
+import com.ambiguous.fixpoint.entity.Notification;
+import com.ambiguous.fixpoint.entity.OutboxEvent;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.OutboxEventRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import com.ambiguous.fixpoint.security.JwtTokenProvider;
+import com.ambiguous.fixpoint.security.UserPrincipal;
+import com.ambiguous.fixpoint.service.NotificationService;
+import com.ambiguous.fixpoint.service.OutboxDispatcher;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two application nodes in relay mode against one embedded STOMP broker and one shared
+ * database, as a multi-node deployment would, and checks that notifications created on node A
+ * reach users connected to either node exactly once.
+ */
+class WebSocketBrokerRelayIntegrationTest {
+
+    private static final String JWT_SECRET =
+            "relay-integration-test-secret-that-is-long-enough-for-hs512-signing-0123456789";
+
+    private static final int BURST_SIZE = 20;
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:relay_shared;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    private static int brokerPort;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        brokerPort = freePort();
+        // Node A hosts the broker stand-in and creates the schema; node B joins the same database
+        nodeA = startNode(true, "create-drop");
+        nodeB = startNode(false, "update");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void notificationsReachEachUserExactlyOnceAcrossNodes() throws Exception {
+        UserRepository users = nodeA.getBean(UserRepository.class);
+        User remoteRecipient = users.findByUsername("test")
+                .orElseThrow(() -> new IllegalStateException("Seed user missing"));
+        User localRecipient = users.findByUsername("admin")
+                .orElseThrow(() -> new IllegalStateException("Seed user missing"));
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        stompClient.setTaskScheduler(receiptScheduler);
+
+        BlockingQueue<Map<String, Object>> remoteFrames = new LinkedBlockingQueue<>();
+        BlockingQueue<Map<String, Object>> localFrames = new LinkedBlockingQueue<>();
+        StompSession remoteSession = subscribe(stompClient, nodeB, remoteRecipient, remoteFrames);
+        StompSession localSession = subscribe(stompClient, nodeA, localRecipient, localFrames);
+
+        nodeA.getBean(NotificationService.class).createNotification(remoteRecipient, "Cross-node delivery",
+                "Sent from node A", Notification.NotificationType.SYSTEM_ANNOUNCEMENT, null, null, null);
+
+        // A burst written straight to the shared outbox, then both dispatchers woken at once so
+        // they compete for the same pending rows
+        List<OutboxEvent> burst = new ArrayList<>();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            burst.add(burstEvent(remoteRecipient, "Remote burst " + i));
+            burst.add(burstEvent(localRecipient, "Local burst " + i));
+        }
+        nodeA.getBean(OutboxEventRepository.class).saveAll(burst);
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> nodeA.getBean(OutboxDispatcher.class).wakeUp()),
+                CompletableFuture.runAsync(() -> nodeB.getBean(OutboxDispatcher.class).wakeUp())).join();
+
+        Map<String, Integer> remote = countByTitle(remoteFrames, BURST_SIZE + 1);
+        Map<String, Integer> local = countByTitle(localFrames, BURST_SIZE);
+        assertEquals(1, remote.get("Cross-node delivery"), "Notification created on node A was not delivered exactly once to node B");
+        for (int i = 0; i < BURST_SIZE; i++) {
+            assertEquals(1, remote.get("Remote burst " + i), "Remote burst " + i + " was not delivered exactly once");
+            assertEquals(1, local.get("Local burst " + i), "Local burst " + i + " was not delivered exactly once");
+        }
+
+        remoteSession.disconnect();
+        localSession.disconnect();
+        stompClient.stop();
+        receiptScheduler.shutdown();
+    }
+
+    private static StompSession subscribe(WebSocketStompClient stompClient, ConfigurableApplicationContext node,
+                                          User user, BlockingQueue<Map<String, Object>> frames) throws Exception {
+        UserPrincipal principal = UserPrincipal.create(user);
+        String token = node.getBean(JwtTokenProvider.class).generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        String url = "http://localhost:" + node.getEnvironment().getProperty("local.server.port") + "/ws";
+        StompSession session = stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders,
+                new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.setAutoReceipt(true);
+        session.subscribe("/user/queue/notifications", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add((Map<String, Object>) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "Subscription was not confirmed by the broker");
+        return session;
+    }
+
+    private static OutboxEvent burstEvent(User recipient, String title) {
+        return new OutboxEvent(recipient.getId().toString(), "/queue/notifications",
+                "{\"title\":\"" + title + "\",\"type\":\"SYSTEM_ANNOUNCEMENT\"}");
+    }
+
+    // Titled frames by title, gathered until the expected titles are in and a few dispatcher
+    // poll intervals pass without another one, so late duplicates are counted too
+    private static Map<String, Integer> countByTitle(BlockingQueue<Map<String, Object>> frames, int expectedTitles)
+            throws InterruptedException {
+        Map<String, Integer> counts = new HashMap<>();
+        long deadline = System.currentTimeMillis() + 20_000;
+        long quietUntil = Long.MAX_VALUE;
+        while (System.currentTimeMillis() < Math.min(deadline, quietUntil)) {
+            Map<String, Object> frame = frames.poll(250, TimeUnit.MILLISECONDS);
+            if (frame != null && frame.get("title") != null) {
+                counts.merge((String) frame.get("title"), 1, Integer::sum);
+                if (counts.size() >= expectedTitles) {
+                    quietUntil = System.currentTimeMillis() + 3_000;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static ConfigurableApplicationContext startNode(boolean embeddedBroker, String ddlAuto) {
+        // Passed as arguments so they take precedence over application.properties
+        return new SpringApplicationBuilder(FixpointApplication.class)
+                .profiles("test")
+                .run(
+                        "--server.port=0",
+                        // The test profile secret is too short to sign HS512 tokens
+                        "--jwt.secret=" + JWT_SECRET,
+                        "--spring.datasource.url=" + DATABASE_URL,
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--app.websocket.broker.mode=relay",
+                        "--app.websocket.broker.relay-host=localhost",
+                        "--app.websocket.broker.relay-port=" + brokerPort,
+                        "--app.websocket.broker.embedded=" + embeddedBroker);
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.ambiguous.fixpoint.config;
+
+import com.ambiguous.fixpoint.dto.UnreadCountMessage;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import com.ambiguous.fixpoint.security.JwtTokenProvider;
+import com.ambiguous.fixpoint.security.UserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Holds one client's socket writes so its outbound backlog passes the high-water mark, then
+ * checks that notification frames for it are dropped while other frames still queue, and that
+ * it gets a single unread-count frame once the socket drains.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // The test profile secret is too short to sign HS512 tokens
+        "jwt.secret=relay-integration-test-secret-that-is-long-enough-for-hs512-signing-0123456789",
+        "app.websocket.outbound.notification-high-water=8",
+        "app.websocket.outbound.notification-low-water=2",
+        // The held socket must not be closed as unresponsive while the test runs
+        "app.websocket.transport.send-time-limit-ms=60000"
+})
+@ActiveProfiles("test")
+class WebSocketNotificationSheddingIntegrationTest {
+
+    private static final int HIGH_WATER = 8;
+
+    private static final int NOTIFICATIONS = 20;
+
+    // Non-null while socket writes are held
+    private static volatile CountDownLatch socketGate;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private WebSocketOutboundInterceptor outboundInterceptor;
+
+    @Test
+    void slowSessionDropsNotificationsThenGetsOneUnreadCount() throws Exception {
+        User user = userRepository.findByUsername("test")
+                .orElseThrow(() -> new IllegalStateException("Seed user missing"));
+        String userId = user.getId().toString();
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token(user));
+        StompSession session = stompClient.connectAsync("http://localhost:" + port + "/ws",
+                new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<Map<String, Object>> notifications = subscribe(session, "/user/queue/notifications");
+        BlockingQueue<Map<String, Object>> messages = subscribe(session, "/user/queue/messages");
+        awaitDelivery(userId, "/queue/notifications", notifications);
+        awaitDelivery(userId, "/queue/messages", messages);
+
+        socketGate = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < NOTIFICATIONS; i++) {
+                messagingTemplate.convertAndSendToUser(userId, "/queue/notifications", Map.of("title", "Notification " + i));
+            }
+            messagingTemplate.convertAndSendToUser(userId, "/queue/messages", Map.of("content", "Chat"));
+
+            Map<String, Object> snapshot = snapshot(userId);
+            assertEquals(NOTIFICATIONS - HIGH_WATER, ((Number) snapshot.get("droppedNotifications")).intValue());
+            assertEquals(true, snapshot.get("collapsed"));
+        } finally {
+            socketGate.countDown();
+            socketGate = null;
+        }
+
+        // The frames queued before the mark plus one unread count; the outbound pool does not
+        // keep them in order
+        Set<Object> titles = new HashSet<>();
+        int titled = 0;
+        int unreadCounts = 0;
+        Map<String, Object> frame;
+        while ((frame = notifications.poll(3, TimeUnit.SECONDS)) != null) {
+            if (UnreadCountMessage.TYPE.equals(frame.get("type"))) {
+                unreadCounts++;
+            } else {
+                titles.add(frame.get("title"));
+                titled++;
+            }
+        }
+        Set<Object> expected = new HashSet<>();
+        for (int i = 0; i < HIGH_WATER; i++) {
+            expected.add("Notification " + i);
+        }
+        assertEquals(expected, titles);
+        assertEquals(HIGH_WATER, titled);
+        assertEquals(1, unreadCounts);
+        assertNotNull(messages.poll(5, TimeUnit.SECONDS), "chat frame was dropped");
+        assertEquals(false, snapshot(userId).get("collapsed"));
+
+        session.disconnect();
+        stompClient.stop();
+    }
+
+    private String token(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        return jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private static BlockingQueue<Map<String, Object>> subscribe(StompSession session, String destination) {
+        BlockingQueue<Map<String, Object>> frames = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add((Map<String, Object>) payload);
+            }
+        });
+        return frames;
+    }
+
+    // Probes until a frame comes through, so the subscription is in place and the socket idle
+    private void awaitDelivery(String userId, String destination, BlockingQueue<Map<String, Object>> frames)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            messagingTemplate.convertAndSendToUser(userId, destination, Map.of("probe", true));
+            if (frames.poll(200, TimeUnit.MILLISECONDS) != null) {
+                Thread.sleep(200);
+                frames.clear();
+                return;
+            }
+        }
+        throw new AssertionError("No frame reached " + destination);
+    }
+
+    private Map<String, Object> snapshot(String userId) {
+        return outboundInterceptor.getSessionSnapshots().stream()
+                .filter(s -> userId.equals(s.get("user")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No session for user " + userId));
+    }
+
+    /**
+     * Wraps every server-side session so its socket writes block while the gate is closed,
+     * standing in for a client that stopped reading
+     */
+    @TestConfiguration
+    static class SocketGateConfig implements WebSocketMessageBrokerConfigurer {
+
+        @Override
+        public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+            registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                @Override
+                public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                    super.afterConnectionEstablished(new GatedSession(session));
+                }
+            });
+        }
+    }
+
+    private static class GatedSession extends WebSocketSessionDecorator {
+
+        GatedSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            CountDownLatch gate = socketGate;
+            if (gate != null) {
+                try {
+                    gate.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            super.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.ambiguous.fixpoint.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A camera-sized photo through {@link AIImagePreprocessor#prepare}, and EXIF orientation parsing
+ * on hand-built JPEG headers, including malformed ones, which must read as orientation 1 rather
+ * than throw.
+ */
+class AIImagePreprocessorTest {
+
+    @Test
+    void preparesAnUprightDownscaledJpegWithoutMetadata() throws Exception {
+        // Landscape as stored, red in the top-left quadrant; orientation 6 means it was shot
+        // portrait, so upright the red quadrant is top-right
+        BufferedImage stored = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        Random noise = new Random(42);
+        for (int y = 0; y < stored.getHeight(); y++) {
+            for (int x = 0; x < stored.getWidth(); x++) {
+                boolean red = x < stored.getWidth() / 2 && y < stored.getHeight() / 2;
+                int jitter = noise.nextInt(40);
+                stored.setRGB(x, y, red ? new Color(215 + jitter, jitter, jitter).getRGB()
+                        : new Color(jitter, jitter, 215 + jitter).getRGB());
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(stored, "jpeg", encoded);
+        byte[] upload = withExif(encoded.toByteArray(), tiff(true, 8, 1, 6));
+        assertEquals(6, AIImagePreprocessor.exifOrientation(upload));
+
+        AIImagePreprocessor preprocessor = new AIImagePreprocessor();
+        ReflectionTestUtils.setField(preprocessor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(preprocessor, "maxEdge", 1024);
+        ReflectionTestUtils.setField(preprocessor, "jpegQuality", 0.8f);
+        preprocessor.registerMeters();
+        AIImagePreprocessor.PreparedImage prepared = preprocessor.prepare(
+                new MockMultipartFile("image", "photo.jpg", "image/jpeg", upload));
+
+        byte[] output = Base64.getDecoder().decode(prepared.getBase64());
+        assertEquals("image/jpeg", prepared.getMimeType());
+        assertTrue(output.length < upload.length, output.length + " bytes out of " + upload.length);
+        assertFalse(hasSegment(output, 0xE1), "APP1 segment left in the output");
+
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(output));
+        assertNotNull(result, "output is not a readable JPEG");
+        assertEquals(683, result.getWidth());
+        assertEquals(1024, result.getHeight());
+        assertTrue(isRed(result.getRGB(result.getWidth() * 3 / 4, result.getHeight() / 4)), "top-right is not red");
+        assertFalse(isRed(result.getRGB(result.getWidth() / 4, result.getHeight() / 4)), "top-left is red");
+        assertFalse(isRed(result.getRGB(result.getWidth() * 3 / 4, result.getHeight() * 3 / 4)), "bottom-right is red");
+    }
+
+    @Test
+    void readsLittleEndianOrientation() {
+        assertEquals(6, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 8, 1, 6))));
+    }
+
+    @Test
+    void readsBigEndianOrientation() {
+        assertEquals(8, AIImagePreprocessor.exifOrientation(jpeg(tiff(false, 8, 1, 8))));
+    }
+
+    @Test
+    void findsExifAfterOtherSegments() {
+        byte[] app0 = { (byte) 0xFF, (byte) 0xE0, 0x00, 0x04, 0x00, 0x00 };
+        assertEquals(3, AIImagePreprocessor.exifOrientation(jpeg(app0, tiff(true, 8, 1, 3))));
+    }
+
+    @Test
+    void defaultsWithoutExif() {
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg()));
+        assertEquals(1, AIImagePreprocessor.exifOrientation(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A }));
+        assertEquals(1, AIImagePreprocessor.exifOrientation(new byte[0]));
+    }
+
+    @Test
+    void defaultsOnOutOfRangeValue() {
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 8, 1, 9))));
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 8, 1, 0))));
+    }
+
+    @Test
+    void defaultsOnNegativeIfdOffset() {
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 0xFFFFFFF0, 1, 6))));
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff(false, 0x80000000, 1, 6))));
+    }
+
+    @Test
+    void defaultsOnIfdOffsetPastTheSegment() {
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 4096, 1, 6))));
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 2, 1, 6))));
+    }
+
+    @Test
+    void stopsAtTheSegmentEndWhenTheEntryCountOverruns() {
+        // The entries that fit are still read; the rest are never looked at
+        assertEquals(6, AIImagePreprocessor.exifOrientation(jpeg(tiff(true, 8, 0xFFFF, 6))));
+        byte[] otherTag = tiff(true, 8, 0xFFFF, 6);
+        otherTag[10] = 0x13;
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(otherTag)));
+    }
+
+    @Test
+    void defaultsOnUnknownByteOrder() {
+        byte[] tiff = tiff(true, 8, 1, 6);
+        tiff[0] = 'X';
+        tiff[1] = 'X';
+        assertEquals(1, AIImagePreprocessor.exifOrientation(jpeg(tiff)));
+    }
+
+    @Test
+    void defaultsOnTruncatedFile() {
+        byte[] full = jpeg(tiff(true, 8, 1, 6));
+        for (int length = 0; length < full.length; length++) {
+            int orientation = AIImagePreprocessor.exifOrientation(Arrays.copyOf(full, length));
+            assertTrue(orientation == 1 || orientation == 6, "length " + length + " read " + orientation);
+        }
+    }
+
+    // TIFF header plus IFD0 holding a single orientation entry
+    private static byte[] tiff(boolean littleEndian, int ifdOffset, int entries, int orientation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(littleEndian ? new byte[] { 'I', 'I' } : new byte[] { 'M', 'M' });
+        writeShort(out, 42, littleEndian);
+        writeInt(out, ifdOffset, littleEndian);
+        writeShort(out, entries, littleEndian);
+        writeShort(out, 0x0112, littleEndian);
+        writeShort(out, 3, littleEndian);
+        writeInt(out, 1, littleEndian);
+        writeShort(out, orientation, littleEndian);
+        writeShort(out, 0, littleEndian);
+        writeInt(out, 0, littleEndian);
+        return out.toByteArray();
+    }
+
+    // SOI, the given segments (the last as APP1 Exif when it is a TIFF block), SOS
+    private static byte[] jpeg(byte[]... segments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8);
+        for (int i = 0; i < segments.length; i++) {
+            byte[] segment = segments[i];
+            if (i < segments.length - 1) {
+                out.writeBytes(segment);
+                continue;
+            }
+            int length = 2 + 6 + segment.length;
+            out.write(0xFF);
+            out.write(0xE1);
+            out.write(length >> 8);
+            out.write(length);
+            out.writeBytes(new byte[] { 'E', 'x', 'i', 'f', 0, 0 });
+            out.writeBytes(segment);
+        }
+        out.writeBytes(new byte[] { (byte) 0xFF, (byte) 0xDA, 0x00, 0x02, (byte) 0xFF, (byte) 0xD9 });
+        return out.toByteArray();
+    }
+
+    // The TIFF block as an APP1 Exif segment after the encoder's JFIF APP0
+    private static byte[] withExif(byte[] jpeg, byte[] tiff) {
+        int insertAt = 2;
+        if ((jpeg[2] & 0xFF) == 0xFF && (jpeg[3] & 0xFF) == 0xE0) {
+            insertAt = 4 + (((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF));
+        }
+        byte[] app1 = jpeg(tiff);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, insertAt);
+        // Without the SOI and trailing SOS/EOI that jpeg() wraps it in
+        out.write(app1, 2, app1.length - 8);
+        out.write(jpeg, insertAt, jpeg.length - insertAt);
+        return out.toByteArray();
+    }
+
+    // Walks the marker segments up to the start of scan
+    private static boolean hasSegment(byte[] jpeg, int marker) {
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int current = jpeg[offset + 1] & 0xFF;
+            if (current == marker) {
+                return true;
+            }
+            if (current == 0xDA) {
+                return false;
+            }
+            offset += 2 + (((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF));
+        }
+        return false;
+    }
+
+    private static boolean isRed(int rgb) {
+        Color color = new Color(rgb);
+        return color.getRed() > 150 && color.getBlue() < 100;
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            out.write(value);
+            out.write(value >> 8);
+        } else {
+            out.write(value >> 8);
+            out.write(value);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            writeShort(out, value & 0xFFFF, true);
+            writeShort(out, value >>> 16, true);
+        } else {
+            writeShort(out, value >>> 16, false);
+            writeShort(out, value & 0xFFFF, false);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.config.AIProviderConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Router behaviour with stub provider calls: failover, the breaker's open, half-open and closed
+ * states and which failures count toward them, and hedging with the slower attempt cancelled.
+ */
+class AIProviderRouterTest {
+
+    private static final long OPEN_DURATION_MS = 200;
+
+    private static final long HEDGE_DELAY_MS = 100;
+
+    private AIProviderRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new AIProviderRouter();
+        ReflectionTestUtils.setField(router, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(router, "failureThreshold", 2);
+        ReflectionTestUtils.setField(router, "openDurationMs", OPEN_DURATION_MS);
+        ReflectionTestUtils.setField(router, "minSamples", 5);
+        ReflectionTestUtils.setField(router, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(router, "defaultHedgeDelayMs", HEDGE_DELAY_MS);
+        ReflectionTestUtils.setField(router, "minHedgeDelayMs", 10L);
+        ReflectionTestUtils.setField(router, "maxHedgeDelayMs", 1000L);
+        ReflectionTestUtils.setField(router, "threads", 8);
+        router.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.stop();
+    }
+
+    @Test
+    void failsOverToTheNextProvider() throws Exception {
+        AtomicInteger secondCalls = new AtomicInteger();
+        String answer = router.call("chat", providers(
+                () -> { throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE); },
+                () -> { secondCalls.incrementAndGet(); return "b"; }));
+
+        assertEquals("b", answer);
+        assertEquals(1, secondCalls.get());
+        assertEquals("closed", circuit("a"));
+    }
+
+    @Test
+    void throwsTheLastFailureWhenEveryProviderFails() {
+        HttpServerErrorException last = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        Exception thrown = assertThrows(Exception.class, () -> router.call("chat", providers(
+                () -> { throw new ResourceAccessException("connection refused"); },
+                () -> { throw last; })));
+
+        assertSame(last, thrown);
+    }
+
+    @Test
+    void breakerOpensThenTrialsAndClosesOnSuccess() throws Exception {
+        Callable<String> failing = () -> { throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR); };
+        router.call("chat", providers(failing, () -> "b"));
+        router.call("chat", providers(failing, () -> "b"));
+        assertEquals("open", circuit("a"));
+        assertEquals(List.of("b"), router.order("chat", List.of("a", "b")));
+
+        Thread.sleep(OPEN_DURATION_MS + 50);
+        assertEquals("half-open", circuit("a"));
+        AtomicInteger trials = new AtomicInteger();
+        String answer = router.call("chat", providers(() -> { trials.incrementAndGet(); return "a"; }, () -> "b"));
+
+        assertEquals("a", answer);
+        assertEquals(1, trials.get());
+        assertEquals("closed", circuit("a"));
+    }
+
+    @Test
+    void failedTrialReopensTheBreaker() throws Exception {
+        Callable<String> failing = () -> { throw new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS); };
+        router.call("chat", providers(failing, () -> "b"));
+        router.call("chat", providers(failing, () -> "b"));
+        Thread.sleep(OPEN_DURATION_MS + 50);
+
+        assertEquals("b", router.call("chat", providers(failing, () -> "b")));
+        assertEquals("open", circuit("a"));
+    }
+
+    @Test
+    void clientErrorsAndLocalRejectionsLeaveTheBreakerClosed() throws Exception {
+        Callable<String> badRequest = () -> { throw new HttpClientErrorException(HttpStatus.BAD_REQUEST); };
+        Callable<String> noSlot = () -> {
+            throw new ResourceAccessException("I/O error", new AIProviderConcurrencyLimiter.SlotUnavailableException(
+                    "Too many concurrent a requests", null));
+        };
+        for (int i = 0; i < 3; i++) {
+            assertEquals("b", router.call("chat", providers(badRequest, () -> "b")));
+            assertEquals("b", router.call("chat", providers(noSlot, () -> "b")));
+        }
+
+        assertEquals("closed", circuit("a"));
+        assertEquals(0, consecutiveFailures("a"));
+    }
+
+    @Test
+    void unauthorizedCountsTowardTheBreaker() throws Exception {
+        Callable<String> unauthorized = () -> { throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED); };
+        router.call("chat", providers(unauthorized, () -> "b"));
+        router.call("chat", providers(unauthorized, () -> "b"));
+
+        assertEquals("open", circuit("a"));
+    }
+
+    @Test
+    void hedgesAfterTheDelayAndCancelsTheLoser() throws Exception {
+        CountDownLatch loserInterrupted = new CountDownLatch(1);
+        Callable<String> slow = () -> {
+            try {
+                Thread.sleep(5000);
+                return "a";
+            } catch (InterruptedException e) {
+                loserInterrupted.countDown();
+                throw e;
+            }
+        };
+
+        long started = System.nanoTime();
+        String answer = router.call("chat", providers(slow, () -> "b"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals("b", answer);
+        assertTrue(elapsedMs >= HEDGE_DELAY_MS, "hedge fired after " + elapsedMs + "ms");
+        assertTrue(elapsedMs < 2000, "answer took " + elapsedMs + "ms");
+        assertTrue(loserInterrupted.await(2, TimeUnit.SECONDS), "losing attempt was not cancelled");
+        // The cancelled attempt's run time is kept as a lower bound on its latency
+        assertEquals(1, samples("a", "chat"));
+        assertEquals("closed", circuit("a"));
+    }
+
+    @Test
+    void fastFirstProviderIsNotHedged() throws Exception {
+        AtomicInteger secondCalls = new AtomicInteger();
+        String answer = router.call("chat", providers(() -> "a", () -> { secondCalls.incrementAndGet(); return "b"; }));
+
+        assertEquals("a", answer);
+        assertEquals(0, secondCalls.get());
+        assertEquals(1, samples("a", "chat"));
+    }
+
+    private static Map<String, Callable<String>> providers(Callable<String> first, Callable<String> second) {
+        Map<String, Callable<String>> providers = new LinkedHashMap<>();
+        providers.put("a", first);
+        providers.put("b", second);
+        return providers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> provider(String name) {
+        return (Map<String, Object>) router.getSnapshot().get(name);
+    }
+
+    private String circuit(String name) {
+        return (String) provider(name).get("circuit");
+    }
+
+    private int consecutiveFailures(String name) {
+        return (Integer) provider(name).get("consecutiveFailures");
+    }
+
+    @SuppressWarnings("unchecked")
+    private int samples(String name, String operation) {
+        Map<String, Object> operations = (Map<String, Object>) provider(name).get("operations");
+        Map<String, Object> latency = (Map<String, Object>) operations.get(operation);
+        return latency == null ? 0 : (Integer) latency.get("samples");
+    }
+}
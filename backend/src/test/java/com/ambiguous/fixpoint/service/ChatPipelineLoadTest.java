@@ -0,0 +1,180 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatSendRequest;
+import com.ambiguous.fixpoint.entity.Conversation;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.ConversationRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the chat pipeline from many threads, both participants of every conversation sending
+ * at once, and reports the messages per second one node accepts and stores. Checks that every
+ * conversation ends up with gapless sequence numbers, stored in sequence order, with each
+ * sender's messages in the order they were sent.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ChatPipelineLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatPipelineLoadTest.class);
+
+    private static final int CONVERSATIONS = 20;
+
+    private static final int MESSAGES_PER_SENDER = 250;
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ChatPipeline chatPipeline;
+
+    @Autowired
+    private ChatWriteBehindQueue writeBehind;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sequencesAndStoresConcurrentConversations() throws Exception {
+        String suffix = Long.toString(System.nanoTime());
+        List<Long[]> pairs = new ArrayList<>();
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            pairs.add(new Long[] { createUser("chat_a" + i + "_" + suffix), createUser("chat_b" + i + "_" + suffix) });
+        }
+
+        List<Runnable> senders = new ArrayList<>();
+        for (Long[] pair : pairs) {
+            senders.add(() -> sendAll(pair[0], pair[1]));
+            senders.add(() -> sendAll(pair[1], pair[0]));
+        }
+        int total = senders.size() * MESSAGES_PER_SENDER;
+
+        long started = System.nanoTime();
+        runConcurrently(senders);
+        long acceptedAt = System.nanoTime();
+        waitUntilStored(pairs, total);
+        long storedAt = System.nanoTime();
+
+        double acceptRate = total / ((acceptedAt - started) / 1e9);
+        double storeRate = total / ((storedAt - started) / 1e9);
+        logger.info("Chat pipeline: {} messages in {} conversations, accepted {} msg/s, stored {} msg/s on one node",
+                total, CONVERSATIONS, Math.round(acceptRate), Math.round(storeRate));
+
+        for (Long[] pair : pairs) {
+            assertConversationOrdered(pair[0], pair[1]);
+        }
+    }
+
+    private void sendAll(Long senderId, Long receiverId) {
+        for (int i = 0; i < MESSAGES_PER_SENDER; i++) {
+            ChatSendRequest request = new ChatSendRequest();
+            request.setReceiverId(receiverId);
+            request.setContent(senderId + ":" + i);
+            request.setClientMessageId(senderId + "-" + i);
+            assertTrue(chatPipeline.send(senderId, request));
+        }
+    }
+
+    private void assertConversationOrdered(Long userA, Long userB) {
+        Conversation conversation = conversationRepository
+                .findByPair(Math.min(userA, userB), Math.max(userA, userB))
+                .orElseThrow();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, seq, sender_id, content FROM chat_messages WHERE conversation_id = ? ORDER BY seq",
+                conversation.getId());
+
+        assertEquals(2 * MESSAGES_PER_SENDER, rows.size());
+        Map<Long, Integer> lastIndexBySender = new HashMap<>();
+        long previousId = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            assertEquals(i + 1L, ((Number) row.get("seq")).longValue(), "sequence numbers must be gapless");
+            long id = ((Number) row.get("id")).longValue();
+            assertTrue(id > previousId, "messages must be stored in sequence order");
+            previousId = id;
+
+            Long senderId = ((Number) row.get("sender_id")).longValue();
+            int index = Integer.parseInt(((String) row.get("content")).split(":")[1]);
+            int previousIndex = lastIndexBySender.getOrDefault(senderId, -1);
+            assertEquals(previousIndex + 1, index, "a sender's messages must keep their send order");
+            lastIndexBySender.put(senderId, index);
+        }
+
+        assertEquals(2L * MESSAGES_PER_SENDER, conversation.getLastSeq());
+        assertEquals(MESSAGES_PER_SENDER, conversation.getUnreadLow());
+        assertEquals(MESSAGES_PER_SENDER, conversation.getUnreadHigh());
+    }
+
+    private void waitUntilStored(List<Long[]> pairs, int total) throws InterruptedException {
+        List<Long> userIds = pairs.stream().map(pair -> pair[0]).collect(Collectors.toList());
+        String placeholders = userIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            Long stored = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM chat_messages WHERE sender_id IN (" + placeholders + ") OR receiver_id IN (" + placeholders + ")",
+                    Long.class, concat(userIds));
+            if (stored != null && stored == total && writeBehind.getDepth() == 0) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Chat messages were not stored within 60s");
+    }
+
+    private Object[] concat(List<Long> ids) {
+        List<Long> both = new ArrayList<>(ids);
+        both.addAll(ids);
+        return both.toArray();
+    }
+
+    private Long createUser(String username) {
+        return userRepository.save(new User(username, username + "@example.com", "password", username)).getId();
+    }
+
+    private void runConcurrently(List<Runnable> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatReadReceipt;
+import com.ambiguous.fixpoint.dto.ChatSendRequest;
+import com.ambiguous.fixpoint.entity.Conversation;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.ConversationRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The read watermark against messages still waiting in the write-behind queue, and receipts
+ * batched per flush. Flushes are driven by the test, so the scheduled one is pushed out of the
+ * way.
+ */
+@SpringBootTest(properties = "app.chat.receipts.flush-interval-ms=3600000")
+@ActiveProfiles("test")
+class ChatReadReceiptsTest {
+
+    @Autowired
+    private ChatReadReceipts chatReadReceipts;
+
+    @Autowired
+    private ChatPipeline chatPipeline;
+
+    @Autowired
+    private ChatWriteBehindQueue writeBehind;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("brokerChannel")
+    private SubscribableChannel brokerChannel;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Message<?>> frames = new CopyOnWriteArrayList<>();
+
+    private final MessageHandler capture = frames::add;
+
+    @BeforeEach
+    void captureFrames() {
+        // Receipts left over from another test would share the next flush
+        chatReadReceipts.flush();
+        brokerChannel.subscribe(capture);
+    }
+
+    @AfterEach
+    void stopCapturing() {
+        brokerChannel.unsubscribe(capture);
+    }
+
+    @Test
+    void readingPastAQueuedMessageStoresItRead() throws Exception {
+        String suffix = Long.toString(System.nanoTime());
+        User sender = createUser("rr_a_" + suffix);
+        User reader = createUser("rr_b_" + suffix);
+        User blockerA = createUser("rr_c_" + suffix);
+        User blockerB = createUser("rr_d_" + suffix);
+        Long blockerConversation = chatService.getOrCreateConversation(blockerA.getId(), blockerB.getId()).getId();
+
+        // Hold the writer inside another conversation's batch so the next message stays queued
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            conversationRepository.findAllByIdForUpdate(Set.of(blockerConversation));
+            locked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            send(blockerA, blockerB, "blocker");
+            waitUntil(() -> writeBehind.getDepth() == 0, "writer did not take the blocking message");
+            // Past the writer's drain of its batch, so the next message waits for the one after
+            Thread.sleep(100);
+
+            send(sender, reader, "queued");
+            assertEquals(1, writeBehind.getDepth());
+            ChatReadReceipt receipt = chatReadReceipts.markRead(reader.getId(), sender.getId(), 1);
+            assertNotNull(receipt);
+            assertEquals(1, receipt.getReadUpToSeq());
+            assertEquals(1, writeBehind.getDepth(), "message was stored before the read");
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        Conversation conversation = conversation(sender, reader);
+        waitUntil(() -> storedCount(conversation.getId()) == 1 && writeBehind.getDepth() == 0, "message was not stored");
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "SELECT is_read FROM chat_messages WHERE conversation_id = ? AND seq = 1", Boolean.class, conversation.getId()));
+        Conversation stored = conversation(sender, reader);
+        assertEquals(0, stored.getUnreadLow());
+        assertEquals(0, stored.getUnreadHigh());
+        assertEquals(1L, stored.getReadSeq(reader.getId()));
+        assertEquals(1, storedCount(blockerConversation));
+    }
+
+    @Test
+    void readsWithinOneFlushShareOneReceiptFrame() throws Exception {
+        String suffix = Long.toString(System.nanoTime());
+        User sender = createUser("rr_e_" + suffix);
+        User reader = createUser("rr_f_" + suffix);
+        for (int i = 0; i < 3; i++) {
+            send(sender, reader, "message " + i);
+        }
+        Conversation conversation = conversation(sender, reader);
+        waitUntil(() -> storedCount(conversation.getId()) == 3 && writeBehind.getDepth() == 0, "messages were not stored");
+
+        double framesBefore = meterRegistry.get("fixpoint.chat.receipt.frames").counter().count();
+        frames.clear();
+        for (long seq = 1; seq <= 3; seq++) {
+            assertNotNull(chatReadReceipts.markRead(reader.getId(), sender.getId(), seq));
+        }
+        chatReadReceipts.flush();
+
+        List<JsonNode> receiptFrames = framesTo(sender, ChatReadReceipts.RECEIPTS_DESTINATION);
+        assertEquals(1, receiptFrames.size(), "receipt frames: " + receiptFrames);
+        assertEquals(1, receiptFrames.get(0).size());
+        assertEquals(3L, receiptFrames.get(0).get(0).path("readUpToSeq").asLong());
+        assertEquals(framesBefore + 1, meterRegistry.get("fixpoint.chat.receipt.frames").counter().count());
+
+        Conversation stored = conversation(sender, reader);
+        assertEquals(0, stored.getUnreadLow());
+        assertEquals(0, stored.getUnreadHigh());
+    }
+
+    private void send(User sender, User receiver, String content) {
+        ChatSendRequest request = new ChatSendRequest();
+        request.setReceiverId(receiver.getId());
+        request.setContent(content);
+        request.setClientMessageId(sender.getId() + "-" + System.nanoTime());
+        assertTrue(chatPipeline.send(sender.getId(), request));
+    }
+
+    private Conversation conversation(User userA, User userB) {
+        return conversationRepository
+                .findByPair(Math.min(userA.getId(), userB.getId()), Math.max(userA.getId(), userB.getId()))
+                .orElseThrow();
+    }
+
+    private long storedCount(Long conversationId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chat_messages WHERE conversation_id = ?", Long.class, conversationId);
+        return count != null ? count : 0;
+    }
+
+    private List<JsonNode> framesTo(User user, String destination) throws Exception {
+        List<JsonNode> bodies = new ArrayList<>();
+        for (Message<?> frame : frames) {
+            if (("/user/" + user.getId() + destination).equals(SimpMessageHeaderAccessor.getDestination(frame.getHeaders()))) {
+                bodies.add(objectMapper.readTree((byte[]) frame.getPayload()));
+            }
+        }
+        return bodies;
+    }
+
+    private static void waitUntil(BooleanSupplier condition, String failure) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError(failure);
+    }
+
+    private User createUser(String username) {
+        return userRepository.save(new User(username, username + "@example.com", "password", username));
+    }
+}
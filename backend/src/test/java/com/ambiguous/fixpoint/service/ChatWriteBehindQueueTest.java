@@ -0,0 +1,178 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.dto.ChatSendRequest;
+import com.ambiguous.fixpoint.entity.ChatMessage;
+import com.ambiguous.fixpoint.entity.Conversation;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.ConversationRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A message whose seq another node has already stored: it must be renumbered past the stored
+ * last_seq, delivered again under the new number, stored and acked SAVED.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ChatWriteBehindQueueTest {
+
+    @Autowired
+    private ChatPipeline chatPipeline;
+
+    @Autowired
+    private ChatWriteBehindQueue writeBehind;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("brokerChannel")
+    private SubscribableChannel brokerChannel;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Everything pushed through the messaging template, captured on the sending thread
+    private final List<Message<?>> frames = new CopyOnWriteArrayList<>();
+
+    private final MessageHandler capture = frames::add;
+
+    @BeforeEach
+    void captureFrames() {
+        brokerChannel.subscribe(capture);
+    }
+
+    @AfterEach
+    void stopCapturing() {
+        brokerChannel.unsubscribe(capture);
+    }
+
+    @Test
+    void renumbersAMessageWhoseSeqIsTaken() throws Exception {
+        String suffix = Long.toString(System.nanoTime());
+        User sender = createUser("reseq_a_" + suffix);
+        User receiver = createUser("reseq_b_" + suffix);
+
+        // Seq 1 goes through this node, so its numbering is loaded and at 1
+        send(sender, receiver, "first", "first-" + suffix);
+        Conversation conversation = conversationRepository
+                .findByPair(Math.min(sender.getId(), receiver.getId()), Math.max(sender.getId(), receiver.getId()))
+                .orElseThrow();
+        waitUntilStored(conversation.getId(), 1);
+
+        // Another node stores seqs 2 and 3 behind this node's back
+        transactionTemplate.executeWithoutResult(status -> chatService.saveBatch(List.of(
+                foreign(conversation, receiver, sender, 2), foreign(conversation, receiver, sender, 3))));
+        assertEquals(3L, conversationRepository.findLastSeq(conversation.getId()));
+
+        double resequencedBefore = meterRegistry.get("fixpoint.chat.resequenced").counter().count();
+        frames.clear();
+        String clientMessageId = "second-" + suffix;
+        send(sender, receiver, "second", clientMessageId);
+        waitUntilStored(conversation.getId(), 4);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT seq, content FROM chat_messages WHERE conversation_id = ? AND seq = 4", conversation.getId());
+        assertEquals("second", row.get("content"));
+        assertEquals(4L, conversationRepository.findLastSeq(conversation.getId()));
+        assertEquals(resequencedBefore + 1, meterRegistry.get("fixpoint.chat.resequenced").counter().count());
+
+        // Delivered to both participants under seq 2, then again under seq 4
+        for (User user : List.of(sender, receiver)) {
+            List<Long> seqs = new ArrayList<>();
+            for (JsonNode frame : framesTo(user, ChatPipeline.MESSAGES_DESTINATION)) {
+                assertEquals(clientMessageId, frame.path("clientMessageId").asText());
+                seqs.add(frame.path("seq").asLong());
+            }
+            assertEquals(List.of(2L, 4L), seqs, "message frames to " + user.getUsername());
+        }
+
+        List<JsonNode> acks = new ArrayList<>();
+        framesTo(sender, ChatWriteBehindQueue.ACKS_DESTINATION).forEach(frame -> frame.forEach(acks::add));
+        assertEquals(1, acks.size(), "acks: " + acks);
+        assertEquals("SAVED", acks.get(0).path("status").asText());
+        assertEquals(4L, acks.get(0).path("seq").asLong());
+        assertEquals(clientMessageId, acks.get(0).path("clientMessageId").asText());
+    }
+
+    private void send(User sender, User receiver, String content, String clientMessageId) {
+        ChatSendRequest request = new ChatSendRequest();
+        request.setReceiverId(receiver.getId());
+        request.setContent(content);
+        request.setClientMessageId(clientMessageId);
+        assertTrue(chatPipeline.send(sender.getId(), request));
+    }
+
+    private ChatMessage foreign(Conversation conversation, User sender, User receiver, long seq) {
+        ChatMessage message = new ChatMessage("from another node " + seq, sender, receiver, null);
+        message.setConversation(conversation);
+        message.setSeq(seq);
+        return message;
+    }
+
+    private List<JsonNode> framesTo(User user, String destination) throws Exception {
+        List<JsonNode> bodies = new ArrayList<>();
+        for (Message<?> frame : frames) {
+            if (("/user/" + user.getId() + destination).equals(SimpMessageHeaderAccessor.getDestination(frame.getHeaders()))) {
+                bodies.add(objectMapper.readTree((byte[]) frame.getPayload()));
+            }
+        }
+        return bodies;
+    }
+
+    private void waitUntilStored(Long conversationId, long seq) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Long stored = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM chat_messages WHERE conversation_id = ? AND seq = ?", Long.class, conversationId, seq);
+            if (stored != null && stored == 1 && writeBehind.getDepth() == 0) {
+                // The ack goes out right after the commit
+                Thread.sleep(100);
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Seq " + seq + " was not stored within 10s");
+    }
+
+    private User createUser(String username) {
+        return userRepository.save(new User(username, username + "@example.com", "password", username));
+    }
+}
@@ -0,0 +1,67 @@
+package com.ambiguous.fixpoint.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Exact and near matches of cached chatbot answers, and near-miss questions that share most of
+ * their wording but ask about something else.
+ */
+class ChatbotResponseCacheTest {
+
+    private static final String DHAKA = "How do I report a broken street light in Dhaka?";
+
+    private ChatbotResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ChatbotResponseCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 360L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "fuzzyThreshold", 0.8);
+        cache.init();
+        cache.put(DHAKA, "dhaka answer");
+    }
+
+    @Test
+    void matchesIgnoringCaseAndPunctuation() {
+        assertEquals("dhaka answer", cache.get("how do i report a BROKEN street light in dhaka"));
+    }
+
+    @Test
+    void nearMatchAbsorbsFiller() {
+        assertEquals("dhaka answer", cache.get(DHAKA + " Please"));
+        assertEquals("dhaka answer", cache.get("Hi, how do I report a broken street light in Dhaka? Thanks"));
+    }
+
+    @Test
+    void differentPlaceIsAMiss() {
+        // Word-pair overlap with the cached question is exactly the 0.8 threshold
+        assertEquals(0.8, ChatbotResponseCache.similarity(
+                ChatbotResponseCache.shingles(ChatbotResponseCache.normalize(DHAKA)),
+                ChatbotResponseCache.shingles(ChatbotResponseCache.normalize(
+                        "How do I report a broken street light in Chittagong?"))), 1e-9);
+        assertNull(cache.get("How do I report a broken street light in Chittagong?"));
+    }
+
+    @Test
+    void addedOrSwappedSubjectIsAMiss() {
+        assertNull(cache.get("How do I report a broken street light in Dhaka city?"));
+        assertNull(cache.get("How do I report a broken traffic light in Dhaka?"));
+        assertNull(cache.get("How do I report a broken street light?"));
+    }
+
+    @Test
+    void zeroThresholdTurnsNearMatchingOff() {
+        ReflectionTestUtils.setField(cache, "fuzzyThreshold", 0.0);
+        assertNull(cache.get(DHAKA + " please"));
+        assertEquals("dhaka answer", cache.get(DHAKA));
+    }
+}
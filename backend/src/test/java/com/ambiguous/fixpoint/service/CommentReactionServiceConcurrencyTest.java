@@ -0,0 +1,151 @@
+package com.ambiguous.fixpoint.service;
+
+import com.ambiguous.fixpoint.entity.Comment;
+import com.ambiguous.fixpoint.entity.CommentReaction;
+import com.ambiguous.fixpoint.entity.Report;
+import com.ambiguous.fixpoint.entity.User;
+import com.ambiguous.fixpoint.repository.CommentReactionRepository;
+import com.ambiguous.fixpoint.repository.CommentRepository;
+import com.ambiguous.fixpoint.repository.ReportRepository;
+import com.ambiguous.fixpoint.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires reaction toggles from many threads at once and checks that the counters on the
+ * comment always match the comment_reactions rows.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CommentReactionServiceConcurrencyTest {
+
+    private static final int USERS = 12;
+
+    @Autowired
+    private CommentReactionService reactionService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private CommentReactionRepository reactionRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long commentId;
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime());
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("reactor" + i + "_" + suffix, "reactor" + i + "_" + suffix + "@example.com",
+                    "password", "Reactor " + i);
+            userIds.add(userRepository.save(user).getId());
+        }
+        Report report = reportRepository.findAll().get(0);
+        User author = userRepository.findById(userIds.get(0)).orElseThrow();
+        commentId = commentRepository.save(new Comment("Concurrency target", report, author)).getId();
+    }
+
+    @Test
+    void everyUserReactingAtOnceIsCountedExactlyOnce() throws Exception {
+        List<Runnable> toggles = new ArrayList<>();
+        for (Long userId : userIds) {
+            toggles.add(() -> reactionService.toggleReaction(commentId, userId, CommentReaction.ReactionType.LIKE));
+        }
+        runConcurrently(toggles);
+
+        assertEquals(USERS, counter(CommentReaction.ReactionType.LIKE));
+        assertCountersMatchRows();
+    }
+
+    @Test
+    void repeatedClicksBySameUserSerialize() throws Exception {
+        // From no reaction, an even number of identical toggles must end with no reaction
+        List<Runnable> toggles = new ArrayList<>();
+        for (Long userId : userIds) {
+            for (int click = 0; click < 4; click++) {
+                toggles.add(() -> reactionService.toggleReaction(commentId, userId, CommentReaction.ReactionType.LOVE));
+            }
+        }
+        runConcurrently(toggles);
+
+        assertEquals(0, counter(CommentReaction.ReactionType.LOVE));
+        assertEquals(0L, reactionRepository.countByCommentAndType(
+                commentRepository.getReferenceById(commentId), CommentReaction.ReactionType.LOVE));
+        assertCountersMatchRows();
+    }
+
+    @Test
+    void mixedTogglesKeepCountersInStepWithRows() throws Exception {
+        CommentReaction.ReactionType[] types = CommentReaction.ReactionType.values();
+        List<Runnable> toggles = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            for (int click = 0; click < 3; click++) {
+                CommentReaction.ReactionType type = types[(i + click) % types.length];
+                toggles.add(() -> reactionService.toggleReaction(commentId, userId, type));
+            }
+        }
+        runConcurrently(toggles);
+
+        assertCountersMatchRows();
+    }
+
+    private void runConcurrently(List<Runnable> tasks) throws Exception {
+        List<Runnable> shuffled = new ArrayList<>(tasks);
+        Collections.shuffle(shuffled);
+        ExecutorService pool = Executors.newFixedThreadPool(shuffled.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : shuffled) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                // Propagates any toggle that failed even after its retries
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private int counter(CommentReaction.ReactionType type) {
+        return commentRepository.findById(commentId).orElseThrow().getReactionCount(type);
+    }
+
+    private void assertCountersMatchRows() {
+        Comment comment = commentRepository.findById(commentId).orElseThrow();
+        for (CommentReaction.ReactionType type : CommentReaction.ReactionType.values()) {
+            long rows = reactionRepository.countByCommentAndType(comment, type);
+            assertEquals(rows, comment.getReactionCount(type), "Counter out of step for " + type);
+        }
+    }
+}
@@ -87,15 +87,31 @@ const Chatbot = () => {
         userQuery: userMessage,
       });
 
-      const response = await chatbotService.sendMessage(userMessage, context);
+      // Show the answer as it is generated: the first piece replaces the typing indicator
+      let botMessageId = null;
+      await chatbotService.streamMessage(userMessage, context, (text) => {
+        if (botMessageId === null) {
+          botMessageId = Date.now() + Math.random();
+          setMessages((prev) => [
+            ...prev,
+            { id: botMessageId, text, isBot: true, timestamp: new Date(), streaming: true },
+          ]);
+        } else {
+          setMessages((prev) =>
+            prev.map((m) => (m.id === botMessageId ? { ...m, text: m.text + text } : m))
+          );
+        }
+      });
 
-      if (response.success) {
-        addMessage(response.response, true);
-      } else {
+      if (botMessageId === null) {
         addMessage(
           "I apologize, but I'm having trouble processing your request right now. Please try again or contact support if the issue persists.",
           true
         );
+      } else {
+        setMessages((prev) =>
+          prev.map((m) => (m.id === botMessageId ? { ...m, streaming: false } : m))
+        );
       }
     } catch (error) {
       console.error("Chat error:", error);
@@ -497,7 +513,7 @@ Just ask me anything - I'm here to help! What's on your mind? �
               </div>
             ))}
 
-            {isLoading && (
+            {isLoading && !messages.some((m) => m.streaming) && (
               <div className="message bot">
                 <div className="message-content">
                   <div className="typing-indicator">
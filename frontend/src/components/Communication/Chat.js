@@ -6,6 +6,9 @@ const Chat = ({ onClose }) => {
   const {
     users,
     messages,
+    conversations,
+    hasOlderMessages,
+    loadOlderMessages,
     selectedUser,
     setSelectedUser,
     sendMessage,
@@ -14,11 +17,27 @@ const Chat = ({ onClose }) => {
   const { user } = useAuth();
   const [input, setInput] = useState("");
   const messagesEndRef = useRef(null);
+  const lastMessageKeyRef = useRef(null);
 
+  // Scroll down for new messages only, not when older ones are prepended
   useEffect(() => {
-    messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
+    const last = messages[messages.length - 1];
+    const key = last ? last.clientMessageId ?? last.id ?? messages.length : null;
+    if (key !== lastMessageKeyRef.current) {
+      lastMessageKeyRef.current = key;
+      messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
+    }
   }, [messages]);
 
+  const unreadCount = (userId) =>
+    conversations.find((c) => c.otherUser?.id === userId)?.unreadCount || 0;
+
+  // "Seen" goes under the newest of my messages the other side has read
+  const lastSeenIndex = messages.reduce(
+    (found, m, idx) => (m.sender.id === user.id && m.isRead ? idx : found),
+    -1
+  );
+
   const handleSend = (e) => {
     e.preventDefault();
     if (!input.trim()) return;
@@ -46,7 +65,10 @@ const Chat = ({ onClose }) => {
         >
           Users
         </div>
-        {users.map((u) => (
+        {(users.length > 0
+          ? users
+          : conversations.map((c) => c.otherUser)
+        ).map((u) => (
           <div
             key={u.id}
             style={{
@@ -59,6 +81,20 @@ const Chat = ({ onClose }) => {
             onClick={() => setSelectedUser(u)}
           >
             {u.fullName || u.username}
+            {unreadCount(u.id) > 0 && (
+              <span
+                style={{
+                  marginLeft: 6,
+                  background: "#1976d2",
+                  color: "#fff",
+                  borderRadius: 10,
+                  padding: "0 6px",
+                  fontSize: 11,
+                }}
+              >
+                {unreadCount(u.id)}
+              </span>
+            )}
           </div>
         ))}
       </div>
@@ -99,12 +135,29 @@ const Chat = ({ onClose }) => {
             background: "#fafbfc",
           }}
         >
+          {selectedUser && hasOlderMessages && (
+            <div style={{ textAlign: "center", marginBottom: 8 }}>
+              <button
+                onClick={loadOlderMessages}
+                style={{
+                  background: "none",
+                  border: "1px solid #ddd",
+                  borderRadius: 12,
+                  padding: "4px 10px",
+                  cursor: "pointer",
+                  fontSize: 12,
+                }}
+              >
+                Load older messages
+              </button>
+            </div>
+          )}
           {selectedUser ? (
             messages.map((msg, idx) => {
               const isMine = msg.sender.id === user.id;
               return (
                 <div
-                  key={idx}
+                  key={msg.clientMessageId ?? msg.id ?? idx}
                   style={{
                     textAlign: isMine ? "right" : "left",
                     margin: "8px 0",
@@ -119,10 +172,19 @@ const Chat = ({ onClose }) => {
                       padding: "8px 14px",
                       maxWidth: 180,
                       wordBreak: "break-word",
+                      opacity: msg.status === "pending" ? 0.6 : 1,
                     }}
                   >
                     {msg.content}
                   </span>
+                  {idx === lastSeenIndex && (
+                    <div style={{ color: "#888", fontSize: 11, marginTop: 2 }}>Seen</div>
+                  )}
+                  {msg.status === "failed" && (
+                    <div style={{ color: "#d32f2f", fontSize: 11, marginTop: 2 }}>
+                      {msg.error || "Not sent"}
+                    </div>
+                  )}
                 </div>
               );
             })
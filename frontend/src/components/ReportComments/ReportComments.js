@@ -17,6 +17,8 @@ const CommentItem = ({ comment, reportId, onCommentUpdate }) => {
   const { user } = useAuth();
   const [showReplies, setShowReplies] = useState(false);
   const [replies, setReplies] = useState([]);
+  const [repliesCursor, setRepliesCursor] = useState(null);
+  const [hasMoreReplies, setHasMoreReplies] = useState(false);
   const [replyText, setReplyText] = useState("");
   const [showReplyInput, setShowReplyInput] = useState(false);
   const [loading, setLoading] = useState(false);
@@ -126,15 +128,39 @@ const CommentItem = ({ comment, reportId, onCommentUpdate }) => {
 
   const fetchReplies = async () => {
     try {
-      const response = await reportService.getReplies(reportId, comment.id);
-      setReplies(response.data);
+      const response = await reportService.getReplyPage(reportId, comment.id);
+      setReplies(response.data.comments);
+      setRepliesCursor(response.data.nextCursor);
+      setHasMoreReplies(response.data.hasMore);
     } catch (error) {
       console.error("Error fetching replies:", error);
     }
   };
 
+  const loadMoreReplies = async () => {
+    try {
+      const response = await reportService.getReplyPage(
+        reportId,
+        comment.id,
+        repliesCursor
+      );
+      setReplies((prev) => [...prev, ...response.data.comments]);
+      setRepliesCursor(response.data.nextCursor);
+      setHasMoreReplies(response.data.hasMore);
+    } catch (error) {
+      console.error("Error fetching replies:", error);
+    }
+  };
+
+  // The comment list already nests replies; keep the open thread in sync with it
+  useEffect(() => {
+    if (Array.isArray(comment.replies)) {
+      setReplies(comment.replies);
+    }
+  }, [comment.replies]);
+
   const toggleReplies = () => {
-    if (!showReplies && comment.replyCount > 0) {
+    if (!showReplies && comment.replyCount > 0 && !Array.isArray(comment.replies)) {
       fetchReplies();
     }
     setShowReplies(!showReplies);
@@ -409,6 +435,14 @@ const CommentItem = ({ comment, reportId, onCommentUpdate }) => {
                   />
                 </div>
               ))}
+              {hasMoreReplies && (
+                <button
+                  onClick={loadMoreReplies}
+                  className="action-btn show-replies-btn"
+                >
+                  <span>Load more replies</span>
+                </button>
+              )}
             </div>
           )}
         </div>
@@ -603,20 +637,88 @@ const ReplyItem = ({
   );
 };
 
+// The report view opens on the newest few comments; the full discussion is paged
+const SUMMARY_SIZE = 3;
+const PAGE_SIZE = 20;
+
 const ReportComments = ({ reportId }) => {
   const { user } = useAuth();
   const [comments, setComments] = useState([]);
+  const [totalCount, setTotalCount] = useState(0);
+  const [showAll, setShowAll] = useState(false);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [hasMore, setHasMore] = useState(false);
   const [commentText, setCommentText] = useState("");
   const [loading, setLoading] = useState(false);
 
   useEffect(() => {
-    fetchComments();
+    setShowAll(false);
+    fetchSummary();
   }, [reportId]);
 
+  const fetchSummary = async () => {
+    try {
+      const response = await reportService.getCommentSummary(
+        reportId,
+        SUMMARY_SIZE
+      );
+      setComments(response.data.comments);
+      setTotalCount(response.data.totalCount);
+    } catch (error) {
+      console.error("Error fetching comments:", error);
+    }
+  };
+
+  const fetchAllComments = async () => {
+    try {
+      const response = await reportService.getCommentPage(
+        reportId,
+        undefined,
+        PAGE_SIZE
+      );
+      setComments(response.data.comments);
+      setNextCursor(response.data.nextCursor);
+      setHasMore(response.data.hasMore);
+      setShowAll(true);
+    } catch (error) {
+      console.error("Error fetching comments:", error);
+    }
+  };
+
+  const loadMoreComments = async () => {
+    try {
+      const response = await reportService.getCommentPage(
+        reportId,
+        nextCursor,
+        PAGE_SIZE
+      );
+      setComments((prev) => [...prev, ...response.data.comments]);
+      setNextCursor(response.data.nextCursor);
+      setHasMore(response.data.hasMore);
+    } catch (error) {
+      console.error("Error fetching comments:", error);
+    }
+  };
+
+  // Refresh what is on screen after a new comment, reply or reaction
   const fetchComments = async () => {
+    if (!showAll) {
+      fetchSummary();
+      return;
+    }
     try {
-      const response = await reportService.getComments(reportId);
-      setComments(response.data);
+      const [page, summary] = await Promise.all([
+        reportService.getCommentPage(
+          reportId,
+          undefined,
+          Math.min(Math.max(comments.length, PAGE_SIZE), 100)
+        ),
+        reportService.getCommentSummary(reportId, 1),
+      ]);
+      setComments(page.data.comments);
+      setNextCursor(page.data.nextCursor);
+      setHasMore(page.data.hasMore);
+      setTotalCount(summary.data.totalCount);
     } catch (error) {
       console.error("Error fetching comments:", error);
     }
@@ -683,7 +785,7 @@ const ReportComments = ({ reportId }) => {
           </div>
           <span>Discussion</span>
           <span className="comments-count">
-            {comments.length} {comments.length === 1 ? "comment" : "comments"}
+            {totalCount} {totalCount === 1 ? "comment" : "comments"}
           </span>
         </h2>
       </div>
@@ -783,6 +885,22 @@ const ReportComments = ({ reportId }) => {
               </div>
             ))
           )}
+          {!showAll && comments.length > 0 && totalCount > comments.length && (
+            <button
+              onClick={fetchAllComments}
+              className="action-btn show-replies-btn"
+            >
+              <span>View all {totalCount} comments</span>
+            </button>
+          )}
+          {showAll && hasMore && (
+            <button
+              onClick={loadMoreComments}
+              className="action-btn show-replies-btn"
+            >
+              <span>Load more comments</span>
+            </button>
+          )}
         </div>
       </div>
     </div>
@@ -14,19 +14,35 @@ import { getApiBaseUrl } from '../utils/apiConfig';
 // Use backend URL for WebSocket connection
 const WS_URL = `${getApiBaseUrl()}/ws-chat`;
 const API_USERS = "/api/public/chat/users";
+const API_CONVERSATIONS = "/api/chat/conversations";
+const HISTORY_PAGE_SIZE = 50;
 
 const ChatContext = createContext();
 
+// A conversation is ordered by the server-assigned seq; optimistic messages without one stay last
+const insertBySeq = (list, message) => {
+  let index = list.length;
+  while (index > 0 && (list[index - 1].seq == null || list[index - 1].seq > message.seq)) {
+    index--;
+  }
+  return [...list.slice(0, index), message, ...list.slice(index)];
+};
+
 export const useChat = () => useContext(ChatContext);
 
 export const ChatProvider = ({ children }) => {
   const { user } = useAuth();
   const [users, setUsers] = useState([]);
   const [messages, setMessages] = useState([]);
+  const [olderCursor, setOlderCursor] = useState(null);
+  const [hasOlderMessages, setHasOlderMessages] = useState(false);
+  const [conversations, setConversations] = useState([]);
   const [selectedUser, setSelectedUser] = useState(null);
   const [isConnected, setIsConnected] = useState(false);
   const stompClientRef = useRef(null);
   const selectedUserRef = useRef(null);
+  const nextClientId = useRef(0);
+  const readUpToRef = useRef({});
 
   // Keep selectedUserRef in sync
   useEffect(() => {
@@ -63,6 +79,21 @@ export const ChatProvider = ({ children }) => {
     }
   }, [user]);
 
+  // Fetch the inbox (one row per conversation, with unread counts)
+  useEffect(() => {
+    if (!user) {
+      setConversations([]);
+      return;
+    }
+    api
+      .get(API_CONVERSATIONS)
+      .then((res) => setConversations(res.data?.conversations || []))
+      .catch((err) => {
+        console.error("Failed to fetch conversations:", err);
+        setConversations([]);
+      });
+  }, [user]);
+
   // Connect to WebSocket only once
   useEffect(() => {
     if (!user) return;
@@ -79,11 +110,11 @@ export const ChatProvider = ({ children }) => {
       setIsConnected(false);
       
       client.connect(
-        {},
+        { Authorization: `Bearer ${localStorage.getItem("token")}` },
         () => {
           if (isCancelled) return;
           setIsConnected(true);
-          client.subscribe(`/user/${user.username}/queue/messages`, (msg) => {
+          client.subscribe("/user/queue/messages", (msg) => {
             const body = JSON.parse(msg.body);
             // Only add message if it is between the logged-in user and the selected user (using ref)
             setMessages((prev) => {
@@ -92,10 +123,43 @@ export const ChatProvider = ({ children }) => {
               const isBetween =
                 (body.sender.id === user.id && body.receiver.id === selUser.id) ||
                 (body.sender.id === selUser.id && body.receiver.id === user.id);
-              if (isBetween) {
-                return [...prev, body];
-              }
-              return prev;
+              if (!isBetween) return prev;
+              if (body.sender.id !== user.id) return insertBySeq(prev, body);
+              // Our own echo replaces the optimistic copy, keeping its ack if that came first
+              const optimistic = prev.find((m) => m.clientMessageId === body.clientMessageId);
+              const rest = prev.filter((m) => m !== optimistic);
+              return insertBySeq(rest, {
+                ...body,
+                id: optimistic?.id ?? body.id,
+                status: optimistic ? optimistic.status : "pending",
+              });
+            });
+          });
+          // Acks arrive in batches once messages are stored (or could not be)
+          client.subscribe("/user/queue/chat-acks", (msg) => {
+            const acks = JSON.parse(msg.body);
+            const byClientId = new Map(acks.map((ack) => [ack.clientMessageId, ack]));
+            setMessages((prev) =>
+              prev.map((m) => {
+                const ack = m.clientMessageId && byClientId.get(m.clientMessageId);
+                if (!ack) return m;
+                return ack.status === "SAVED"
+                  ? { ...m, id: ack.messageId, status: undefined }
+                  : { ...m, status: "failed", error: ack.error };
+              })
+            );
+          });
+          // Read receipts from chat partners, several per frame
+          client.subscribe("/user/queue/chat-receipts", (msg) => {
+            const receipts = JSON.parse(msg.body);
+            setMessages((prev) => {
+              const receipt = receipts.find((r) => r.readerId === selectedUserRef.current?.id);
+              if (!receipt) return prev;
+              return prev.map((m) =>
+                m.sender.id === user.id && !m.isRead && m.seq != null && m.seq <= receipt.readUpToSeq
+                  ? { ...m, isRead: true }
+                  : m
+              );
             });
           });
         },
@@ -121,13 +185,19 @@ export const ChatProvider = ({ children }) => {
     }
   }, [user]);
 
-  // Fetch chat history when selected user changes
+  // Open the chat on its newest page when the selected user changes
   useEffect(() => {
+    setOlderCursor(null);
+    setHasOlderMessages(false);
     if (selectedUser) {
       api
-        .get(`/api/chat/history?userId=${selectedUser.id}`)
+        .get("/api/chat/history", {
+          params: { userId: selectedUser.id, limit: HISTORY_PAGE_SIZE },
+        })
         .then((res) => {
-          setMessages(res.data);
+          setMessages(res.data.messages);
+          setOlderCursor(res.data.nextCursor);
+          setHasOlderMessages(res.data.hasMore);
         })
         .catch((err) => {
           setMessages([]);
@@ -141,6 +211,42 @@ export const ChatProvider = ({ children }) => {
     }
   }, [selectedUser]);
 
+  // Mark the open chat read up to the newest message received in it
+  useEffect(() => {
+    if (!selectedUser || !isConnected || !stompClientRef.current) return;
+    const latest = messages.reduce(
+      (max, m) => (m.sender.id === selectedUser.id && m.seq != null && m.seq > max ? m.seq : max),
+      0
+    );
+    if (latest <= (readUpToRef.current[selectedUser.id] || 0)) return;
+    readUpToRef.current[selectedUser.id] = latest;
+    stompClientRef.current.send(
+      "/app/chat.read",
+      {},
+      JSON.stringify({ userId: selectedUser.id, seq: latest })
+    );
+    setConversations((prev) =>
+      prev.map((c) => (c.otherUser?.id === selectedUser.id ? { ...c, unreadCount: 0 } : c))
+    );
+  }, [messages, selectedUser, isConnected]);
+
+  const loadOlderMessages = () => {
+    if (!selectedUser || !hasOlderMessages) return;
+    const userId = selectedUser.id;
+    api
+      .get("/api/chat/history", {
+        params: { userId, before: olderCursor, limit: HISTORY_PAGE_SIZE },
+      })
+      .then((res) => {
+        // Ignore the page if the user switched chats meanwhile
+        if (selectedUserRef.current?.id !== userId) return;
+        setMessages((prev) => [...res.data.messages, ...prev]);
+        setOlderCursor(res.data.nextCursor);
+        setHasOlderMessages(res.data.hasMore);
+      })
+      .catch((err) => console.error("Failed to fetch older messages:", err));
+  };
+
   const sendMessage = (content) => {
     if (
       !content.trim() ||
@@ -150,18 +256,24 @@ export const ChatProvider = ({ children }) => {
     )
       return;
     try {
-      const msg = {
-        content,
-        receiver: { id: selectedUser.id },
-        type: "TEXT",
-        sender: { id: user.id },
-      };
-      // Optimistically add the message to the chat
+      const clientMessageId = `${user.id}-${Date.now()}-${nextClientId.current++}`;
+      // Optimistically add the message to the chat until the server echoes it with its seq
       setMessages((prev) => [
         ...prev,
-        { ...msg, sender: { id: user.id }, receiver: { id: selectedUser.id } },
+        {
+          clientMessageId,
+          content,
+          type: "TEXT",
+          sender: { id: user.id },
+          receiver: { id: selectedUser.id },
+          status: "pending",
+        },
       ]);
-      stompClientRef.current.send("/app/chat.send", {}, JSON.stringify(msg));
+      stompClientRef.current.send(
+        "/app/chat.send",
+        {},
+        JSON.stringify({ receiverId: selectedUser.id, content, type: "TEXT", clientMessageId })
+      );
     } catch (err) {
       alert("Unable to send message: STOMP connection not ready.");
       console.error("Send message error:", err);
@@ -173,6 +285,9 @@ export const ChatProvider = ({ children }) => {
       value={{
         users,
         messages,
+        conversations,
+        hasOlderMessages,
+        loadOlderMessages,
         selectedUser,
         setSelectedUser,
         sendMessage,
@@ -4,6 +4,8 @@ class ChatbotService {
     this.baseURL = isProduction 
       ? "https://fixpoint-ajtz.onrender.com/api/public"
       : "http://localhost:8080/api/public";
+    // Issued by the server on the first answer; sending it back lets the bot remember earlier turns
+    this.sessionId = null;
   }
 
   async sendMessage(message, context = "") {
@@ -22,6 +24,7 @@ class ChatbotService {
         },
         body: JSON.stringify({
           message: message,
+          sessionId: this.sessionId,
           context:
             context ||
             JSON.stringify({
@@ -48,6 +51,7 @@ class ChatbotService {
 
       const data = await response.json();
       console.log("Response data:", data);
+      if (data.sessionId) this.sessionId = data.sessionId;
 
       return {
         success: true,
@@ -60,6 +64,73 @@ class ChatbotService {
     }
   }
 
+  // Streams the answer as server-sent events; onToken receives each piece of text as it arrives.
+  // Falls back to the one-shot endpoint where the browser cannot read a response body as a stream.
+  async streamMessage(message, context = "", onToken) {
+    const token = localStorage.getItem("accessToken");
+    const response = await fetch(`${this.baseURL}/chatbot/chat/stream`, {
+      method: "POST",
+      headers: {
+        "Content-Type": "application/json",
+        Accept: "text/event-stream",
+        ...(token && { Authorization: `Bearer ${token}` }),
+      },
+      body: JSON.stringify({ message, context, sessionId: this.sessionId }),
+    });
+
+    if (!response.ok) {
+      throw new Error(
+        response.status === 503
+          ? "Server error. The chatbot service is busy."
+          : `HTTP error! status: ${response.status}`
+      );
+    }
+    if (!response.body || !window.TextDecoder) {
+      const result = await this.sendMessage(message, context);
+      onToken(result.response);
+      return result;
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = "";
+    let text = "";
+    let done = null;
+    for (;;) {
+      const { value, done: finished } = await reader.read();
+      if (finished) break;
+      buffer += decoder.decode(value, { stream: true });
+      // Events are separated by a blank line
+      let end;
+      while ((end = buffer.indexOf("\n\n")) >= 0) {
+        const raw = buffer.slice(0, end);
+        buffer = buffer.slice(end + 2);
+        let event = "message";
+        let data = "";
+        raw.split("\n").forEach((line) => {
+          if (line.startsWith("event:")) event = line.slice(6).trim();
+          else if (line.startsWith("data:")) data += line.slice(5);
+        });
+        if (!data) continue;
+        const payload = JSON.parse(data);
+        if (event === "session") {
+          this.sessionId = payload.sessionId;
+        } else if (event === "token") {
+          text += payload.text;
+          onToken(payload.text);
+        } else if (event === "done") {
+          done = payload;
+        }
+      }
+    }
+
+    return {
+      success: text.length > 0,
+      response: text,
+      responseTime: done?.responseTime,
+    };
+  }
+
   async getChatHistory(limit = 10) {
     try {
       const token = localStorage.getItem("accessToken");
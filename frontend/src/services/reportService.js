@@ -215,6 +215,20 @@ export const reportService = {
     return api.get(`/api/reports/${reportId}/comments`);
   },
 
+  // Get one page of top-level comments; pass the previous nextCursor as "after"
+  getCommentPage: (reportId, after, limit = 20) => {
+    return api.get(`/api/reports/${reportId}/comments/page`, {
+      params: { after, limit },
+    });
+  },
+
+  // Get the newest comments of a report plus its total comment count
+  getCommentSummary: (reportId, limit = 3) => {
+    return api.get(`/api/reports/${reportId}/comments/summary`, {
+      params: { limit },
+    });
+  },
+
   // Add a comment to a report
   addComment: (reportId, content) => {
     return api.post(`/api/reports/${reportId}/comments`, { content });
@@ -245,6 +259,14 @@ export const reportService = {
     return api.get(`/api/reports/${reportId}/comments/${commentId}/replies`);
   },
 
+  // Get one page of replies to a comment
+  getReplyPage: (reportId, commentId, after, limit = 20) => {
+    return api.get(
+      `/api/reports/${reportId}/comments/${commentId}/replies/page`,
+      { params: { after, limit } }
+    );
+  },
+
   // Progress tracking methods
   updateReportProgress: (
     reportId,